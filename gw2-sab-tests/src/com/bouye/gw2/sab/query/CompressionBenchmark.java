@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+
+/**
+ * Compares plain and gzip transfers of a large array endpoint served by a local fixture server.
+ * <br>For each mode, prints the number of bytes received on the wire, the time until the first object of the array has been parsed and the time until the whole array has been parsed.
+ * @author Fabrice Bouyé
+ */
+public final class CompressionBenchmark {
+
+    private static final int ITEM_COUNT = 20_000;
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 20;
+
+    /**
+     * Results of a single run.
+     */
+    private static final class Sample {
+
+        long bytes;
+        long firstObjectTime;
+        long totalTime;
+    }
+
+    public static void main(final String... args) throws IOException {
+        final byte[] plainBody = createFixture().getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (final OutputStream output = new GZIPOutputStream(buffer)) {
+            output.write(plainBody);
+        }
+        final byte[] gzipBody = buffer.toByteArray();
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v2/items", exchange -> { // NOI18N.
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding"); // NOI18N.
+            final boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip"); // NOI18N.
+            final byte[] body = gzip ? gzipBody : plainBody;
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8"); // NOI18N.
+            if (gzip) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip"); // NOI18N.
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        try {
+            final URL url = new URL(String.format("http://%s:%d/v2/items?ids=all", server.getAddress().getHostString(), server.getAddress().getPort())); // NOI18N.
+            final PooledHttpTransport transport = new PooledHttpTransport();
+            System.out.printf("Fixture: %d objects, %d bytes plain, %d bytes gzip%n", ITEM_COUNT, plainBody.length, gzipBody.length); // NOI18N.
+            run("identity", transport, url, Collections.singletonMap("Accept-Encoding", "identity")); // NOI18N.
+            run("gzip", transport, url, Collections.EMPTY_MAP); // NOI18N.
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void run(final String label, final PooledHttpTransport transport, final URL url, final Map<String, String> headers) throws IOException {
+        for (int index = 0; index < WARMUP_RUNS; index++) {
+            sample(transport, url, headers);
+        }
+        long bytes = 0;
+        long firstObjectTime = 0;
+        long totalTime = 0;
+        for (int index = 0; index < RUNS; index++) {
+            final Sample sample = sample(transport, url, headers);
+            bytes += sample.bytes;
+            firstObjectTime += sample.firstObjectTime;
+            totalTime += sample.totalTime;
+        }
+        System.out.printf("%-8s bytes transferred: %9d, time to first object: %7.3f ms, total time: %8.3f ms%n", // NOI18N.
+                label,
+                bytes / RUNS,
+                firstObjectTime / (double) RUNS / TimeUnit.MILLISECONDS.toNanos(1),
+                totalTime / (double) RUNS / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static Sample sample(final PooledHttpTransport transport, final URL url, final Map<String, String> headers) throws IOException {
+        final Sample result = new Sample();
+        final long bytesBefore = transport.getBytesReceived();
+        final long start = System.nanoTime();
+        try (final GW2APIResponse response = transport.get(url, headers);
+                final JsonParser parser = Json.createParser(response.toURL().openStream())) {
+            int depth = 0;
+            int objectCount = 0;
+            while (parser.hasNext()) {
+                switch (parser.next()) {
+                    case START_OBJECT:
+                    case START_ARRAY:
+                        depth++;
+                        break;
+                    case END_OBJECT:
+                        depth--;
+                        // Closing an element of the top-level array.
+                        if (depth == 1 && objectCount++ == 0) {
+                            result.firstObjectTime = System.nanoTime() - start;
+                        }
+                        break;
+                    case END_ARRAY:
+                        depth--;
+                        break;
+                    default:
+                }
+            }
+        }
+        result.totalTime = System.nanoTime() - start;
+        result.bytes = transport.getBytesReceived() - bytesBefore;
+        return result;
+    }
+
+    /**
+     * Creates a JSON array that resembles the {@code items} endpoint.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    private static String createFixture() {
+        final StringBuilder result = new StringBuilder("["); // NOI18N.
+        for (int index = 0; index < ITEM_COUNT; index++) {
+            if (index > 0) {
+                result.append(',');
+            }
+            result.append(String.format("{\"name\":\"Item %d\",\"description\":\"Double-click to consume.\",\"type\":\"Consumable\",\"level\":80,\"rarity\":\"Fine\",\"vendor_value\":%d,\"game_types\":[\"Activity\",\"Wvw\",\"Dungeon\",\"Pve\"],\"flags\":[\"NoSell\",\"SoulbindOnAcquire\"],\"restrictions\":[],\"id\":%d,\"chat_link\":\"[&AgH1WQAA]\",\"icon\":\"https://render.guildwars2.com/file/%d.png\"}", index, index % 100, index, index)); // NOI18N.
+        }
+        return result.append(']').toString();
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonStructure;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+
+/**
+ * Local stand-in for the GW2 Web API, backed by fixture JSON files.
+ * <br>Collections behave like the v2 API: the bare endpoint lists the ids; {@code ids}, {@code id} and {@code page}/{@code page_size} select values, with the same status codes and paging headers.
+ * <br>Latency and rate limiting can be injected to exercise the whole query stack offline:
+ * <pre>
+ * try (final FixtureServer server = FixtureServer.create().defaultFixtures().latency(20, 80).rateLimit(0.05, 1).start()) {
+ *     GW2APIClient.setDefaultBaseUrl(server.getBaseUrl());
+ *     ...
+ * }
+ * </pre>
+ * @author Fabrice Bouyé
+ */
+public final class FixtureServer implements AutoCloseable {
+
+    /**
+     * Default page size of the Web API: {@value}.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    /**
+     * Maximum page size of the Web API: {@value}.
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+    /**
+     * Id of the guild of the fixtures.
+     */
+    private static final String GUILD_ID = "116E0C0E-0035-44A9-BB22-4AE3E23127E5"; // NOI18N.
+    private static final String SCENE_FIXTURES = "com/bouye/gw2/sab/scene/"; // NOI18N.
+    private static final String DEMO_FIXTURES = "com/bouye/gw2/sab/demo/"; // NOI18N.
+
+    /**
+     * A collection whose values can be selected by id.
+     */
+    private static final class Collection {
+
+        /**
+         * Values, by id, in fixture order.
+         */
+        final Map<String, JsonValue> values = new LinkedHashMap<>();
+        final List<JsonValue> ids = new ArrayList<>();
+    }
+
+    /**
+     * Collections, by path.
+     */
+    private final Map<String, Collection> collections = new ConcurrentHashMap<>();
+    /**
+     * Static bodies, by path.
+     */
+    private final Map<String, String> resources = new ConcurrentHashMap<>();
+    private long minLatency = 0;
+    private long maxLatency = 0;
+    /**
+     * Probability that a request is rejected with {@code 429 Too Many Requests}.
+     */
+    private double rateLimitProbability = 0;
+    /**
+     * Value of the {@code Retry-After} header of rejected requests, in seconds.
+     */
+    private int retryAfter = 1;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Hidden constructor.
+     */
+    private FixtureServer() {
+    }
+
+    /**
+     * Creates a new server without any endpoint.
+     * @return A {@code FixtureServer} instance, never {@code null}.
+     */
+    public static FixtureServer create() {
+        return new FixtureServer();
+    }
+
+    /**
+     * Serves all fixtures shipped with the tests and the demo mode.
+     * @return This instance, never {@code null}.
+     * @throws IOException If a fixture cannot be read.
+     */
+    public FixtureServer defaultFixtures() throws IOException {
+        collection("/v2/achievements", SCENE_FIXTURES + "account/achievements/achievements.json"); // NOI18N.
+        collection("/v2/achievements/categories", SCENE_FIXTURES + "account/achievements/categories.json"); // NOI18N.
+        collection("/v2/achievements/groups", SCENE_FIXTURES + "account/achievements/groups.json"); // NOI18N.
+        collection("/v2/masteries", SCENE_FIXTURES + "account/masteries/masteries.json"); // NOI18N.
+        collection("/v2/materials", SCENE_FIXTURES + "account/materials/material_categories.json"); // NOI18N.
+        collection("/v2/raids", SCENE_FIXTURES + "account/raids/raids.json"); // NOI18N.
+        collection("/v2/currencies", SCENE_FIXTURES + "account/wallet/currencies.json"); // NOI18N.
+        collection("/v2/professions", SCENE_FIXTURES + "characters/professions/professions.json"); // NOI18N.
+        collection("/v2/specializations", SCENE_FIXTURES + "characters/specializations/specializations.json", SCENE_FIXTURES + "characters/specializations/specialization01.json"); // NOI18N.
+        collection("/v2/guild/upgrades", SCENE_FIXTURES + "guild/treasury/guild_upgrades.json"); // NOI18N.
+        collection("/v2/items", SCENE_FIXTURES + "items/items.json", SCENE_FIXTURES + "items/item01.json", SCENE_FIXTURES + "items/item02.json", SCENE_FIXTURES + "guild/treasury/items.json"); // NOI18N.
+        collection("/v2/pvp/seasons", SCENE_FIXTURES + "pvp/seasons/season.json"); // NOI18N.
+        collection("/v2/quaggans", SCENE_FIXTURES + "quaggans/quaggans.json"); // NOI18N.
+        collection("/v2/worlds", SCENE_FIXTURES + "wvw/matches/worlds01.json", SCENE_FIXTURES + "worlds/world.json", DEMO_FIXTURES + "v2/worlds/world_1001.json"); // NOI18N.
+        collection("/v2/wvw/matches", SCENE_FIXTURES + "wvw/matches/match01.json"); // NOI18N.
+        resource("/v2/account", DEMO_FIXTURES + "v2/account.json"); // NOI18N.
+        resource("/v2/tokeninfo", DEMO_FIXTURES + "v2/tokeninfo.json"); // NOI18N.
+        resource("/v2/account/bank", SCENE_FIXTURES + "account/bank/bank.json"); // NOI18N.
+        resource("/v2/account/inventory", SCENE_FIXTURES + "characters/inventory/account_inventories.json"); // NOI18N.
+        resource("/v2/account/masteries", SCENE_FIXTURES + "account/masteries/account-masteries.json"); // NOI18N.
+        resource("/v2/account/materials", SCENE_FIXTURES + "account/materials/account_materials.json"); // NOI18N.
+        resource("/v2/account/wallet", SCENE_FIXTURES + "account/wallet/wallet.json"); // NOI18N.
+        resource("/v2/pvp/stats", SCENE_FIXTURES + "account/pvp/stats.json"); // NOI18N.
+        resource("/v2/guild/" + GUILD_ID, SCENE_FIXTURES + "guild/guild01.json"); // NOI18N.
+        resource("/v2/guild/" + GUILD_ID + "/log", DEMO_FIXTURES + "v2/guild/id/log/guildlog_01.json"); // NOI18N.
+        resource("/v2/guild/" + GUILD_ID + "/members", DEMO_FIXTURES + "v2/guild/id/members/guildroster_01.json"); // NOI18N.
+        resource("/v2/guild/" + GUILD_ID + "/treasury", SCENE_FIXTURES + "guild/treasury/guild_treasury.json"); // NOI18N.
+        return this;
+    }
+
+    /**
+     * Serves a collection.
+     * <br>Fixtures may contain a single object or an array of objects; each object must have an {@code id}.
+     * <br>When several fixtures contain the same id, the first one wins.
+     * @param path The path of the endpoint, ie: {@code /v2/items}.
+     * @param fixtures The class path resources of the fixtures.
+     * @return This instance, never {@code null}.
+     * @throws IOException If a fixture cannot be read.
+     * @throws NullPointerException If {@code path} or {@code fixtures} is {@code null}.
+     */
+    public FixtureServer collection(final String path, final String... fixtures) throws IOException, NullPointerException {
+        Objects.requireNonNull(path);
+        Objects.requireNonNull(fixtures);
+        final Collection collection = new Collection();
+        for (final String fixture : fixtures) {
+            final JsonStructure structure = readFixture(fixture);
+            final List<JsonValue> values = (structure instanceof JsonArray) ? (JsonArray) structure : Collections.<JsonValue>singletonList(structure);
+            for (final JsonValue value : values) {
+                final JsonValue id = ((JsonObject) value).get("id"); // NOI18N.
+                if (id == null) {
+                    throw new IOException(String.format("Value without id in %s", fixture)); // NOI18N.
+                }
+                final String key = idToString(id);
+                if (!collection.values.containsKey(key)) {
+                    collection.values.put(key, value);
+                    collection.ids.add(id);
+                }
+            }
+        }
+        collections.put(path, collection);
+        return this;
+    }
+
+    /**
+     * Serves a fixture as is.
+     * @param path The path of the endpoint, ie: {@code /v2/account}.
+     * @param fixture The class path resource of the fixture.
+     * @return This instance, never {@code null}.
+     * @throws IOException If the fixture cannot be read.
+     * @throws NullPointerException If {@code path} or {@code fixture} is {@code null}.
+     */
+    public FixtureServer resource(final String path, final String fixture) throws IOException, NullPointerException {
+        Objects.requireNonNull(path);
+        resources.put(path, toJson(readFixture(fixture)));
+        return this;
+    }
+
+    /**
+     * Delays each response.
+     * @param min The minimum delay, in ms.
+     * @param max The maximum delay, in ms.
+     * @return This instance, never {@code null}.
+     * @throws IllegalArgumentException If {@code min} is negative or greater than {@code max}.
+     */
+    public FixtureServer latency(final long min, final long max) throws IllegalArgumentException {
+        if (min < 0 || min > max) {
+            throw new IllegalArgumentException();
+        }
+        minLatency = min;
+        maxLatency = max;
+        return this;
+    }
+
+    /**
+     * Rejects some requests with {@code 429 Too Many Requests}.
+     * @param probability The probability that a request is rejected, in [0, 1].
+     * @param retryAfter The value of the {@code Retry-After} header, in seconds.
+     * @return This instance, never {@code null}.
+     * @throws IllegalArgumentException If {@code probability} is not in [0, 1] or if {@code retryAfter} is negative.
+     */
+    public FixtureServer rateLimit(final double probability, final int retryAfter) throws IllegalArgumentException {
+        if (probability < 0 || probability > 1 || retryAfter < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.rateLimitProbability = probability;
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     * @return This instance, never {@code null}.
+     * @throws IOException If the server cannot be started.
+     * @throws IllegalStateException If the server is already started.
+     */
+    public FixtureServer start() throws IOException, IllegalStateException {
+        if (server != null) {
+            throw new IllegalStateException();
+        }
+        final AtomicInteger threadIndex = new AtomicInteger();
+        // Handlers sleep to simulate latency and must not hold up other requests.
+        executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, String.format("FixtureServer-%d", threadIndex.incrementAndGet())); // NOI18N.
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle); // NOI18N.
+        server.start();
+        return this;
+    }
+
+    /**
+     * Gets the base URL of the server, to be given to {@code GW2APIClient}.
+     * @return A {@code String} instance, never {@code null}.
+     * @throws IllegalStateException If the server is not started.
+     */
+    public String getBaseUrl() throws IllegalStateException {
+        if (server == null) {
+            throw new IllegalStateException();
+        }
+        return String.format("http://%s:%d", server.getAddress().getHostString(), server.getAddress().getPort()); // NOI18N.
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Handles a request.
+     * @param exchange The exchange.
+     * @throws IOException In case of IO error.
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            simulateLatency();
+            if (!"GET".equals(exchange.getRequestMethod())) { // NOI18N.
+                sendError(exchange, 405, "method not allowed"); // NOI18N.
+                return;
+            }
+            if (rateLimitProbability > 0 && ThreadLocalRandom.current().nextDouble() < rateLimitProbability) {
+                rateLimitedCount.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfter)); // NOI18N.
+                sendError(exchange, 429, "too many requests"); // NOI18N.
+                return;
+            }
+            final String path = exchange.getRequestURI().getPath();
+            final Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            final Collection collection = collections.get(path);
+            final String resource = resources.get(path);
+            if (collection != null) {
+                handleCollection(exchange, collection, parameters);
+            } else if (resource != null) {
+                send(exchange, 200, resource);
+            } else {
+                sendError(exchange, 404, "not found"); // NOI18N.
+            }
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(FixtureServer.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+            throw ex;
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Handles a request on a collection.
+     * @param exchange The exchange.
+     * @param collection The collection.
+     * @param parameters The parameters of the query.
+     * @throws IOException In case of IO error.
+     */
+    private void handleCollection(final HttpExchange exchange, final Collection collection, final Map<String, String> parameters) throws IOException {
+        final String ids = parameters.get("ids"); // NOI18N.
+        final String id = parameters.get("id"); // NOI18N.
+        final String page = parameters.get("page"); // NOI18N.
+        final int total = collection.ids.size();
+        if (id != null) {
+            final JsonValue value = collection.values.get(id);
+            if (value == null) {
+                sendError(exchange, 404, "no such id"); // NOI18N.
+            } else {
+                send(exchange, 200, toJson(value));
+            }
+        } else if (ids != null) {
+            final List<JsonValue> values = new ArrayList<>();
+            final List<String> requested = "all".equals(ids) ? new ArrayList<>(collection.values.keySet()) : Arrays.asList(ids.split(",")); // NOI18N.
+            requested.stream()
+                    .map(String::trim)
+                    .map(collection.values::get)
+                    .filter(Objects::nonNull)
+                    .forEach(values::add);
+            if (values.isEmpty()) {
+                sendError(exchange, 404, "all ids provided are invalid"); // NOI18N.
+                return;
+            }
+            addResultHeaders(exchange, values.size(), total);
+            // Like the Web API, answers 206 when some ids are unknown.
+            send(exchange, (values.size() < requested.size()) ? 206 : 200, toJson(values));
+        } else if (page != null) {
+            final Optional<Integer> pageIndex = parseInt(page);
+            final Optional<Integer> pageSize = parseInt(parameters.getOrDefault("page_size", String.valueOf(DEFAULT_PAGE_SIZE))); // NOI18N.
+            if (!pageSize.isPresent() || pageSize.get() < 1 || pageSize.get() > MAX_PAGE_SIZE) {
+                sendError(exchange, 400, String.format("page_size must be between 1 and %d", MAX_PAGE_SIZE)); // NOI18N.
+                return;
+            }
+            final int pageTotal = Math.max(1, (total + pageSize.get() - 1) / pageSize.get());
+            if (!pageIndex.isPresent() || pageIndex.get() < 0 || pageIndex.get() >= pageTotal) {
+                sendError(exchange, 400, String.format("page out of range. Use values 0 - %d", pageTotal - 1)); // NOI18N.
+                return;
+            }
+            final int from = Math.min(total, pageIndex.get() * pageSize.get());
+            final int to = Math.min(total, from + pageSize.get());
+            final List<JsonValue> values = new ArrayList<>(to - from);
+            collection.ids.subList(from, to)
+                    .stream()
+                    .map(value -> collection.values.get(idToString(value)))
+                    .forEach(values::add);
+            exchange.getResponseHeaders().add("X-Page-Total", String.valueOf(pageTotal)); // NOI18N.
+            exchange.getResponseHeaders().add("X-Page-Size", String.valueOf(pageSize.get())); // NOI18N.
+            addResultHeaders(exchange, values.size(), total);
+            send(exchange, 200, toJson(values));
+        } else {
+            addResultHeaders(exchange, total, total);
+            send(exchange, 200, toJson(collection.ids));
+        }
+    }
+
+    private void simulateLatency() throws IOException {
+        if (maxLatency > 0) {
+            try {
+                Thread.sleep((minLatency == maxLatency) ? minLatency : ThreadLocalRandom.current().nextLong(minLatency, maxLatency + 1));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+        }
+    }
+
+    private static void addResultHeaders(final HttpExchange exchange, final int count, final int total) {
+        exchange.getResponseHeaders().add("X-Result-Count", String.valueOf(count)); // NOI18N.
+        exchange.getResponseHeaders().add("X-Result-Total", String.valueOf(total)); // NOI18N.
+    }
+
+    private static void sendError(final HttpExchange exchange, final int statusCode, final String text) throws IOException {
+        final JsonObject body = Json.createObjectBuilder()
+                .add("text", text) // NOI18N.
+                .build();
+        send(exchange, statusCode, toJson(body));
+    }
+
+    private static void send(final HttpExchange exchange, final int statusCode, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8"); // NOI18N.
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (final OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a fixture from the class path.
+     * @param fixture The class path resource of the fixture.
+     * @return A {@code JsonStructure} instance, never {@code null}.
+     * @throws IOException If the fixture cannot be read.
+     */
+    private static JsonStructure readFixture(final String fixture) throws IOException {
+        Objects.requireNonNull(fixture);
+        final InputStream input = FixtureServer.class.getClassLoader().getResourceAsStream(fixture);
+        if (input == null) {
+            throw new IOException(String.format("Fixture %s not found", fixture)); // NOI18N.
+        }
+        try (final JsonReader reader = Json.createReader(input)) {
+            return reader.read();
+        } catch (RuntimeException ex) {
+            throw new IOException(String.format("Could not read fixture %s", fixture), ex); // NOI18N.
+        }
+    }
+
+    private static String toJson(final List<JsonValue> values) {
+        final JsonArrayBuilder builder = Json.createArrayBuilder();
+        values.forEach(builder::add);
+        return toJson((JsonValue) builder.build());
+    }
+
+    private static String toJson(final JsonValue value) {
+        if (!(value instanceof JsonStructure)) {
+            return value.toString();
+        }
+        final StringWriter result = new StringWriter();
+        try (final JsonWriter writer = Json.createWriter(result)) {
+            writer.write((JsonStructure) value);
+        }
+        return result.toString();
+    }
+
+    private static String idToString(final JsonValue id) {
+        return (id instanceof JsonString) ? ((JsonString) id).getString() : id.toString();
+    }
+
+    private static Optional<Integer> parseInt(final String value) {
+        try {
+            return Optional.of(Integer.parseInt(value));
+        } catch (NumberFormatException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static Map<String, String> parseQuery(final String query) throws UnsupportedEncodingException {
+        if (query == null || query.isEmpty()) {
+            return Collections.EMPTY_MAP;
+        }
+        final Map<String, String> result = new HashMap<>();
+        for (final String parameter : query.split("&")) { // NOI18N.
+            final int index = parameter.indexOf('=');
+            final String key = (index < 0) ? parameter : parameter.substring(0, index);
+            final String value = (index < 0) ? "" : parameter.substring(index + 1); // NOI18N.
+            result.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8")); // NOI18N.
+        }
+        return result;
+    }
+
+    /**
+     * Starts a server with the default fixtures and keeps it running.
+     * <br>Set {@code webapi.base.url} to the printed URL to run the application against it.
+     * @param args Optional minimum latency, maximum latency (ms) and probability of {@code 429} responses.
+     * @throws IOException If the server cannot be started.
+     * @throws InterruptedException If interrupted while serving.
+     */
+    public static void main(final String... args) throws IOException, InterruptedException {
+        final long min = (args.length > 0) ? Long.parseLong(args[0]) : 0;
+        final long max = (args.length > 1) ? Long.parseLong(args[1]) : min;
+        final double rateLimit = (args.length > 2) ? Double.parseDouble(args[2]) : 0;
+        try (final FixtureServer server = FixtureServer.create().defaultFixtures().latency(min, max).rateLimit(rateLimit, 1).start()) {
+            System.out.printf("Serving fixtures at %s%n", server.getBaseUrl()); // NOI18N.
+            Thread.currentThread().join();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.bouye.gw2.sab.db.DBStorage;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.stage.Stage;
+import javax.imageio.ImageIO;
+
+/**
+ * Measures the time needed to render a whole bank of icons at startup, on a first launch with an empty local storage and on a second launch.
+ * <br>Icons are served by a local stand-in for the render service with a fixed latency; the API itself answers with empty lists so the DB storage can be initialized offline.
+ * <br>The second launch is simulated in the same VM by emptying the memory cache; icons written through to the local storage during the first launch are kept.
+ * @author Fabrice Bouyé
+ */
+public final class IconPipelineBenchmark extends Application {
+
+    /**
+     * Number of icons in the bank: 8 tabs of 30 slots.
+     */
+    private static final int ICON_COUNT = 240;
+    private static final int ICON_SIZE = 64;
+    /**
+     * Latency of the render service, in ms.
+     */
+    private static final long LATENCY = 40;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    @Override
+    public void start(final Stage primaryStage) {
+        // Images are decoded by the pipeline threads, the application thread is not used.
+        final Thread thread = new Thread(() -> {
+            try {
+                run();
+            } catch (Exception ex) {
+                Logger.getLogger(IconPipelineBenchmark.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            } finally {
+                Platform.exit();
+            }
+        }, "IconPipelineBenchmark"); // NOI18N.
+        thread.start();
+    }
+
+    private void run() throws IOException {
+        final byte[] icon = createIcon();
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/file/", exchange -> { // NOI18N.
+            requestCount.incrementAndGet();
+            try {
+                Thread.sleep(LATENCY);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "image/png"); // NOI18N.
+            exchange.sendResponseHeaders(200, icon.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(icon);
+            }
+        });
+        server.createContext("/v2/", exchange -> { // NOI18N.
+            final byte[] body = "[]".getBytes(StandardCharsets.UTF_8); // NOI18N.
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8"); // NOI18N.
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        // Let the server answer all download workers at once.
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        try {
+            final String baseUrl = String.format("http://%s:%d", server.getAddress().getHostString(), server.getAddress().getPort()); // NOI18N.
+            GW2APIClient.setDefaultBaseUrl(baseUrl);
+            ImageCache.INSTANCE.setRenderServiceUrl(baseUrl + "/file/"); // NOI18N.
+            DBStorage.INSTANCE.init();
+            final String[] urls = IntStream.range(0, ICON_COUNT)
+                    .mapToObj(index -> String.format("%s/file/%040X/%d.png", baseUrl, index, index)) // NOI18N.
+                    .toArray(String[]::new);
+            System.out.printf("%-8s %12s %10s %10s %12s%n", "launch", "time (ms)", "requests", "downloads", "from disk"); // NOI18N.
+            simulateLaunch("first", urls); // NOI18N.
+            simulateLaunch("second", urls); // NOI18N.
+        } finally {
+            DBStorage.INSTANCE.close();
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Loads all icons, as the bank pane does at startup.
+     * @param label The label of the launch.
+     * @param urls The URLs of the icons.
+     */
+    private void simulateLaunch(final String label, final String[] urls) {
+        ImageCache.INSTANCE.clear();
+        final long requests = requestCount.get();
+        final long downloads = ImageCache.INSTANCE.getDownloadCount();
+        final long storeHits = ImageCache.INSTANCE.getStoreHitCount();
+        final long start = System.nanoTime();
+        final CompletableFuture<?>[] images = new CompletableFuture<?>[urls.length];
+        for (int index = 0; index < urls.length; index++) {
+            images[index] = ImageCache.INSTANCE.loadImage(urls[index]);
+        }
+        CompletableFuture.allOf(images).join();
+        final long time = System.nanoTime() - start;
+        final long decoded = Arrays.stream(images)
+                .filter(image -> image.join() instanceof Image)
+                .count();
+        if (decoded != urls.length) {
+            System.out.printf("%d icons could not be loaded.%n", urls.length - decoded); // NOI18N.
+        }
+        System.out.printf("%-8s %12.1f %10d %10d %12d%n", label, time / 1_000_000.0, requestCount.get() - requests, ImageCache.INSTANCE.getDownloadCount() - downloads, ImageCache.INSTANCE.getStoreHitCount() - storeHits); // NOI18N.
+    }
+
+    /**
+     * Creates the PNG served for every icon.
+     * @return A {@code byte[]} instance, never {@code null}.
+     * @throws IOException In case of IO error.
+     */
+    private static byte[] createIcon() throws IOException {
+        final BufferedImage image = new BufferedImage(ICON_SIZE, ICON_SIZE, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillOval(4, 4, ICON_SIZE - 8, ICON_SIZE - 8);
+        graphics.dispose();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output); // NOI18N.
+        return output.toByteArray();
+    }
+
+    public static void main(final String... args) throws IOException {
+        // Keep the local storage of the benchmark apart from the one of the application.
+        System.setProperty("user.home", Files.createTempDirectory("sab-icons").toString()); // NOI18N.
+        launch(args);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.core.APILevel;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the time and the memory allocated to build a query URL, with the previous implementation and with the current one.
+ * <br>Allocation is measured on the benchmark thread with the HotSpot thread MX bean.
+ * @author Fabrice Bouyé
+ */
+public final class QueryBuilderBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+    private static final String APP_KEY = "01234567-89AB-CDEF-0123-456789ABCDEF0123456789AB-CDEF-0123-4567-89ABCDEF0123"; // NOI18N.
+    private static final String CHARACTER_NAME = "Some Character Name"; // NOI18N.
+
+    /**
+     * Sink that prevents the JIT from removing the benchmarked code.
+     */
+    private static int sink;
+
+    public static void main(final String... args) {
+        final GW2APIClient client = GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint(String.format("characters/%s/equipment", GW2APIClient.encodeURLParameter(CHARACTER_NAME))) // NOI18N.
+                .language("en") // NOI18N.
+                .applicationKey(APP_KEY);
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("lang", "en"); // NOI18N.
+        parameters.put("access_token", APP_KEY); // NOI18N.
+        final String legacyQuery = legacyBuildQuery(APILevel.V2, String.format("characters/%s/equipment", legacyEncodeURLParameter(CHARACTER_NAME)), parameters); // NOI18N.
+        if (!legacyQuery.equals(client.buildQuery())) {
+            throw new IllegalStateException(String.format("%s != %s", legacyQuery, client.buildQuery())); // NOI18N.
+        }
+        // The endpoint is rebuilt on each poll since it embeds the character name.
+        run("before", () -> legacyBuildQuery(APILevel.V2, String.format("characters/%s/equipment", legacyEncodeURLParameter(CHARACTER_NAME)), parameters)); // NOI18N.
+        run("after", () -> client.endPoint(String.format("characters/%s/equipment", GW2APIClient.encodeURLParameter(CHARACTER_NAME))).buildQuery()); // NOI18N.
+        run("before (template only)", () -> legacyBuildQuery(APILevel.V2, "account/bank", parameters)); // NOI18N.
+        final GW2APIClient bankClient = GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint("account/bank") // NOI18N.
+                .language("en") // NOI18N.
+                .applicationKey(APP_KEY);
+        run("after (template only)", bankClient::buildQuery); // NOI18N.
+    }
+
+    private static void run(final String label, final Supplier<String> query) {
+        for (int index = 0; index < WARMUP_ITERATIONS; index++) {
+            sink += query.get().length();
+        }
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        final long start = System.nanoTime();
+        for (int index = 0; index < ITERATIONS; index++) {
+            sink += query.get().length();
+        }
+        final long time = System.nanoTime() - start;
+        final long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.printf("%-24s %8.1f ns/query, %7.1f bytes allocated/query%n", label, time / (double) ITERATIONS, bytes / (double) ITERATIONS); // NOI18N.
+    }
+
+    /**
+     * The previous implementation of {@code GW2APIClient.encodeURLParameter()}.
+     */
+    private static String legacyEncodeURLParameter(final String value) {
+        try {
+            String result = URLEncoder.encode(value, "utf-8"); // NOI18N.
+            result = result.replaceAll("\\+", "%20"); // NOI18N.
+            return result;
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * The previous implementation of {@code GW2APIClient.buildQuery()}.
+     */
+    private static String legacyBuildQuery(final APILevel apiLevel, final String endPoint, final Map<String, Object> parameters) {
+        final String baseCode = "https://api.guildwars2.com"; // NOI18N.
+        final String api = apiLevel.name().toLowerCase();
+        final String parametersString = parameters.entrySet()
+                .stream()
+                .map(entry -> {
+                    final String key = entry.getKey();
+                    final Object value = entry.getValue();
+                    String valueStr = null;
+                    if (value instanceof String) {
+                        valueStr = (String) value;
+                    } else {
+                        valueStr = value.toString();
+                    }
+                    return String.format("%s=%s", key, valueStr); // NOI18N.
+                })
+                .collect(Collectors.joining("&")); // NOI18N.
+        final String pattern = parameters.isEmpty() ? "%s/%s/%s" : "%s/%s/%s?%s"; // NOI18N.
+        return String.format(pattern, baseCode, api, endPoint, parametersString);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.StringReader;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonReader;
+
+/**
+ * Measures the throughput of the query cache under contention, with the previous implementation and with the current one.
+ * <br>Threads look up random URLs; from time to time the content of a URL is refreshed and its value has to be decoded again.
+ * @author Fabrice Bouyé
+ */
+public final class QueryCacheBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+    private static final int URL_COUNT = 64;
+    private static final int ITEM_COUNT = 200;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    /**
+     * One lookup out of {@code REFRESH_RATE} refreshes the content of its URL.
+     */
+    private static final int REFRESH_RATE = 500;
+
+    /**
+     * Sink that prevents the JIT from removing the benchmarked code.
+     */
+    private static final AtomicLong SINK = new AtomicLong();
+
+    /**
+     * A cache implementation.
+     */
+    private interface Cache {
+
+        <T> T get(final String url, final String json, final Function<String, T> producer);
+    }
+
+    public static void main(final String... args) throws InterruptedException {
+        final String[] urls = IntStream.range(0, URL_COUNT)
+                .mapToObj(index -> String.format("https://api.guildwars2.com/v2/recipes?page=%d", index)) // NOI18N.
+                .toArray(String[]::new);
+        final String[][] jsons = IntStream.range(0, URL_COUNT)
+                .mapToObj(index -> new String[]{createFixture(index, 0), createFixture(index, 1)})
+                .toArray(String[][]::new);
+        final Cache current = QueryCache.INSTANCE::get;
+        // Warmup.
+        run(new LegacyQueryCache()::get, 4, urls, jsons);
+        run(current, 4, urls, jsons);
+        System.out.printf("%-8s %16s %16s %12s%n", "threads", "before (ops/s)", "after (ops/s)", "decodes"); // NOI18N.
+        for (final int threads : THREADS) {
+            final double before = run(new LegacyQueryCache()::get, threads, urls, jsons)[0];
+            QueryCache.INSTANCE.clear();
+            final double[] after = run(current, threads, urls, jsons);
+            System.out.printf("%-8d %16.0f %16.0f %12.0f%n", threads, before, after[0], after[1]); // NOI18N.
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     * @return Operations per second and number of decodes.
+     */
+    private static double[] run(final Cache cache, final int threads, final String[] urls, final String[][] jsons) throws InterruptedException {
+        final AtomicLong decodes = new AtomicLong();
+        final Function<String, JsonArray> producer = json -> {
+            decodes.incrementAndGet();
+            try (final JsonReader reader = Json.createReader(new StringReader(json))) {
+                return reader.readArray();
+            }
+        };
+        // Current version of the content of each URL.
+        final AtomicIntegerArray versions = new AtomicIntegerArray(URL_COUNT);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int index = 0; index < threads; index++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long sum = 0;
+                    for (int operation = 0; operation < OPERATIONS_PER_THREAD; operation++) {
+                        final int url = random.nextInt(URL_COUNT);
+                        final int version = (random.nextInt(REFRESH_RATE) == 0) ? versions.incrementAndGet(url) % 2 : versions.get(url) % 2;
+                        final JsonArray value = cache.get(urls[url], jsons[url][version], producer);
+                        sum += (value == null) ? 0 : value.size();
+                    }
+                    SINK.addAndGet(sum);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        final long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        final long time = System.nanoTime() - startTime;
+        return new double[]{threads * (double) OPERATIONS_PER_THREAD * 1_000_000_000L / time, decodes.get()};
+    }
+
+    private static String createFixture(final int page, final int version) {
+        return IntStream.range(0, ITEM_COUNT)
+                .mapToObj(index -> String.format("{\"id\":%d,\"name\":\"Item %d\",\"level\":%d,\"rarity\":\"Exotic\",\"vendor_value\":%d}", page * ITEM_COUNT + index, index, version, index * 10)) // NOI18N.
+                .collect(Collectors.joining(",", "[", "]")); // NOI18N.
+    }
+
+    /**
+     * The previous implementation of {@code QueryCache}.
+     */
+    private static final class LegacyQueryCache {
+
+        private static final class Result<T> {
+
+            String json;
+            T value;
+        }
+
+        private final Map<String, SoftReference<Result>> cache = Collections.synchronizedMap(new HashMap<>());
+
+        public <T> T get(final String url, final String json, final Function<String, T> producer) {
+            T result = null;
+            synchronized (cache) {
+                SoftReference<Result> resultRef = cache.get(url);
+                if (resultRef != null) {
+                    result = (!resultRef.get().json.equals(json)) ? null : (T) resultRef.get().value;
+                }
+                if (result == null) {
+                    final Result<T> cacheEntry = new Result();
+                    cacheEntry.json = json;
+                    cacheEntry.value = producer.apply(json);
+                    resultRef = new SoftReference<>(cacheEntry);
+                    cache.put(url, resultRef);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.core.APILevel;
+import api.web.gw2.mapping.v2.account.Account;
+import api.web.gw2.mapping.v2.achievements.Achievement;
+import api.web.gw2.mapping.v2.items.Item;
+import api.web.gw2.mapping.v2.worlds.World;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Runs the whole query stack against a local {@code FixtureServer} with injected latency and rate limiting, then prints the query metrics.
+ * <br>No API key nor network access is needed.
+ * @author Fabrice Bouyé
+ */
+public final class QueryLoadTest {
+
+    private static final int USERS = 16;
+    private static final int ITERATIONS = 25;
+    private static final long MIN_LATENCY = 10;
+    private static final long MAX_LATENCY = 60;
+    private static final double RATE_LIMIT_PROBABILITY = 0.02;
+    private static final String APP_KEY = "01234567-89AB-CDEF-0123-456789ABCDEF0123456789AB-CDEF-0123-4567-89ABCDEF0123"; // NOI18N.
+
+    public static void main(final String... args) throws IOException, InterruptedException {
+        try (final FixtureServer server = FixtureServer.create()
+                .defaultFixtures()
+                .latency(MIN_LATENCY, MAX_LATENCY)
+                .rateLimit(RATE_LIMIT_PROBABILITY, 1)
+                .start()) {
+            GW2APIClient.setDefaultBaseUrl(server.getBaseUrl());
+            System.out.printf("Fixture server at %s, %d users x %d iterations%n", server.getBaseUrl(), USERS, ITERATIONS); // NOI18N.
+            final AtomicLong failures = new AtomicLong();
+            final ExecutorService users = Executors.newFixedThreadPool(USERS);
+            final List<Future<?>> futures = new ArrayList<>(USERS);
+            final long start = System.nanoTime();
+            for (int user = 0; user < USERS; user++) {
+                futures.add(users.submit(() -> {
+                    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                        try {
+                            runScenario();
+                        } catch (RuntimeException ex) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    failures.incrementAndGet();
+                }
+            }
+            users.shutdown();
+            final long elapsed = System.nanoTime() - start;
+            System.out.printf("%d scenarios in %.1f s, %d failed; server received %d requests, %d rate limited%n", // NOI18N.
+                    USERS * ITERATIONS,
+                    elapsed / (double) TimeUnit.SECONDS.toNanos(1),
+                    failures.get(),
+                    server.getRequestCount(),
+                    server.getRateLimitedCount());
+            final Path report = Files.createTempFile("query-metrics", ".tsv"); // NOI18N.
+            QueryMetrics.INSTANCE.dump(report);
+            Files.readAllLines(report).forEach(System.out::println);
+        }
+    }
+
+    /**
+     * Loads what the account view of the application loads.
+     */
+    private static void runScenario() {
+        GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint("account") // NOI18N.
+                .applicationKey(APP_KEY)
+                .queryObject(Account.class);
+        GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint("worlds") // NOI18N.
+                .ids(1001, 1005, 1012)
+                .queryArray(World.class);
+        GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint("items") // NOI18N.
+                .ids(3700, 9051, 12452, 30698, 39341)
+                .queryArray(Item.class);
+        try (final Stream<Achievement> achievements = GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint("achievements") // NOI18N.
+                .pageSize(200)
+                .queryAllPages(Achievement.class)) {
+            achievements.count();
+        }
+    }
+}
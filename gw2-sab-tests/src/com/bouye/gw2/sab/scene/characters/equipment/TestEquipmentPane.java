@@ -139,9 +139,7 @@ public final class TestEquipmentPane extends Application {
         @Override
         protected Void call() throws Exception {
             final Optional<CharacterEquipmentResponse> response = WebQuery.INSTANCE.queryCharacterEquipment(session.getAppKey(), characterName);
-            final Optional<api.web.gw2.mapping.v2.characters.Character> character = WebQuery.INSTANCE.queryCharacter(session.getAppKey(), characterName);
-            final List<String> characterNames =  WebQuery.INSTANCE.queryCharacterNames(session.getAppKey());
-            final List<api.web.gw2.mapping.v2.characters.Character> characters = WebQuery.INSTANCE.queryCharacters(session.getAppKey(), characterNames.toArray(new String[0]));
+            final List<api.web.gw2.mapping.v2.characters.Character> characters = WebQuery.INSTANCE.queryCharacters(session.getAppKey(), characterName);
             return null;
         }
     }
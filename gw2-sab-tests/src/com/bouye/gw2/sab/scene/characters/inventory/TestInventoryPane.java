@@ -13,21 +13,21 @@ import api.web.gw2.mapping.v2.skins.Skin;
 import api.web.gw2.mapping.v2.tokeninfo.TokenInfoPermission;
 import com.bouye.gw2.sab.SAB;
 import com.bouye.gw2.sab.SABConstants;
-import com.bouye.gw2.sab.query.GW2APIClient;
 import com.bouye.gw2.sab.scene.SABTestUtils;
 import com.bouye.gw2.sab.session.Session;
+import com.bouye.gw2.sab.tasks.plan.PanePlans;
+import com.bouye.gw2.sab.tasks.plan.PlanNode;
+import com.bouye.gw2.sab.tasks.plan.QueryPlan;
 import com.bouye.gw2.sab.wrappers.CharacterBagWrapper;
 import com.bouye.gw2.sab.wrappers.CharacterInventoryWrapper;
 import com.bouye.gw2.sab.wrappers.SharedInventoryWrapper;
 import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.OptionalInt;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,7 +40,6 @@ import javafx.scene.Scene;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import org.scenicview.ScenicView;
-import api.web.gw2.mapping.v2.characters.id.inventory.CharacterInventory;
 import api.web.gw2.mapping.v2.characters.id.inventory.CharacterInventoryBag;
 import api.web.gw2.mapping.v2.account.inventory.AccountInventory;
 
@@ -166,126 +165,15 @@ public final class TestInventoryPane extends Application {
     private void loadRemoteTest(final InventoryPane inventoryPane) {
         final Session session = SABTestUtils.INSTANCE.getTestSession();
         if (session.getTokenInfo().getPermissions().contains(TokenInfoPermission.INVENTORIES)) {
-            // Shared inventory.
-            final List<AccountInventory> sharedInventories = GW2APIClient.create()
-                    .applicationKey(session.getAppKey())
-                    .endPoint("account/inventory")
-                    .queryArray(AccountInventory.class);
-            if (!sharedInventories.isEmpty()) {
-                // Extract items.
-                final List<Integer> objectIds = sharedInventories.stream()
-                        .filter(sharedInventory -> sharedInventory != null)
-                        .map(AccountInventory::getId)
-                        .collect(Collectors.toList());
-                final int[] itemIdsToResolve = objectIds.stream()
-                        .mapToInt(id -> id)
-                        .distinct()
-                        .sorted()
-                        .toArray();
-                final Map<Integer, Item> items = (itemIdsToResolve.length == 0) ? Collections.emptyMap() : GW2APIClient.create()
-                        .endPoint("items")
-                        .ids(itemIdsToResolve)
-                        .queryArray(Item.class)
-                        .stream()
-                        .collect(Collectors.toMap(Item::getId, Function.identity()));
-                // Extract skins.
-                final int[] skinIdsToResolve = items.values()
-                        .stream()
-                        .map(Item::getDefaultSkin)
-                        .filter(OptionalInt::isPresent)
-                        .mapToInt(OptionalInt::getAsInt)
-                        .distinct()
-                        .sorted()
-                        .toArray();
-                final Map<Integer, Skin> skins = (skinIdsToResolve.length == 0) ? Collections.emptyMap() : GW2APIClient.create()
-                        .endPoint("skins")
-                        .ids(skinIdsToResolve)
-                        .queryArray(Skin.class)
-                        .stream()
-                        .collect(Collectors.toMap(Skin::getId, Function.identity()));
-                // Wrap.
-                final List<SharedInventoryWrapper> wrappers = sharedInventories.stream()
-                        .map(inventory -> {
-                            SharedInventoryWrapper wrapper = null;
-                            if (inventory != null) {
-                                final Item inventoryItem = items.get(inventory.getId());
-                                final Skin inventorySkin = (inventoryItem == null || !inventoryItem.getDefaultSkin().isPresent()) ? null : skins.get(inventoryItem.getDefaultSkin().getAsInt());
-                                wrapper = new SharedInventoryWrapper(inventory, inventoryItem, inventorySkin);
-                            }
-                            return wrapper;
-                        })
-                        .collect(Collectors.toList());
-                Platform.runLater(() -> inventoryPane.getSharedInventory().setAll(wrappers));
-            }
-            // Character inventory.
-            final Optional<api.web.gw2.mapping.v2.characters.Character> character = GW2APIClient.create()
-                    .applicationKey(session.getAppKey())
-                    .endPoint("characters")
-                    .id(SABTestUtils.INSTANCE.getTestCharacter())
-                    .queryObject(api.web.gw2.mapping.v2.characters.Character.class);
-            if (character.isPresent()) {
-                final List<CharacterInventoryBag> inventoryBags = character.get().getBags();
-                final List<Integer> objectIds = new ArrayList<>();
-                inventoryBags.stream()
-                        .forEach(inventoryBag -> {
-                            final List<Integer> bagItemIds = inventoryBag.getInventory()
-                                    .stream()
-                                    .filter(inventory -> inventory != null)
-                                    .map(CharacterInventory::getId)
-                                    .collect(Collectors.toList());
-                            objectIds.addAll(bagItemIds);
-                        });
-                final int[] itemIdsToResolve = objectIds.stream()
-                        .mapToInt(id -> id)
-                        .distinct()
-                        .sorted()
-                        .toArray();
-                final Map<Integer, Item> items = (itemIdsToResolve.length == 0) ? Collections.emptyMap() : GW2APIClient.create()
-                        .endPoint("items")
-                        .ids(itemIdsToResolve)
-                        .queryArray(Item.class)
-                        .stream()
-                        .collect(Collectors.toMap(Item::getId, Function.identity()));
-                // Extract skins.
-                final int[] skinIdsToResolve = items.values()
-                        .stream()
-                        .map(Item::getDefaultSkin)
-                        .filter(OptionalInt::isPresent)
-                        .mapToInt(OptionalInt::getAsInt)
-                        .distinct()
-                        .sorted()
-                        .toArray();
-                final Map<Integer, Skin> skins = (skinIdsToResolve.length == 0) ? Collections.emptyMap() : GW2APIClient.create()
-                        .endPoint("skins")
-                        .ids(skinIdsToResolve)
-                        .queryArray(Skin.class)
-                        .stream()
-                        .collect(Collectors.toMap(Skin::getId, Function.identity()));
-                // Wrap.
-                final List<CharacterBagWrapper> wrappers = inventoryBags.stream()
-                        .map(bag -> {
-                            CharacterBagWrapper result = null;
-                            if (bag != null) {
-                                final Item bagItem = items.get(bag.getId());
-                                final CharacterInventoryWrapper[] bagContent = bag.getInventory()
-                                        .stream()
-                                        .map(inventory -> {
-                                            CharacterInventoryWrapper wrapper = null;
-                                            if (inventory != null) {
-                                                final Item inventoryItem = items.get(inventory.getId());
-                                                final Skin inventorySkin = (inventoryItem == null || !inventoryItem.getDefaultSkin().isPresent()) ? null : skins.get(inventoryItem.getDefaultSkin().getAsInt());
-                                                wrapper = new CharacterInventoryWrapper(inventory, inventoryItem, inventorySkin);
-                                            }
-                                            return wrapper;
-                                        })
-                                        .toArray(CharacterInventoryWrapper[]::new);
-                                result = new CharacterBagWrapper(bag, bagItem, bagContent);
-                            }
-                            return result;
-                        })
-                        .collect(Collectors.toList());
-                Platform.runLater(() -> inventoryPane.getCharacterInventory().setAll(wrappers));
-            }
+            // Both inventories share the same items and skins, which are only queried once.
+            final QueryPlan plan = QueryPlan.create();
+            final PlanNode<List<SharedInventoryWrapper>> sharedInventory = PanePlans.INSTANCE.sharedInventory(plan, session.getAppKey());
+            final PlanNode<List<CharacterBagWrapper>> characterInventory = PanePlans.INSTANCE.characterInventory(plan, session.getAppKey(), SABTestUtils.INSTANCE.getTestCharacter());
+            final PlanNode<Runnable> update = plan.combine("update", sharedInventory, characterInventory, (sharedWrappers, bagWrappers) -> () -> { // NOI18N.
+                inventoryPane.getSharedInventory().setAll(sharedWrappers);
+                inventoryPane.getCharacterInventory().setAll(bagWrappers);
+            });
+            Platform.runLater(plan.execute(update));
         }
     }
 
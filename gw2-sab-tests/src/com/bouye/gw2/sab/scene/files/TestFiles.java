@@ -23,7 +23,6 @@ import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.HBox;
@@ -52,10 +51,7 @@ public class TestFiles extends Application {
             final FlowPane flowPane = new FlowPane();
             flowPane.getChildren()
                     .setAll(files.stream()
-                            .map(file -> {
-                                final Image image = ImageCache.INSTANCE.getImage(file.getIcon().get().toExternalForm());
-                                return nodeForFile(file.getId(), image);
-                            })
+                            .map(file -> nodeForFile(file.getId(), file.getIcon().get().toExternalForm()))
                             .collect(Collectors.toList()));
             final VBox vbox = new VBox();
             vbox.getChildren().setAll(new Label("Remote"), flowPane);
@@ -67,10 +63,7 @@ public class TestFiles extends Application {
             final FlowPane flowPane = new FlowPane();
             flowPane.getChildren()
                     .setAll(files.stream()
-                            .map(file -> {
-                                final Image image = ImageCache.INSTANCE.getImage(file.getId());
-                                return nodeForFile(file.getId(), image);
-                            })
+                            .map(file -> nodeForFile(file.getId(), file.getId()))
                             .collect(Collectors.toList()));
             final VBox vbox = new VBox();
             vbox.getChildren().setAll(new Label("Local"), flowPane);
@@ -86,9 +79,10 @@ public class TestFiles extends Application {
         primaryStage.show();
     }
 
-    private Node nodeForFile(final String id, final Image image) {
+    private Node nodeForFile(final String id, final String imageUrl) {
         final Label label = new Label(id);
-        final ImageView imageView = new ImageView(image);
+        final ImageView imageView = new ImageView();
+        ImageCache.INSTANCE.loadImage(imageUrl, imageView::setImage);
         final VBox result = new VBox();
         result.setPadding(new Insets(10));
         result.setSpacing(6);
@@ -16,6 +16,9 @@ import com.bouye.gw2.sab.SABConstants;
 import com.bouye.gw2.sab.query.WebQuery;
 import com.bouye.gw2.sab.scene.SABTestUtils;
 import com.bouye.gw2.sab.session.Session;
+import com.bouye.gw2.sab.tasks.plan.PanePlans;
+import com.bouye.gw2.sab.tasks.plan.PlanNode;
+import com.bouye.gw2.sab.tasks.plan.QueryPlan;
 import com.bouye.gw2.sab.wrappers.TreasuryWrapper;
 import java.io.IOException;
 import java.net.URL;
@@ -24,12 +27,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.concurrent.ScheduledService;
@@ -44,7 +45,6 @@ import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import api.web.gw2.mapping.v2.guild.id.treasury.GuildTreasury;
-import api.web.gw2.mapping.v2.guild.id.treasury.GuildTreasuryUpgrade;
 import api.web.gw2.mapping.v2.guild.upgrades.GuildUpgrade;
 
 /**
@@ -140,34 +140,11 @@ public final class TestTreasuryPane extends Application {
                     .collect(Collectors.toMap(GuildDetails::getGuildId, Function.identity()));
             Platform.runLater(() -> requestGuild(guildIds, guildDetails));
             wait();
-            final List<GuildTreasury> guildTreasury = WebQuery.INSTANCE.queryGuildTreasury(session.getAppKey(), selectedGuild.get());
-            final int[] upgradeIds = guildTreasury.stream()
-                    .map(GuildTreasury::getNeededBy)
-                    .map(Set::stream)
-                    .reduce(Stream.empty(), Stream::concat)
-                    .mapToInt(GuildTreasuryUpgrade::getUpgradeId)
-                    .distinct()
-                    .toArray();
-            final Map<Integer, GuildUpgrade> guildUpgrades = WebQuery.INSTANCE.queryGuildUpgrades(upgradeIds)
-                    .stream()
-                    .collect(Collectors.toMap(GuildUpgrade::getId, Function.identity()));
-            final int[] itemIds = guildTreasury.stream()
-                    .mapToInt(GuildTreasury::getItemId)
-                    .toArray();
-            final Map<Integer, Item> items = WebQuery.INSTANCE.queryItems(itemIds)
-                    .stream()
-                    .collect(Collectors.toMap(Item::getId, Function.identity()));
-            // Wrap everything (we still have upgrades & items missing currently so they'll end up being null).
-            result = guildTreasury.stream()
-                    .map(treasury -> {
-                        final Item item = items.get(treasury.getItemId());
-                        final GuildUpgrade[] upgrades = treasury.getNeededBy()
-                                .stream()
-                                .map(treasuryUpgrade -> guildUpgrades.get(treasuryUpgrade.getUpgradeId()))
-                                .toArray(GuildUpgrade[]::new);
-                        return new TreasuryWrapper(treasury, item, upgrades);
-                    })
-                    .collect(Collectors.toList());
+            if (selectedGuild.isPresent()) {
+                final QueryPlan plan = QueryPlan.create();
+                final PlanNode<List<TreasuryWrapper>> treasury = PanePlans.INSTANCE.guildTreasury(plan, session.getAppKey(), selectedGuild.get());
+                result = plan.execute(treasury);
+            }
         }
         return result;
     }
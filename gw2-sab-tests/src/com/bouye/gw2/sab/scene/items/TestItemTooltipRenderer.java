@@ -12,13 +12,15 @@ import api.web.gw2.mapping.core.URLReference;
 import api.web.gw2.mapping.v2.items.Item;
 import com.bouye.gw2.sab.SAB;
 import com.bouye.gw2.sab.SABConstants;
-import com.bouye.gw2.sab.query.GW2APIClient;
+import com.bouye.gw2.sab.query.EntityResolver;
 import com.bouye.gw2.sab.query.ImageCache;
 import com.bouye.gw2.sab.wrappers.ItemWrapper;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,7 +33,6 @@ import javafx.scene.Scene;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.ColumnConstraints;
@@ -127,9 +128,8 @@ public final class TestItemTooltipRenderer extends Application {
             final Item item = wrapper.getItem();
             if (item != null) {
                 final URLReference url = item.getIcon();
-                final Image image = url.isPresent() ? ImageCache.INSTANCE.getImage(url.get().toExternalForm()) : null;
                 final ImageView imageView = new ImageView();
-                imageView.setImage(image);
+                url.ifPresent(value -> ImageCache.INSTANCE.loadImage(value.toExternalForm(), imageView::setImage));
                 GridPane.setConstraints(imageView, 0, index);
                 gridPane.getChildren().add(imageView);
             }
@@ -156,11 +156,10 @@ public final class TestItemTooltipRenderer extends Application {
                     .stream()
                     .mapToInt(Item::getId)
                     .toArray();
-            result = GW2APIClient.create()
-                    .ids(ids)
-                    .endPoint("items") // NOI18N.
-                    .queryArray(Item.class)
-                    .stream()
+            final Map<Integer, Item> items = EntityResolver.ITEMS.loadAll(ids).join();
+            result = IntStream.of(ids)
+                    .mapToObj(items::get)
+                    .filter(Objects::nonNull)
                     .map(item -> new ItemWrapper(item, null))
                     .collect(Collectors.toList());
         }
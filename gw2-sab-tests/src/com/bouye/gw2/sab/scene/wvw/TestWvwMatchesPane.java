@@ -13,12 +13,14 @@ import api.web.gw2.mapping.v2.worlds.WorldRegion;
 import api.web.gw2.mapping.v2.wvw.matches.WvwMatchTeam;
 import com.bouye.gw2.sab.SAB;
 import com.bouye.gw2.sab.SABConstants;
-import com.bouye.gw2.sab.query.WebQuery;
+import com.bouye.gw2.sab.tasks.wvw.matches.WvwMatchPoller;
+import com.bouye.gw2.sab.wrappers.MatchWrapper;
 import com.bouye.gw2.sab.wrappers.MatchesWrapper;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
@@ -70,51 +72,67 @@ public final class TestWvwMatchesPane extends Application {
         });
     }
 
-    private ScheduledService<MatchesWrapper> service;
+    private ScheduledService<?> service;
 
     private void loadTestAsync(final WvwMatchesPane wvwMatchesPane, final WorldRegion region) {
         if (service != null) {
             service.cancel();
             service = null;
         }
-        service = new ScheduledService<MatchesWrapper>() {
+        service = (SABConstants.INSTANCE.isOffline()) ? createLocalService(wvwMatchesPane, region) : createRemoteService(wvwMatchesPane, region);
+        service.setOnFailed(workerStateEvent -> {
+            final Throwable ex = workerStateEvent.getSource().getException();
+            Logger.getLogger(TestWvwMatchesPane.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+        });
+        service.start();
+    }
+
+    /**
+     * Create a service that polls remote matches.
+     * <br>The pane is only updated when a match of the region has changed.
+     * @return A {@code ScheduledService}, never {@code null}.
+     */
+    private ScheduledService<?> createRemoteService(final WvwMatchesPane wvwMatchesPane, final WorldRegion region) {
+        final WvwMatchPoller poller = new WvwMatchPoller();
+        poller.setOnSucceeded(workerStateEvent -> {
+            final List<MatchWrapper> changed = poller.getValue();
+            final boolean regionChanged = changed.stream()
+                    .flatMap(wrapper -> wrapper.getWorlds().stream())
+                    .anyMatch(world -> world != null && world.getRegion() == region);
+            if (regionChanged) {
+                final MatchesWrapper matches = poller.getMatches();
+                wvwMatchesPane.setMatches(matches.filter(match -> {
+                    final World world = matches.getWorlds().get(match.getWorlds().get(WvwMatchTeam.GREEN));
+                    return world != null && world.getRegion() == region;
+                }));
+            }
+        });
+        return poller;
+    }
+
+    /**
+     * Create a service that loads local matches.
+     * @return A {@code ScheduledService}, never {@code null}.
+     */
+    private ScheduledService<?> createLocalService(final WvwMatchesPane wvwMatchesPane, final WorldRegion region) {
+        final ScheduledService<MatchesWrapper> result = new ScheduledService<MatchesWrapper>() {
             @Override
             protected Task<MatchesWrapper> createTask() {
                 return new Task<MatchesWrapper>() {
                     @Override
                     protected MatchesWrapper call() throws Exception {
-                        return (SABConstants.INSTANCE.isOffline()) ? doLocalTest(region) : doRemoteTest(region);
+                        return doLocalTest(region);
                     }
                 };
             }
         };
-        service.setOnSucceeded(workerStateEvent -> {
+        result.setOnSucceeded(workerStateEvent -> {
             final MatchesWrapper wrapper = (MatchesWrapper) workerStateEvent.getSource().getValue();
             wvwMatchesPane.setMatches(wrapper);
         });
-        service.setOnFailed(workerStateEvent -> {
-            final Throwable ex = workerStateEvent.getSource().getException();
-            Logger.getLogger(TestWvwMatchesPane.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
-        });
-        service.setPeriod(Duration.minutes(1));
-        service.setRestartOnFailure(true);
-        service.start();
-    }
-
-    /**
-     * Do a remote test.
-     * @return A {@code MatchesWrapper}, may be {@code null}.
-     */
-    private MatchesWrapper doRemoteTest(final WorldRegion region) {
-        final Map<Integer, World> worldIds = WebQuery.INSTANCE.queryWorlds()
-                .stream()
-                .filter(world -> world.getRegion() == region)
-                .collect(Collectors.toMap(World::getId, Function.identity()));
-        final Map<String, WvwMatch> matchIds = WebQuery.INSTANCE.queryWvwMatches()
-                .stream()
-                .filter(match -> worldIds.containsKey(match.getWorlds().get(WvwMatchTeam.GREEN)))
-                .collect(Collectors.toMap(WvwMatch::getId, Function.identity()));
-        return new MatchesWrapper(matchIds, worldIds);
+        result.setPeriod(Duration.minutes(1));
+        result.setRestartOnFailure(true);
+        return result;
     }
 
     /**
@@ -11,20 +11,18 @@ import api.web.gw2.mapping.core.JsonpContext;
 import api.web.gw2.mapping.v2.worlds.World;
 import com.bouye.gw2.sab.SAB;
 import com.bouye.gw2.sab.SABConstants;
-import com.bouye.gw2.sab.query.WebQuery;
 import com.bouye.gw2.sab.scene.SABTestUtils;
 import com.bouye.gw2.sab.session.Session;
+import com.bouye.gw2.sab.tasks.wvw.matches.WvwMatchPoller;
 import com.bouye.gw2.sab.wrappers.MatchWrapper;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import javafx.application.Application;
 import javafx.concurrent.ScheduledService;
 import javafx.concurrent.Task;
@@ -57,57 +55,53 @@ public final class TestWvwSummaryPane extends Application {
     }
 
     private void loadTestAsync(final WvwSummaryPane wvwSummaryPane) {
-        ScheduledService<MatchWrapper> service = new ScheduledService<MatchWrapper>() {
+        final ScheduledService<?> service = (SABConstants.INSTANCE.isOffline()) ? createLocalService(wvwSummaryPane) : createRemoteService(wvwSummaryPane);
+        service.setOnFailed(workerStateEvent -> {
+            final Throwable ex = workerStateEvent.getSource().getException();
+            Logger.getLogger(TestWvwSummaryPane.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+        });
+        service.start();
+    }
+
+    /**
+     * Create a service that polls the remote match of the test account.
+     * <br>The pane is only updated when the match has changed.
+     * @return A {@code ScheduledService}, never {@code null}.
+     */
+    private ScheduledService<?> createRemoteService(final WvwSummaryPane wvwSummaryPane) {
+        final Session session = SABTestUtils.INSTANCE.getTestSession();
+        final int worldId = session.getAccount().getWorld();
+        final WvwMatchPoller poller = new WvwMatchPoller(worldId);
+        poller.setOnSucceeded(workerStateEvent -> poller.getValue()
+                .stream()
+                .findFirst()
+                .ifPresent(wvwSummaryPane::setMatch));
+        return poller;
+    }
+
+    /**
+     * Create a service that loads the local match.
+     * @return A {@code ScheduledService}, never {@code null}.
+     */
+    private ScheduledService<?> createLocalService(final WvwSummaryPane wvwSummaryPane) {
+        final ScheduledService<MatchWrapper> result = new ScheduledService<MatchWrapper>() {
             @Override
             protected Task<MatchWrapper> createTask() {
                 return new Task<MatchWrapper>() {
                     @Override
                     protected MatchWrapper call() throws Exception {
-                        return (SABConstants.INSTANCE.isOffline()) ? doLocalTest() : doRemoteTest();
+                        return doLocalTest();
                     }
                 };
             }
         };
-        service.setOnSucceeded(workerStateEvent -> {
+        result.setOnSucceeded(workerStateEvent -> {
             final MatchWrapper wrapper = (MatchWrapper) workerStateEvent.getSource().getValue();
             wvwSummaryPane.setMatch(wrapper);
         });
-        service.setOnFailed(workerStateEvent -> {
-            final Throwable ex = workerStateEvent.getSource().getException();
-            Logger.getLogger(TestWvwSummaryPane.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
-        });
-        service.setPeriod(Duration.minutes(5));
-        service.setRestartOnFailure(true);
-        service.start();
-    }
-
-    /**
-     * Do a remote test.
-     * @return A {@code MatchWrapper}, may be {@code null}.
-     */
-    private MatchWrapper doRemoteTest() {
-        final Session session = SABTestUtils.INSTANCE.getTestSession();
-        final int worldId = session.getAccount().getWorld();
-        final Optional<WvwMatch> match = WebQuery.INSTANCE.queryWvwMatch(worldId);
-        int[] worldIds = new int[0];
-        if (match.isPresent()) {
-            // @todo To test.
-            final Stream<Integer> allIds = match.get()
-                    .getAllWorlds()
-                    .values()
-                    .stream()
-                    .map(Set::stream)
-                    .reduce(Stream.empty(), Stream::concat);
-//            Stream<Integer> allIds = Stream.empty();
-//            for (Set<Integer> worlds : match.get().getAllWorlds().values()) {
-//                allIds = Stream.concat(allIds, worlds.stream());
-//            }
-            worldIds = allIds.distinct()
-                    .mapToInt(value -> value)
-                    .toArray();
-        }
-        final List<World> worlds = (worldIds.length == 0) ? Collections.EMPTY_LIST : WebQuery.INSTANCE.queryWorlds(worldIds);
-        return (!match.isPresent()) ? null : new MatchWrapper(match.get(), worlds);
+        result.setPeriod(Duration.minutes(5));
+        result.setRestartOnFailure(true);
+        return result;
     }
 
     /**
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.items.Item;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import org.junit.After;
+import org.junit.Before;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the entity resolver with the web query loaders against a local {@code FixtureServer}.
+ * @author Fabrice Bouyé
+ */
+public class EntityResolverFixtureTest {
+
+    private String defaultBaseUrl;
+
+    public EntityResolverFixtureTest() {
+    }
+
+    @Before
+    public void setUp() {
+        defaultBaseUrl = GW2APIClient.getDefaultBaseUrl();
+    }
+
+    @After
+    public void tearDown() {
+        GW2APIClient.setDefaultBaseUrl(defaultBaseUrl);
+    }
+
+    @Test
+    public void testFailureIsNotCached() throws IOException {
+        System.out.println("testFailureIsNotCached"); // NOI18N.
+        final EntityResolver<Item> resolver = new EntityResolver<>("items", WebQuery.INSTANCE::fetchItems, Item::getId); // NOI18N.
+        // The items endpoint is not served: the request fails with 404.
+        try (final FixtureServer server = FixtureServer.create().start()) {
+            GW2APIClient.setDefaultBaseUrl(server.getBaseUrl());
+            try {
+                resolver.load(3700).join();
+                fail();
+            } catch (CompletionException ex) {
+                // Expected.
+            }
+            assertEquals(1, server.getRequestCount());
+            assertFalse(resolver.getIfPresent(3700).isPresent());
+        }
+        // Once the endpoint is back, the same ids are requested again.
+        try (final FixtureServer server = FixtureServer.create().defaultFixtures().start()) {
+            GW2APIClient.setDefaultBaseUrl(server.getBaseUrl());
+            final Map<Integer, Item> items = resolver.loadAll(3700, 9051, 99999).join();
+            assertEquals(2, items.size());
+            assertEquals(3700, items.get(3700).getId());
+            assertEquals(9051, items.get(9051).getId());
+            assertEquals(1, server.getRequestCount());
+            // Ids missing from a successful response do not exist and are not requested again.
+            assertNull(resolver.load(99999).join());
+            assertEquals(1, server.getRequestCount());
+            assertEquals(2, resolver.getBatchCount());
+        }
+    }
+}
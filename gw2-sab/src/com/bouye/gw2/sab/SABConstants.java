@@ -117,6 +117,210 @@ public enum SABConstants {
         return supportedWebApiLanguages;
     }
 
+    /**
+     * Gets the number of idle connections to the Web API that are kept alive for reuse.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getWebApiConnectionPoolSize() {
+        return getIntSetting("webapi.connection.pool.size", 10); // NOI18N.
+    }
+
+    /**
+     * Gets the maximum number of concurrent connections to the Web API.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getWebApiConnectionsPerHost() {
+        return getIntSetting("webapi.connection.per.host", 10); // NOI18N.
+    }
+
+    /**
+     * Gets the number of requests per second the application may send to the Web API.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getWebApiRateLimit() {
+        return getIntSetting("webapi.rate.limit", 10); // NOI18N.
+    }
+
+    /**
+     * Gets the number of requests the application may send at once to the Web API after an idle period.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getWebApiRateBurst() {
+        return getIntSetting("webapi.rate.burst", 50); // NOI18N.
+    }
+
+    /**
+     * Gets the number of threads that run asynchronous Web API queries.
+     * <br>When virtual threads are used, this is the size of the fallback pool on runtimes that do not support them.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getWebApiAsyncThreads() {
+        return getIntSetting("webapi.async.threads", 8); // NOI18N.
+    }
+
+    /**
+     * Indicates whether asynchronous Web API queries should each run on their own virtual thread when the runtime supports it.
+     * @return {@code True} if the property is verified, {@code false} otherwise.
+     */
+    public boolean isWebApiVirtualThreads() {
+        final String valueStr = settings.getProperty("webapi.async.virtual.threads", "false"); // NOI18N.
+        final boolean result = Boolean.parseBoolean(valueStr.trim());
+        return result;
+    }
+
+    /**
+     * Gets the base URL of the Web API.
+     * <br>Tests may point this to a local server.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    public String getWebApiBaseUrl() {
+        final String valueStr = settings.getProperty("webapi.base.url", "https://api.guildwars2.com"); // NOI18N.
+        return valueStr.trim();
+    }
+
+    /**
+     * Gets the number of times a failed Web API request is sent again before giving up.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getWebApiRetryCount() {
+        int result = 2;
+        final String valueStr = settings.getProperty("webapi.retry.count"); // NOI18N.
+        if (valueStr != null) {
+            try {
+                result = Math.max(0, Integer.parseInt(valueStr.trim()));
+            } catch (NumberFormatException ex) {
+                Logger.getLogger(SABConstants.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the base delay between two attempts of a failed Web API request.
+     * <br>The delay doubles with each retry and is randomized.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWebApiRetryDelay() {
+        return getIntSetting("webapi.retry.delay", 250); // NOI18N.
+    }
+
+    /**
+     * Gets the number of consecutive failed Web API requests that open the circuit breaker of an endpoint.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getWebApiCircuitThreshold() {
+        return getIntSetting("webapi.circuit.threshold", 5); // NOI18N.
+    }
+
+    /**
+     * Gets the time the circuit breaker of an endpoint stays open before a trial request is let through.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWebApiCircuitDelay() {
+        return getIntSetting("webapi.circuit.delay", 30_000); // NOI18N.
+    }
+
+    /**
+     * Gets the time entity resolvers wait to gather ids from several callers before sending a bulk request.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWebApiResolverWindow() {
+        return getIntSetting("webapi.resolver.window", 10); // NOI18N.
+    }
+
+    /**
+     * Gets the time WvW match results are kept in the query cache.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWebApiCacheWvwTtl() {
+        return getIntSetting("webapi.cache.ttl.wvw", 5_000); // NOI18N.
+    }
+
+    /**
+     * Gets the time gem exchange results are kept in the query cache.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWebApiCacheExchangeTtl() {
+        return getIntSetting("webapi.cache.ttl.exchange", 60_000); // NOI18N.
+    }
+
+    /**
+     * Gets the period at which the game build is polled to invalidate cached static data.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWebApiBuildPollPeriod() {
+        return getIntSetting("webapi.build.poll.period", 300_000); // NOI18N.
+    }
+
+    /**
+     * Gets the maximum size of the decoded images kept in the image cache.
+     * @return An {@code int} &gt; 0, in MB.
+     */
+    public int getImageCacheSize() {
+        return getIntSetting("image.cache.size", 64); // NOI18N.
+    }
+
+    /**
+     * Gets the number of threads that download images.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getImageDownloadThreads() {
+        return getIntSetting("image.download.threads", 4); // NOI18N.
+    }
+
+    /**
+     * Gets the number of threads that decode images.
+     * @return An {@code int} &gt; 0.
+     */
+    public int getImageDecodeThreads() {
+        return getIntSetting("image.decode.threads", 2); // NOI18N.
+    }
+
+    /**
+     * Gets the base URL of the render service that serves icons.
+     * <br>Icons of the render service never change and are kept in the local storage.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    public String getRenderServiceUrl() {
+        final String valueStr = settings.getProperty("render.base.url", "https://render.guildwars2.com"); // NOI18N.
+        return valueStr.trim();
+    }
+
+    /**
+     * Gets the period at which WvW scores are polled.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWvwScoresPeriod() {
+        return getIntSetting("wvw.poll.scores.period", 10_000); // NOI18N.
+    }
+
+    /**
+     * Gets the period at which full WvW matches, with their objectives, are polled.
+     * @return An {@code int} &gt; 0, in ms.
+     */
+    public int getWvwObjectivesPeriod() {
+        return getIntSetting("wvw.poll.objectives.period", 60_000); // NOI18N.
+    }
+
+    /**
+     * Gets a strictly positive integer setting.
+     * @param key The key of the setting.
+     * @param defaultValue The value to return if the setting is missing or invalid.
+     * @return An {@code int}.
+     */
+    private int getIntSetting(final String key, final int defaultValue) {
+        int result = defaultValue;
+        final String valueStr = settings.getProperty(key);
+        if (valueStr != null) {
+            try {
+                result = Integer.parseInt(valueStr.trim());
+            } catch (NumberFormatException ex) {
+                Logger.getLogger(SABConstants.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+        return (result > 0) ? result : defaultValue;
+    }
+
     /**
     * Indicates whether the software runs in offline (debug) mode.
     * <br>When in offline mode, no attempt should be made to contact the web API, all tests are local.s
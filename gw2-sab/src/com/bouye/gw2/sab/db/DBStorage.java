@@ -10,6 +10,7 @@ package com.bouye.gw2.sab.db;
 import api.web.gw2.mapping.core.URLReference;
 import api.web.gw2.mapping.v2.worlds.World;
 import com.bouye.gw2.sab.net.IOUtils;
+import com.bouye.gw2.sab.query.GuildSummary;
 import com.bouye.gw2.sab.query.WebQuery;
 import com.bouye.gw2.sab.session.Session;
 import java.io.ByteArrayInputStream;
@@ -26,13 +27,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import javafx.scene.image.Image;
 
 /**
@@ -50,6 +53,7 @@ public enum DBStorage {
     private static final String WORLDS_TABLE = "worlds"; // NOI18N.
     private static final String GUILDS_TABLE = "guilds"; // NOI18N.
     private static final String FILES_TABLE = "files"; // NOI18N.
+    private static final String ICONS_TABLE = "icons"; // NOI18N.
     //
     private Connection connection;
 
@@ -59,6 +63,16 @@ public enum DBStorage {
     private DBStorage() {
     }
 
+    /**
+     * Gets the local storage folder of the application.
+     * <br>The folder may not exist yet.
+     * @return A {@code File} instance, never {@code null}.
+     */
+    public File getStorageFolder() {
+        final String dpPath = String.format("%s/%s", System.getProperty("user.home"), STORAGE_FOLDER); // NOI18N.
+        return new File(dpPath);
+    }
+
     /**
      * Initializes the DB storage.
      */
@@ -66,8 +80,7 @@ public enum DBStorage {
         try {
             Class.forName("org.sqlite.JDBC"); // NOI18N.
             // Create the connection to the DB.
-            final String dpPath = String.format("%s/%s", System.getProperty("user.home"), STORAGE_FOLDER); // NOI18N.
-            final File dbDir = new File(dpPath);
+            final File dbDir = getStorageFolder();
             if (!dbDir.exists() && !dbDir.mkdirs()) {
                 throw new IOException("Could not create DB storage folder.");
             }
@@ -81,11 +94,14 @@ public enum DBStorage {
             simpleUpdate(String.format("create table if not exists %s (id integer primary key, app_key string not null, account_name string)", APP_KEYS_TABLE)); // NOI18N.
             // Drop cache tables.
             simpleUpdate(String.format("drop table if exists %s", WORLDS_TABLE)); // NOI18N.
-            simpleUpdate(String.format("drop table if exists %s", GUILDS_TABLE)); // NOI18N.
             simpleUpdate(String.format("drop table if exists %s", FILES_TABLE)); // NOI18N.
             // Re-create cache tables.
             simpleUpdate(String.format("create table if not exists %s (id integer primary key, value blob not null)", WORLDS_TABLE)); // NOI18N.
             simpleUpdate(String.format("create table if not exists %s (id string primary key, value blob not null)", FILES_TABLE)); // NOI18N.
+            // Guild names and tags are kept between sessions.
+            simpleUpdate(String.format("create table if not exists %s (id string primary key, name string not null, tag string not null, timestamp integer not null)", GUILDS_TABLE)); // NOI18N.
+            // Icons of the render service never change and are kept between sessions.
+            simpleUpdate(String.format("create table if not exists %s (url string primary key, value blob not null)", ICONS_TABLE)); // NOI18N.
             updateWorldList();
             updateImageCache();
             // Populate cache tables that can be populated.
@@ -111,23 +127,44 @@ public enum DBStorage {
      * @throws SQLException In case of SQL error.
      */
     private void updateImageCache() throws SQLException {
-        final Collection<api.web.gw2.mapping.v2.files.File> files = WebQuery.INSTANCE.queryFiles();
-        for (final api.web.gw2.mapping.v2.files.File file : files) {
-            final String id = file.getId();
-            final URLReference iconURL = file.getIcon();
-            if (iconURL.isPresent()) {
-                try (final InputStream input = iconURL.get().openStream();
-                        final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-                    IOUtils.INSTANCE.copy(input, output);
-                    final byte[] data = output.toByteArray();
-                    final String sql = String.format("insert or replace into %s (id, value) values (\"%s\", ?)", FILES_TABLE, id); // NOI18N.
-                    final PreparedStatement preparedStatement = connection.prepareStatement(sql);
-                    preparedStatement.setObject(1, data);
-                    preparedStatement.executeUpdate();
-                    // May happen when download fails (ie: bad connexion, missing image, etc.).
-                } catch (IOException ex) {
-                    Logger.getLogger(DBStorage.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        // Files are processed as they are decoded instead of loading the whole list first.
+        try (final Stream<api.web.gw2.mapping.v2.files.File> files = WebQuery.INSTANCE.streamFiles()) {
+            final Iterator<api.web.gw2.mapping.v2.files.File> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                final api.web.gw2.mapping.v2.files.File file = iterator.next();
+                updateImageCache(file);
+            }
+        } catch (RuntimeException ex) {
+            Logger.getLogger(DBStorage.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Store a file served by the API into a local storage.
+     * @param file The file.
+     * @throws SQLException In case of SQL error.
+     */
+    private void updateImageCache(final api.web.gw2.mapping.v2.files.File file) throws SQLException {
+        final String id = file.getId();
+        final URLReference iconURL = file.getIcon();
+        if (iconURL.isPresent()) {
+            final String url = iconURL.get().toExternalForm();
+            // Icons downloaded in a previous session are not downloaded again.
+            final Optional<byte[]> stored = getIcon(url);
+            try (final InputStream input = stored.isPresent() ? new ByteArrayInputStream(stored.get()) : iconURL.get().openStream();
+                    final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+                IOUtils.INSTANCE.copy(input, output);
+                final byte[] data = output.toByteArray();
+                if (!stored.isPresent()) {
+                    putIcon(url, data);
                 }
+                final String sql = String.format("insert or replace into %s (id, value) values (\"%s\", ?)", FILES_TABLE, id); // NOI18N.
+                final PreparedStatement preparedStatement = connection.prepareStatement(sql);
+                preparedStatement.setObject(1, data);
+                preparedStatement.executeUpdate();
+                // May happen when download fails (ie: bad connexion, missing image, etc.).
+            } catch (IOException ex) {
+                Logger.getLogger(DBStorage.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
             }
         }
     }
@@ -158,6 +195,97 @@ public enum DBStorage {
         return result;
     }
 
+    /**
+     * Gets an icon of the render service from the local cache.
+     * @param url The URL of the icon.
+     * @return An {@code Optional<byte[]>} instance, never {@code null}.
+     * <br>Contains the undecoded data of the icon.
+     */
+    public Optional<byte[]> getIcon(final String url) {
+        Optional<byte[]> result = Optional.empty();
+        if (connection != null && url != null) {
+            final String sql = String.format("select value from %s where url=?", ICONS_TABLE); // NOI18N.
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setString(1, url);
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        result = Optional.ofNullable(resultSet.getBytes(1));
+                    }
+                }
+            } catch (SQLException ex) {
+                Logger.getLogger(DBStorage.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores an icon of the render service into the local cache.
+     * @param url The URL of the icon.
+     * @param data The undecoded data of the icon.
+     * @throws NullPointerException If {@code url} or {@code data} is {@code null}.
+     */
+    public void putIcon(final String url, final byte[] data) throws NullPointerException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(data);
+        if (connection != null) {
+            final String sql = String.format("insert or replace into %s (url, value) values (?, ?)", ICONS_TABLE); // NOI18N.
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setString(1, url);
+                preparedStatement.setBytes(2, data);
+                preparedStatement.executeUpdate();
+            } catch (SQLException ex) {
+                Logger.getLogger(DBStorage.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Gets a guild from the local cache.
+     * @param id The id of the guild.
+     * @param minTimestamp Guilds stored before this time are ignored, in ms since the epoch.
+     * @return An {@code Optional<GuildSummary>} instance, never {@code null}.
+     */
+    public Optional<GuildSummary> getGuild(final String id, final long minTimestamp) {
+        Optional<GuildSummary> result = Optional.empty();
+        if (connection != null && id != null) {
+            final String sql = String.format("select name, tag from %s where id=? and timestamp>=?", GUILDS_TABLE); // NOI18N.
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setString(1, id);
+                preparedStatement.setLong(2, minTimestamp);
+                try (final ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        result = Optional.of(new GuildSummary(id, resultSet.getString(1), resultSet.getString(2)));
+                    }
+                }
+            } catch (SQLException ex) {
+                Logger.getLogger(DBStorage.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores a guild into the local cache.
+     * @param guild The guild.
+     * @throws NullPointerException If {@code guild} is {@code null}.
+     */
+    public void putGuild(final GuildSummary guild) throws NullPointerException {
+        Objects.requireNonNull(guild);
+        if (connection != null) {
+            final String sql = String.format("insert or replace into %s (id, name, tag, timestamp) values (?, ?, ?, ?)", GUILDS_TABLE); // NOI18N.
+            try (final PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setString(1, guild.getId());
+                preparedStatement.setString(2, guild.getName());
+                preparedStatement.setString(3, guild.getTag());
+                preparedStatement.setLong(4, System.currentTimeMillis());
+                preparedStatement.executeUpdate();
+            } catch (SQLException ex) {
+                Logger.getLogger(DBStorage.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }
+    }
+
     private <T extends Serializable> byte[] serialize(final T value) throws IOException {
         Objects.requireNonNull(value);
         try (final ByteArrayOutputStream out = new ByteArrayOutputStream();
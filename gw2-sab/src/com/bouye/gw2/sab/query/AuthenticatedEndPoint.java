@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.tokeninfo.TokenInfoPermission;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Endpoints of the Web API that need an application key, along with the permissions they require.
+ * @author Fabrice Bouyé
+ */
+public enum AuthenticatedEndPoint {
+    ACCOUNT_INVENTORY("account/inventory", false, TokenInfoPermission.ACCOUNT, TokenInfoPermission.INVENTORIES), // NOI18N.
+    ACCOUNT_WALLET("account/wallet", false, TokenInfoPermission.ACCOUNT, TokenInfoPermission.WALLET), // NOI18N.
+    CHARACTERS("characters", false, TokenInfoPermission.ACCOUNT, TokenInfoPermission.CHARACTERS), // NOI18N.
+    CHARACTER_EQUIPMENT("characters/:id/equipment", false, TokenInfoPermission.ACCOUNT, TokenInfoPermission.CHARACTERS, TokenInfoPermission.BUILDS), // NOI18N.
+    GUILD_LOG("guild/:id/log", true, TokenInfoPermission.GUILDS), // NOI18N.
+    GUILD_MEMBERS("guild/:id/members", true, TokenInfoPermission.GUILDS), // NOI18N.
+    GUILD_TREASURY("guild/:id/treasury", true, TokenInfoPermission.GUILDS), // NOI18N.
+    PVP_STATS("pvp/stats", false, TokenInfoPermission.ACCOUNT, TokenInfoPermission.PVP); // NOI18N.
+
+    private final String path;
+    private final boolean guildLeaderOnly;
+    private final Set<TokenInfoPermission> permissions;
+
+    /**
+     * Creates a new instance.
+     * @param path The path of the endpoint.
+     * @param guildLeaderOnly {@code True} if the account must be the leader of the guild.
+     * @param permissions The permissions required.
+     */
+    private AuthenticatedEndPoint(final String path, final boolean guildLeaderOnly, final TokenInfoPermission... permissions) {
+        this.path = path;
+        this.guildLeaderOnly = guildLeaderOnly;
+        this.permissions = Collections.unmodifiableSet(EnumSet.copyOf(Arrays.asList(permissions)));
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Indicates whether the account must be the leader of the guild being queried.
+     * @return A {@code boolean}.
+     */
+    public boolean isGuildLeaderOnly() {
+        return guildLeaderOnly;
+    }
+
+    /**
+     * Gets the permissions the application key must have.
+     * @return A non-modifiable {@code Set<TokenInfoPermission>} instance, never {@code null}.
+     */
+    public Set<TokenInfoPermission> getPermissions() {
+        return permissions;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Applies a blocking function on several sources concurrently, with a bounded number of workers.
+ * @author Fabrice Bouyé
+ */
+final class BoundedFanOut {
+
+    /**
+     * Hidden constructor.
+     */
+    private BoundedFanOut() {
+    }
+
+    /**
+     * Applies a function on all sources, with at most {@code parallelism} concurrent invocations.
+     * <br>This method blocks until all invocations return or one of them fails.
+     * <br>Once an invocation fails, no new invocation is started.
+     * @param <S> The type of the sources.
+     * @param <R> The type of the results.
+     * @param sources The sources.
+     * @param parallelism The maximum number of concurrent invocations.
+     * @param executor The executor that runs the invocations.
+     * @param function The function to apply.
+     * @return A non-modifiable {@code List<R>} instance, never {@code null}.
+     * <br>Results are in the same order as their sources.
+     * @throws NullPointerException If {@code sources}, {@code executor} or {@code function} is {@code null}.
+     * @throws IllegalArgumentException If {@code parallelism} is lower than 1.
+     * @throws RuntimeException If an invocation failed.
+     */
+    public static <S, R> List<R> map(final List<S> sources, final int parallelism, final Executor executor, final Function<S, R> function) throws NullPointerException, IllegalArgumentException, RuntimeException {
+        Objects.requireNonNull(sources);
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(function);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        final int size = sources.size();
+        final List<R> results = new ArrayList<>(Collections.nCopies(size, null));
+        final AtomicInteger next = new AtomicInteger();
+        final int workers = Math.min(parallelism, size);
+        final CompletableFuture<?>[] futures = new CompletableFuture[workers];
+        for (int worker = 0; worker < workers; worker++) {
+            futures[worker] = CompletableFuture.runAsync(() -> {
+                for (int index = next.getAndIncrement(); index < size; index = next.getAndIncrement()) {
+                    try {
+                        final R result = function.apply(sources.get(index));
+                        synchronized (results) {
+                            results.set(index, result);
+                        }
+                    } catch (RuntimeException ex) {
+                        // Prevent other workers from picking up new sources.
+                        next.set(size);
+                        throw ex;
+                    }
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : ex;
+        }
+        synchronized (results) {
+            return Collections.unmodifiableList(new ArrayList<>(results));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Spliterator that walks through several streams one after the other, opening the next stream only once the current one has ended.
+ * <br>Unlike {@code Stream.flatMap()} on Java 8, values are pulled one at a time from the current stream even when consumed through {@code iterator()} or a short-circuiting operation, so a chunk that is never reached is never requested.
+ * <br>Each stream is closed once it has ended or when this spliterator is closed.
+ * @param <S> The type of the sources.
+ * @param <T> The type of the values.
+ * @author Fabrice Bouyé
+ */
+final class ChainedSpliterator<S, T> implements Spliterator<T> {
+
+    /**
+     * Sources of the streams, in order.
+     */
+    private final Iterator<S> sources;
+    /**
+     * Opens the stream of a source.
+     */
+    private final Function<S, Stream<T>> opener;
+    /**
+     * The stream being consumed, {@code null} between two streams.
+     */
+    private Stream<T> current;
+    /**
+     * Spliterator of the stream being consumed.
+     */
+    private Spliterator<T> currentSpliterator;
+    /**
+     * {@code True} once the spliterator has been closed.
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new instance.
+     * @param sources Sources of the streams, in order.
+     * @param opener Opens the stream of a source.
+     * @throws NullPointerException If {@code sources} or {@code opener} is {@code null}.
+     */
+    ChainedSpliterator(final Iterator<S> sources, final Function<S, Stream<T>> opener) throws NullPointerException {
+        Objects.requireNonNull(sources);
+        Objects.requireNonNull(opener);
+        this.sources = sources;
+        this.opener = opener;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        while (!closed) {
+            if (current == null) {
+                if (!sources.hasNext()) {
+                    return false;
+                }
+                current = opener.apply(sources.next());
+                currentSpliterator = current.spliterator();
+            }
+            if (currentSpliterator.tryAdvance(action)) {
+                return true;
+            }
+            closeCurrent();
+        }
+        return false;
+    }
+
+    /**
+     * Closes the stream being consumed, if any.
+     */
+    private void closeCurrent() {
+        if (current != null) {
+            try {
+                current.close();
+            } finally {
+                current = null;
+                currentSpliterator = null;
+            }
+        }
+    }
+
+    /**
+     * Closes the stream being consumed; streams of the remaining sources are never opened.
+     */
+    void close() {
+        closed = true;
+        closeCurrent();
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // Streams are opened one after the other.
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.Objects;
+
+/**
+ * Circuit breaker of a single endpoint.
+ * <br>After a number of consecutive failed requests, the breaker opens and requests to the endpoint fail immediately without reaching the network.
+ * <br>Once the open delay expires, a single trial request is let through: the breaker closes again if it succeeds and reopens if it fails.
+ * @author Fabrice Bouyé
+ */
+public final class CircuitBreaker {
+
+    /**
+     * States of a circuit breaker.
+     * @author Fabrice Bouyé
+     */
+    public enum State {
+        /**
+         * Requests go through.
+         */
+        CLOSED,
+        /**
+         * Requests fail immediately.
+         */
+        OPEN,
+        /**
+         * A single trial request goes through, other requests fail immediately.
+         */
+        HALF_OPEN;
+    }
+
+    private final String endPoint;
+    /**
+     * Number of consecutive failures that open the breaker.
+     */
+    private final int failureThreshold;
+    /**
+     * Time the breaker stays open before a trial request is let through, in ms.
+     */
+    private final long openDelay;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    /**
+     * Time at which a trial request may be sent, in ms since the epoch.
+     */
+    private long retryAt;
+
+    /**
+     * Creates a new instance.
+     * @param endPoint The endpoint.
+     * @param failureThreshold The number of consecutive failures that open the breaker.
+     * @param openDelay The time the breaker stays open, in ms.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     * @throws IllegalArgumentException If {@code failureThreshold} is lower than 1 or if {@code openDelay} is negative.
+     */
+    CircuitBreaker(final String endPoint, final int failureThreshold, final long openDelay) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(endPoint);
+        if (failureThreshold < 1 || openDelay < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.endPoint = endPoint;
+        this.failureThreshold = failureThreshold;
+        this.openDelay = openDelay;
+    }
+
+    /**
+     * Indicates whether a request may be sent.
+     * <br>When the open delay has expired, the first caller is let through as the trial request.
+     * @return {@code True} if the request may be sent, {@code false} if it should fail immediately.
+     */
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (System.currentTimeMillis() >= retryAt) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            case HALF_OPEN:
+                return false;
+            case CLOSED:
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Reports a successful request.
+     */
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Reports a failed request.
+     */
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            retryAt = System.currentTimeMillis() + openDelay;
+        }
+    }
+
+    /**
+     * Reports a trial request that was abandoned before it could succeed or fail.
+     * <br>The breaker goes back to open and lets the next caller through as the trial request.
+     */
+    synchronized void cancelTrial() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            retryAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Closes the breaker.
+     */
+    synchronized void reset() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public String getEndPoint() {
+        return endPoint;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Gets the time after which a trial request may be sent.
+     * @return A {@code long}, in ms since the epoch; meaningless unless the breaker is open.
+     */
+    public synchronized long getRetryAt() {
+        return retryAt;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.bouye.gw2.sab.SABConstants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breakers of all endpoints.
+ * <br>Endpoints are identified by their template, ie: {@code /v2/wvw/matches} or {@code /v2/characters/:id/equipment}, so all characters or guilds share the breaker of their endpoint.
+ * <br>Panes may check the state of an endpoint to keep showing the data they already have instead of polling an endpoint that is failing.
+ * @author Fabrice Bouyé
+ */
+public enum CircuitBreakers {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the breaker of an endpoint, creating it if needed.
+     * @param endPoint The template of the endpoint.
+     * @return A {@code CircuitBreaker} instance, never {@code null}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    CircuitBreaker get(final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        return breakers.computeIfAbsent(endPoint, key -> new CircuitBreaker(key, SABConstants.INSTANCE.getWebApiCircuitThreshold(), SABConstants.INSTANCE.getWebApiCircuitDelay()));
+    }
+
+    /**
+     * Gets the state of an endpoint.
+     * @param endPoint The template of the endpoint.
+     * @return A {@code CircuitBreaker.State} instance, never {@code null}.
+     * <br>Endpoints that were never queried are {@code CLOSED}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    public CircuitBreaker.State getState(final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        final CircuitBreaker breaker = breakers.get(endPoint);
+        return (breaker == null) ? CircuitBreaker.State.CLOSED : breaker.getState();
+    }
+
+    /**
+     * Gets all breakers that are not closed.
+     * @return A non-modifiable {@code List<CircuitBreaker>} instance, never {@code null}.
+     */
+    public List<CircuitBreaker> getOpenBreakers() {
+        final List<CircuitBreaker> result = new ArrayList<>();
+        breakers.values()
+                .stream()
+                .filter(breaker -> breaker.getState() != CircuitBreaker.State.CLOSED)
+                .forEach(result::add);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Closes all breakers.
+     */
+    public void reset() {
+        breakers.values().forEach(CircuitBreaker::reset);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is not sent because the circuit breaker of its endpoint is open.
+ * @author Fabrice Bouyé
+ */
+public final class CircuitOpenException extends IOException {
+
+    private final String endPoint;
+
+    /**
+     * Creates a new instance.
+     * @param endPoint The path of the endpoint.
+     */
+    public CircuitOpenException(final String endPoint) {
+        super(String.format("Endpoint %s is unavailable.", endPoint)); // NOI18N.
+        this.endPoint = endPoint;
+    }
+
+    public String getEndPoint() {
+        return endPoint;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes a 64-bit FNV-1a hash of the content of a response while it is being read.
+ * <br>This hash is used to detect changes between two responses; it is not a cryptographic hash.
+ * <br>Instances are not thread-safe.
+ * @author Fabrice Bouyé
+ */
+final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long value = OFFSET_BASIS;
+
+    /**
+     * Computes the hash of a string from its UTF-8 bytes, so it matches the hash of the same content read from a response.
+     * @param content The content.
+     * @return A {@code long}.
+     * @throws NullPointerException If {@code content} is {@code null}.
+     */
+    static long of(final String content) throws NullPointerException {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final ContentHash hash = new ContentHash();
+        hash.update(bytes, 0, bytes.length);
+        return hash.getValue();
+    }
+
+    /**
+     * Adds a byte to the hash.
+     * @param b The byte.
+     */
+    void update(final int b) {
+        value = (value ^ (b & 0xFF)) * PRIME;
+    }
+
+    /**
+     * Adds bytes to the hash.
+     * @param bytes The bytes.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes.
+     */
+    void update(final byte[] bytes, final int offset, final int length) {
+        long h = value;
+        for (int index = offset; index < offset + length; index++) {
+            h = (h ^ (bytes[index] & 0xFF)) * PRIME;
+        }
+        value = h;
+    }
+
+    /**
+     * Gets the hash of the content read so far.
+     * @return A {@code long}.
+     */
+    long getValue() {
+        return value;
+    }
+
+    /**
+     * Wraps a response so that its body is hashed while being read.
+     * <br>Closing the returned response drains and closes the source response, so the hash covers the whole body once it is closed.
+     * @param response The source response.
+     * @return A {@code GW2APIResponse} instance, never {@code null}.
+     */
+    GW2APIResponse wrap(final GW2APIResponse response) {
+        return new GW2APIResponse(response.getURL(), response.getStatusCode(), response.getHeaders(), new HashingInputStream(response.getBody()), null);
+    }
+
+    /**
+     * Hashes the bytes that go through it.
+     */
+    private final class HashingInputStream extends FilterInputStream {
+
+        HashingInputStream(final InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = in.read();
+            if (result != -1) {
+                update(result);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            final int result = in.read(bytes, offset, length);
+            if (result > 0) {
+                update(bytes, offset, result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            // Skipped bytes must be hashed too.
+            final byte[] buffer = new byte[(int) Math.min(n, 4096)];
+            long result = 0;
+            while (result < n) {
+                final int read = read(buffer, 0, (int) Math.min(buffer.length, n - result));
+                if (read == -1) {
+                    break;
+                }
+                result += read;
+            }
+            return result;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(final int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported"); // NOI18N.
+        }
+    }
+}
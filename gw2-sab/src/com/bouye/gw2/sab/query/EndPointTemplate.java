@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.net.URL;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the path of a request into the template of its endpoint, ie: {@code /v2/characters/My%20Character/equipment} becomes {@code /v2/characters/:id/equipment}.
+ * <br>Templates are used to aggregate metrics and circuit breakers per endpoint; they never contain account data such as character names or guild ids.
+ * @author Fabrice Bouyé
+ */
+final class EndPointTemplate {
+
+    /**
+     * Replaces ids in templates, as in {@link AuthenticatedEndPoint}.
+     */
+    private static final String ID = ":id"; // NOI18N.
+    /**
+     * Segments that are ids: numbers, WvW match ids (ie: {@code 1-2}) and guild ids.
+     */
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d[\\d-]*|\\p{XDigit}{8}(-\\p{XDigit}{4}){3}-\\p{XDigit}{12}"); // NOI18N.
+    /**
+     * Segment that is followed by a character name.
+     */
+    private static final String CHARACTERS = "characters"; // NOI18N.
+
+    /**
+     * Hidden constructor.
+     */
+    private EndPointTemplate() {
+    }
+
+    /**
+     * Gets the template of the endpoint of a request.
+     * @param url The URL of the request.
+     * @return A {@code String} instance, never {@code null}.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    static String of(final URL url) throws NullPointerException {
+        return of(url.getPath());
+    }
+
+    /**
+     * Gets the template of the endpoint of a path.
+     * @param path The path, ie: {@code /v2/guild/116E0C0E-0035-44A9-BB22-4AE3E23127E5/log}.
+     * @return A {@code String} instance, never {@code null}.
+     * @throws NullPointerException If {@code path} is {@code null}.
+     */
+    static String of(final String path) throws NullPointerException {
+        Objects.requireNonNull(path);
+        final String[] segments = path.split("/", -1); // NOI18N.
+        for (int index = 0; index < segments.length; index++) {
+            final boolean isName = index > 0 && CHARACTERS.equals(segments[index - 1]);
+            if (!segments[index].isEmpty() && (isName || ID_PATTERN.matcher(segments[index]).matches())) {
+                segments[index] = ID;
+            }
+        }
+        return String.join("/", segments); // NOI18N.
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of an endpoint.
+ * <br>Endpoints are identified by the path of their URL, ie: {@code /v2/account}.
+ * @author Fabrice Bouyé
+ */
+public final class EndpointMetrics implements EndpointMetricsMBean {
+
+    private final String endPoint;
+    /**
+     * Time spent opening the connection.
+     */
+    private final LatencyHistogram connect = new LatencyHistogram();
+    /**
+     * Time until the status and headers of the response are received.
+     */
+    private final LatencyHistogram firstByte = new LatencyHistogram();
+    /**
+     * Time spent decoding the response.
+     */
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    /**
+     * Number of queries rejected by the circuit breaker.
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder payloadCount = new LongAdder();
+    /**
+     * Bytes received on the wire, before decompression.
+     */
+    private final LongAdder bytesReceived = new LongAdder();
+    private final AtomicLong maxPayloadSize = new AtomicLong();
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder cacheMissCount = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     * @param endPoint The path of the endpoint.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    EndpointMetrics(final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        this.endPoint = endPoint;
+    }
+
+    void recordRequest(final long firstByteNanos) {
+        requestCount.increment();
+        firstByte.record(firstByteNanos);
+    }
+
+    void recordConnect(final long nanos) {
+        connect.record(nanos);
+    }
+
+    void recordPayload(final long size) {
+        payloadCount.increment();
+        bytesReceived.add(size);
+        long current = maxPayloadSize.get();
+        while (size > current && !maxPayloadSize.compareAndSet(current, size)) {
+            current = maxPayloadSize.get();
+        }
+    }
+
+    void recordParse(final long nanos) {
+        parse.record(nanos);
+    }
+
+    void recordError() {
+        errorCount.increment();
+    }
+
+    void recordRetry() {
+        retryCount.increment();
+    }
+
+    void recordRejected() {
+        rejectedCount.increment();
+    }
+
+    void recordCache(final boolean hit) {
+        if (hit) {
+            cacheHitCount.increment();
+        } else {
+            cacheMissCount.increment();
+        }
+    }
+
+    public LatencyHistogram getConnect() {
+        return connect;
+    }
+
+    public LatencyHistogram getFirstByte() {
+        return firstByte;
+    }
+
+    public LatencyHistogram getParse() {
+        return parse;
+    }
+
+    @Override
+    public String getEndPoint() {
+        return endPoint;
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public double getMeanPayloadSize() {
+        final long n = payloadCount.sum();
+        return (n == 0) ? 0 : bytesReceived.sum() / (double) n;
+    }
+
+    @Override
+    public long getMaxPayloadSize() {
+        return maxPayloadSize.get();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHitCount.sum();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheMissCount.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        final long hits = cacheHitCount.sum();
+        final long total = hits + cacheMissCount.sum();
+        return (total == 0) ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public double getConnectMean() {
+        return connect.getMean();
+    }
+
+    @Override
+    public double getConnectP50() {
+        return connect.getPercentile(50);
+    }
+
+    @Override
+    public double getConnectP99() {
+        return connect.getPercentile(99);
+    }
+
+    @Override
+    public double getFirstByteMean() {
+        return firstByte.getMean();
+    }
+
+    @Override
+    public double getFirstByteP50() {
+        return firstByte.getPercentile(50);
+    }
+
+    @Override
+    public double getFirstByteP99() {
+        return firstByte.getPercentile(99);
+    }
+
+    @Override
+    public double getFirstByteMax() {
+        return firstByte.getMax();
+    }
+
+    @Override
+    public double getParseMean() {
+        return parse.getMean();
+    }
+
+    @Override
+    public double getParseP50() {
+        return parse.getPercentile(50);
+    }
+
+    @Override
+    public double getParseP99() {
+        return parse.getPercentile(99);
+    }
+
+    @Override
+    public void reset() {
+        connect.reset();
+        firstByte.reset();
+        parse.reset();
+        requestCount.reset();
+        errorCount.reset();
+        retryCount.reset();
+        rejectedCount.reset();
+        payloadCount.reset();
+        bytesReceived.reset();
+        maxPayloadSize.set(0);
+        cacheHitCount.reset();
+        cacheMissCount.reset();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+/**
+ * Management interface of the metrics of an endpoint.
+ * <br>Durations are in ms, sizes in bytes.
+ * @author Fabrice Bouyé
+ */
+public interface EndpointMetricsMBean {
+
+    String getEndPoint();
+
+    long getRequestCount();
+
+    long getErrorCount();
+
+    long getRetryCount();
+
+    long getRejectedCount();
+
+    long getBytesReceived();
+
+    double getMeanPayloadSize();
+
+    long getMaxPayloadSize();
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    /**
+     * Gets the ratio of conditional requests answered with {@code 304 Not Modified}.
+     * @return A {@code double} in [0, 1].
+     */
+    double getCacheHitRatio();
+
+    double getConnectMean();
+
+    double getConnectP50();
+
+    double getConnectP99();
+
+    double getFirstByteMean();
+
+    double getFirstByteP50();
+
+    double getFirstByteP99();
+
+    double getFirstByteMax();
+
+    double getParseMean();
+
+    double getParseP50();
+
+    double getParseP99();
+
+    /**
+     * Clears all metrics of this endpoint.
+     */
+    void reset();
+}
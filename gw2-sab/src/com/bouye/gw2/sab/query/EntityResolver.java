@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.currencies.Currency;
+import api.web.gw2.mapping.v2.items.Item;
+import api.web.gw2.mapping.v2.skins.Skin;
+import api.web.gw2.mapping.v2.worlds.World;
+import com.bouye.gw2.sab.SABConstants;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves entities from their ids on behalf of many callers.
+ * <br>Ids requested within a short time window are gathered and sent as a single bulk request (split in chunks by {@code GW2APIClient}); every caller receives a future completed by that request.
+ * <br>Resolved entities are kept in memory for the session, so an entity is only fetched once whatever the number of panes that need it.
+ * @param <T> The type of the entities.
+ * @author Fabrice Bouyé
+ */
+public final class EntityResolver<T> {
+
+    /**
+     * Resolves items.
+     */
+    public static final EntityResolver<Item> ITEMS = new EntityResolver<>("items", WebQuery.INSTANCE::fetchItems, Item::getId); // NOI18N.
+    /**
+     * Resolves skins.
+     */
+    public static final EntityResolver<Skin> SKINS = new EntityResolver<>("skins", WebQuery.INSTANCE::fetchSkins, Skin::getId); // NOI18N.
+    /**
+     * Resolves currencies.
+     */
+    public static final EntityResolver<Currency> CURRENCIES = new EntityResolver<>("currencies", WebQuery.INSTANCE::fetchCurrencies, Currency::getId); // NOI18N.
+    /**
+     * Resolves worlds.
+     */
+    public static final EntityResolver<World> WORLDS = new EntityResolver<>("worlds", WebQuery.INSTANCE::fetchWorlds, World::getId); // NOI18N.
+
+    /**
+     * Fires the batches of all resolvers once their window has elapsed.
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "EntityResolver-timer"); // NOI18N.
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Sends the batches.
+     * <br>Callers may block on resolved entities from the default query executor, so batches must not wait in line behind them on that executor.
+     */
+    private static final ExecutorService BATCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "EntityResolver-batch"); // NOI18N.
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    /**
+     * Loads entities in bulk.
+     */
+    private final Function<int[], List<T>> loader;
+    /**
+     * Gets the id of an entity.
+     */
+    private final ToIntFunction<T> idExtractor;
+    /**
+     * Future of every id requested so far; futures of entities being loaded are not completed yet.
+     */
+    private final Map<Integer, CompletableFuture<T>> entities = new ConcurrentHashMap<>();
+    /**
+     * Ids waiting for the next batch.
+     */
+    private final ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * {@code True} while a batch is scheduled.
+     */
+    private final AtomicBoolean batchScheduled = new AtomicBoolean(false);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     * @param name The name of this resolver, used in logs.
+     * @param loader Loads entities in bulk; unknown ids are simply missing from the result.
+     * <br>The loader must throw when the request fails: an empty result means that none of the entities exist and is kept for the whole session.
+     * @param idExtractor Gets the id of an entity.
+     * @throws NullPointerException If {@code name}, {@code loader} or {@code idExtractor} is {@code null}.
+     */
+    public EntityResolver(final String name, final Function<int[], List<T>> loader, final ToIntFunction<T> idExtractor) throws NullPointerException {
+        this.name = Objects.requireNonNull(name);
+        this.loader = Objects.requireNonNull(loader);
+        this.idExtractor = Objects.requireNonNull(idExtractor);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolves an entity.
+     * @param id The id of the entity.
+     * @return A {@code CompletableFuture<T>} instance, never {@code null}.
+     * <br>The future completes with {@code null} if the entity does not exist, or exceptionally if the bulk request failed.
+     */
+    public CompletableFuture<T> load(final int id) {
+        requestCount.incrementAndGet();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final CompletableFuture<T> existing = entities.putIfAbsent(id, future);
+        if (existing != null) {
+            hitCount.incrementAndGet();
+            return existing;
+        }
+        pending.add(id);
+        if (batchScheduled.compareAndSet(false, true)) {
+            TIMER.schedule(this::dispatch, SABConstants.INSTANCE.getWebApiResolverWindow(), TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Resolves several entities.
+     * @param ids The ids of the entities.
+     * @return A {@code CompletableFuture<Map<Integer, T>>} instance, never {@code null}.
+     * <br>The resulting map is not modifiable and does not contain entities that do not exist or could not be loaded.
+     */
+    public CompletableFuture<Map<Integer, T>> loadAll(final int... ids) {
+        final Map<Integer, CompletableFuture<T>> futures = new HashMap<>();
+        for (final int id : ids) {
+            futures.computeIfAbsent(id, this::load);
+        }
+        // Failures are already logged; a failed entity is simply missing from the result.
+        final Map<Integer, CompletableFuture<T>> tolerant = new HashMap<>(futures.size());
+        futures.forEach((id, future) -> tolerant.put(id, future.exceptionally(ex -> null)));
+        return CompletableFuture.allOf(tolerant.values().toArray(new CompletableFuture[tolerant.size()]))
+                .thenApply(ignored -> {
+                    final Map<Integer, T> result = new HashMap<>(tolerant.size());
+                    tolerant.forEach((id, future) -> {
+                        final T value = future.join();
+                        if (value != null) {
+                            result.put(id, value);
+                        }
+                    });
+                    return Collections.unmodifiableMap(result);
+                });
+    }
+
+    /**
+     * Gets an entity that has already been resolved.
+     * @param id The id of the entity.
+     * @return An {@code Optional<T>} instance, never {@code null}.
+     */
+    public Optional<T> getIfPresent(final int id) {
+        final CompletableFuture<T> future = entities.get(id);
+        return (future == null || !future.isDone() || future.isCompletedExceptionally()) ? Optional.empty() : Optional.ofNullable(future.join());
+    }
+
+    /**
+     * Forgets all resolved entities (ie: when the language changes).
+     * <br>Entities being loaded are not affected.
+     */
+    public void invalidateAll() {
+        entities.values().removeIf(CompletableFuture::isDone);
+    }
+
+    /**
+     * Gets the number of ids requested so far.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets the number of ids that were already resolved or being resolved when requested.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of bulk requests sent so far.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Sends the ids gathered during the window as a single bulk request.
+     */
+    private void dispatch() {
+        // Allow a new batch to be scheduled before draining so no id is left behind.
+        batchScheduled.set(false);
+        final Map<Integer, CompletableFuture<T>> batch = new HashMap<>();
+        for (Integer id = pending.poll(); id != null; id = pending.poll()) {
+            // Pending futures are never invalidated, so they are still registered here.
+            batch.put(id, entities.get(id));
+        }
+        if (!batch.isEmpty()) {
+            batchCount.incrementAndGet();
+            BATCH_EXECUTOR.execute(() -> loadBatch(batch));
+        }
+    }
+
+    /**
+     * Loads a batch and completes the futures of its ids.
+     * <br>Futures of entities missing from the result are completed with {@code null}; on failure, futures are completed exceptionally and forgotten so the ids may be requested again.
+     * @param batch The future of each id of the batch.
+     */
+    private void loadBatch(final Map<Integer, CompletableFuture<T>> batch) {
+        try {
+            final int[] ids = batch.keySet()
+                    .stream()
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+            loader.apply(ids)
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .forEach(value -> {
+                        final CompletableFuture<T> future = batch.get(idExtractor.applyAsInt(value));
+                        if (future != null) {
+                            future.complete(value);
+                        }
+                    });
+            batch.values().forEach(future -> future.complete(null));
+        } catch (RuntimeException ex) {
+            Logger.getLogger(EntityResolver.class.getName()).log(Level.WARNING, String.format("Could not resolve %s: %s", name, ex.getMessage()), ex); // NOI18N.
+            // Unregister before completing so callers that retry immediately send a new request.
+            batch.forEach((id, future) -> {
+                entities.remove(id, future);
+                future.completeExceptionally(ex);
+            });
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
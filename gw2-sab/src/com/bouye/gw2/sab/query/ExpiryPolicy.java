@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+/**
+ * Tells how long a result in the {@link QueryCache} may be used without querying the server again.
+ * <br>Instances are immutable.
+ * @author Fabrice Bouyé
+ */
+public final class ExpiryPolicy {
+
+    /**
+     * Results are always queried again; the cache only avoids decoding the same JSON twice.
+     */
+    public static final ExpiryPolicy NONE = new ExpiryPolicy(Kind.NONE, 0);
+    /**
+     * Results are kept for the whole session, until explicitly invalidated.
+     */
+    public static final ExpiryPolicy SESSION = new ExpiryPolicy(Kind.SESSION, 0);
+    /**
+     * Results are kept as long as the game build does not change.
+     * @see GameBuild
+     */
+    public static final ExpiryPolicy BUILD = new ExpiryPolicy(Kind.BUILD, 0);
+
+    private enum Kind {
+        NONE, SESSION, BUILD, TTL;
+    }
+
+    private final Kind kind;
+    /**
+     * Time to live, in ms.
+     */
+    private final long ttl;
+
+    /**
+     * Creates a new instance.
+     * @param kind The kind of policy.
+     * @param ttl The time to live, in ms.
+     */
+    private ExpiryPolicy(final Kind kind, final long ttl) {
+        this.kind = kind;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Creates a policy that keeps results for a given time.
+     * @param ttl The time to live, in ms.
+     * @return An {@code ExpiryPolicy} instance, never {@code null}.
+     * @throws IllegalArgumentException If {@code ttl} &le; 0.
+     */
+    public static ExpiryPolicy ttl(final long ttl) throws IllegalArgumentException {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return new ExpiryPolicy(Kind.TTL, ttl);
+    }
+
+    /**
+     * Indicates whether results may be used without querying the server again.
+     * @return A {@code boolean}.
+     */
+    public boolean isCached() {
+        return kind != Kind.NONE;
+    }
+
+    /**
+     * Indicates whether results expire when the game build changes.
+     * @return A {@code boolean}.
+     */
+    public boolean isBuildBound() {
+        return kind == Kind.BUILD;
+    }
+
+    /**
+     * Indicates whether a result has expired.
+     * @param created The time the result was stored, in ms.
+     * @param build The game build when the result was stored, -1 if not known.
+     * @param now The current time, in ms.
+     * @param currentBuild The current game build, -1 if not known.
+     * @return A {@code boolean}.
+     */
+    boolean isExpired(final long created, final int build, final long now, final int currentBuild) {
+        boolean result = false;
+        switch (kind) {
+            case NONE:
+                result = true;
+                break;
+            case TTL:
+                result = now - created >= ttl;
+                break;
+            case BUILD:
+                result = build != -1 && currentBuild != -1 && build != currentBuild;
+                break;
+            case SESSION:
+            default:
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return (kind == Kind.TTL) ? String.format("TTL %d ms", ttl) : kind.name(); // NOI18N.
+    }
+}
@@ -10,10 +10,18 @@ package com.bouye.gw2.sab.query;
 import api.web.gw2.mapping.core.APILevel;
 import api.web.gw2.mapping.core.JsonpContext;
 import api.web.gw2.mapping.core.PageResult;
+import com.bouye.gw2.sab.SABConstants;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -24,9 +32,18 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.json.Json;
+import javax.json.JsonReader;
+import javax.json.JsonStructure;
 
 /**
  * Encapsulate URL construction and calls to the GW2 Web API.
@@ -35,9 +52,41 @@ import java.util.stream.Collectors;
 public final class GW2APIClient {
 
     /**
-     * Base URL for all GW2 API endpoints.
+     * Maximum number of ids the Web API accepts in a single query: {@value}.
      */
-    private static final String API_BASE_CODE = "https://api.guildwars2.com"; // NOI18N.
+    public static final int MAX_IDS_PER_QUERY = 200;
+    /**
+     * Default number of chunks fetched concurrently: {@value}.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+    /**
+     * Maximum number of objects per page the API accepts: {@value}.
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+    /**
+     * Default number of pages fetched ahead when walking through all pages: {@value}.
+     */
+    public static final int DEFAULT_PREFETCH_WINDOW = 4;
+    /**
+     * Header that contains the total number of pages.
+     */
+    private static final String PAGE_TOTAL_HEADER = "X-Page-Total"; // NOI18N.
+    /**
+     * Number of times a request rejected because of the rate limit is sent again: {@value}.
+     */
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+    /**
+     * Delay used when the server does not provide a {@code Retry-After} header, in ms: {@value}.
+     */
+    private static final long DEFAULT_RETRY_AFTER = 1000;
+    /**
+     * HTTP status code returned when the rate limit is exceeded: {@value}.
+     */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    /**
+     * Maximum delay between two retries, in ms.
+     */
+    private static final long MAX_RETRY_DELAY = 30_000;
     /**
      * API level to use.
      */
@@ -54,6 +103,75 @@ public final class GW2APIClient {
      * JSON-P context to use when parsing results.
      */
     private JsonpContext context = JsonpContext.SAX;
+    /**
+     * Base URL of the Web API.
+     */
+    private String baseUrl = getDefaultBaseUrl();
+    /**
+     * Transport used to send requests.
+     */
+    private GW2APITransport transport = getDefaultTransport();
+    /**
+     * Executor used to run asynchronous queries.
+     */
+    private Executor executor = getDefaultExecutor();
+    /**
+     * Maximum number of chunks fetched concurrently.
+     */
+    private int parallelism = DEFAULT_PARALLELISM;
+    /**
+     * Priority of the requests sent by this client.
+     */
+    private QueryPriority priority = QueryPriority.INTERACTIVE;
+    /**
+     * Number of objects per page when walking through all pages.
+     */
+    private int pageSize = MAX_PAGE_SIZE;
+    /**
+     * Number of pages held or fetched ahead when walking through all pages.
+     */
+    private int prefetchWindow = DEFAULT_PREFETCH_WINDOW;
+    /**
+     * How failed requests are retried.
+     */
+    private RetryPolicy retryPolicy = new RetryPolicy(SABConstants.INSTANCE.getWebApiRetryCount(), SABConstants.INSTANCE.getWebApiRetryDelay(), MAX_RETRY_DELAY);
+    /**
+     * Cost of the last query.
+     */
+    private volatile QueryCost lastQueryCost = new QueryCost();
+
+    /**
+     * Maximum number of encoded parameter values kept.
+     */
+    private static final int MAX_ENCODED_VALUES = 1024;
+    /**
+     * Encoded forms of parameter values that are used repeatedly, such as ids or character names.
+     */
+    private static final Map<String, String> ENCODED_VALUES = new ConcurrentHashMap<>();
+
+    /**
+     * Executor used to fetch chunks concurrently.
+     */
+    private static final ExecutorService CHUNK_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "GW2APIClient-chunk"); // NOI18N.
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Transport used by new instances.
+     */
+    private static volatile GW2APITransport defaultTransport;
+
+    /**
+     * Executor used by new instances to run asynchronous queries.
+     */
+    private static volatile QueryExecutor defaultExecutor;
+
+    /**
+     * Base URL used by new instances.
+     */
+    private static volatile String defaultBaseUrl;
 
     /**
      * Hidden constructor.
@@ -61,6 +179,100 @@ public final class GW2APIClient {
     private GW2APIClient() {
     }
 
+    /**
+     * Gets the transport used by new instances.
+     * <br>Unless a default transport is explicitly set, a {@code PooledHttpTransport} configured from the settings is used.
+     * @return A {@code GW2APITransport} instance, never {@code null}.
+     */
+    public static GW2APITransport getDefaultTransport() {
+        GW2APITransport result = defaultTransport;
+        if (result == null) {
+            synchronized (GW2APIClient.class) {
+                if (defaultTransport == null) {
+                    defaultTransport = new PooledHttpTransport(SABConstants.INSTANCE.getWebApiConnectionPoolSize(),
+                            SABConstants.INSTANCE.getWebApiConnectionsPerHost(),
+                            PooledHttpTransport.DEFAULT_TIMEOUT);
+                }
+                result = defaultTransport;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the transport used by new instances.
+     * @param value The new value.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public static void setDefaultTransport(final GW2APITransport value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        defaultTransport = value;
+    }
+
+    /**
+     * Gets the executor used by new instances to run asynchronous queries.
+     * <br>Unless a default executor is explicitly set, a {@code QueryExecutor} configured from the settings is used: either a bounded pool or, if enabled and supported by the runtime, one virtual thread per query.
+     * @return A {@code QueryExecutor} instance, never {@code null}.
+     */
+    public static QueryExecutor getDefaultExecutor() {
+        QueryExecutor result = defaultExecutor;
+        if (result == null) {
+            synchronized (GW2APIClient.class) {
+                if (defaultExecutor == null) {
+                    final int threadCount = SABConstants.INSTANCE.getWebApiAsyncThreads();
+                    defaultExecutor = SABConstants.INSTANCE.isWebApiVirtualThreads() ? QueryExecutor.newVirtualThreadPerTask(threadCount) : QueryExecutor.newBoundedPool(threadCount);
+                }
+                result = defaultExecutor;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the executor used by new instances to run asynchronous queries.
+     * @param value The new value.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public static void setDefaultExecutor(final QueryExecutor value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        defaultExecutor = value;
+    }
+
+    /**
+     * Gets the base URL used by new instances.
+     * <br>Unless a default base URL is explicitly set, the base URL from the settings is used.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    public static String getDefaultBaseUrl() {
+        String result = defaultBaseUrl;
+        if (result == null) {
+            result = normalizeBaseUrl(SABConstants.INSTANCE.getWebApiBaseUrl());
+            defaultBaseUrl = result;
+        }
+        return result;
+    }
+
+    /**
+     * Sets the base URL used by new instances.
+     * <br>Tests may use this method to send all queries to a local server.
+     * @param value The new value, ie: {@code http://localhost:8080}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public static void setDefaultBaseUrl(final String value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        defaultBaseUrl = normalizeBaseUrl(value);
+    }
+
+    /**
+     * Removes the trailing slash of a base URL.
+     * @param value The base URL.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    private static String normalizeBaseUrl(final String value) {
+        final String result = value.trim();
+        return result.endsWith("/") ? result.substring(0, result.length() - 1) : result; // NOI18N.
+    }
+
     /**
      * Creates a new empty instance.
      * @return A {@code GW2APIClient}, never {@code null}.
@@ -114,6 +326,7 @@ public final class GW2APIClient {
     /**
      * Sets the integer ids to use on the query.
      * <br>This parameter is mutually exclusive with the {@code id} parameter.
+     * <br>When querying arrays, ids beyond {@link #MAX_IDS_PER_QUERY} are transparently split into several requests.
      * @param value The new value.
      * @return A {@code GW2APIClient}, never {@code null}.
      */
@@ -125,6 +338,7 @@ public final class GW2APIClient {
     /**
      * Sets the string ids to use on the query.
      * <br>This parameter is mutually exclusive with the {@code id} parameter.
+     * <br>When querying arrays, ids beyond {@link #MAX_IDS_PER_QUERY} are transparently split into several requests.
      * @param value The new value.
      * @return A {@code GW2APIClient}, never {@code null}.
      */
@@ -185,6 +399,145 @@ public final class GW2APIClient {
         return this;
     }
 
+    /**
+     * Sets the transport used to send the requests.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public GW2APIClient transport(final GW2APITransport value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        transport = value;
+        return this;
+    }
+
+    /**
+     * Sets the executor used to run asynchronous queries.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public GW2APIClient executor(final Executor value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        executor = value;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of chunks fetched concurrently when a query contains more than {@link #MAX_IDS_PER_QUERY} ids.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws IllegalArgumentException If {@code value} is lower than 1.
+     */
+    public GW2APIClient parallelism(final int value) throws IllegalArgumentException {
+        if (value < 1) {
+            throw new IllegalArgumentException();
+        }
+        parallelism = value;
+        return this;
+    }
+
+    /**
+     * Sets the index of the page to query.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws IllegalArgumentException If {@code value} is negative.
+     * @see #queryPage(java.lang.Class)
+     */
+    public GW2APIClient page(final int value) throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException();
+        }
+        parameters.put("page", value); // NOI18N.
+        return this;
+    }
+
+    /**
+     * Sets the number of objects per page.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws IllegalArgumentException If {@code value} is lower than 1 or greater than {@link #MAX_PAGE_SIZE}.
+     */
+    public GW2APIClient pageSize(final int value) throws IllegalArgumentException {
+        if (value < 1 || value > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        pageSize = value;
+        parameters.put("page_size", value); // NOI18N.
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pages held in memory or fetched ahead when walking through all pages.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws IllegalArgumentException If {@code value} is lower than 1.
+     * @see #queryAllPages(java.lang.Class)
+     */
+    public GW2APIClient prefetchWindow(final int value) throws IllegalArgumentException {
+        if (value < 1) {
+            throw new IllegalArgumentException();
+        }
+        prefetchWindow = value;
+        return this;
+    }
+
+    /**
+     * Sets the base URL of the Web API.
+     * @param value The new value, ie: {@code http://localhost:8080}.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public GW2APIClient baseUrl(final String value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        baseUrl = normalizeBaseUrl(value);
+        return this;
+    }
+
+    /**
+     * Sets how failed requests are retried.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     * @see RetryPolicy#NONE
+     */
+    public GW2APIClient retryPolicy(final RetryPolicy value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        retryPolicy = value;
+        return this;
+    }
+
+    /**
+     * Sets the priority of the requests sent by this client.
+     * <br>When the rate limit is reached, requests of higher priority are sent first.
+     * @param value The new value.
+     * @return A {@code GW2APIClient}, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public GW2APIClient priority(final QueryPriority value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        priority = value;
+        return this;
+    }
+
+    /**
+     * Gets the cost of the last query issued by this client.
+     * @return A {@code QueryCost} instance, never {@code null}.
+     */
+    public QueryCost getLastQueryCost() {
+        return lastQueryCost;
+    }
+
+    /**
+     * Gets the state of the circuit breaker of the current endpoint.
+     * <br>When the breaker is not closed, queries to this endpoint fail without reaching the network; callers may keep displaying the data they already have.
+     * @return A {@code CircuitBreaker.State} instance, never {@code null}.
+     */
+    public CircuitBreaker.State getCircuitState() {
+        final String path = '/' + apiLevel.name().toLowerCase() + '/' + endPoint;
+        return CircuitBreakers.INSTANCE.getState(EndPointTemplate.of(path));
+    }
+
     /**
      * Encode a string parameter.
      * @param value The source value.
@@ -192,9 +545,30 @@ public final class GW2APIClient {
      * @throws NullPointerException If {@code value} is {@code null}.
      */
     public static String encodeURLParameter(final String value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        String result = ENCODED_VALUES.get(value);
+        if (result != null) {
+            return result;
+        }
         try {
-            String result = URLEncoder.encode(value, "utf-8"); // NOI18N.
-            result = result.replaceAll("\\+", "%20"); // NOI18N.
+            result = URLEncoder.encode(value, "utf-8"); // NOI18N.
+            // URLEncoder encodes spaces for forms, not for URLs.
+            if (result.indexOf('+') >= 0) {
+                final StringBuilder builder = new StringBuilder(result.length() + 8);
+                for (int index = 0; index < result.length(); index++) {
+                    final char c = result.charAt(index);
+                    if (c == '+') {
+                        builder.append("%20"); // NOI18N.
+                    } else {
+                        builder.append(c);
+                    }
+                }
+                result = builder.toString();
+            }
+            if (ENCODED_VALUES.size() >= MAX_ENCODED_VALUES) {
+                ENCODED_VALUES.clear();
+            }
+            ENCODED_VALUES.put(value, result);
             return result;
         } catch (UnsupportedEncodingException ex) {
             // Should never happen.
@@ -212,9 +586,14 @@ public final class GW2APIClient {
     public static String idsToString(final int... ids) {
         String result = "all"; // NOI18N.
         if (ids.length > 0) {
-            result = Arrays.stream(ids)
-                    .mapToObj(String::valueOf)
-                    .collect(Collectors.joining(",")); // NOI18N.
+            final StringBuilder builder = new StringBuilder(ids.length * 6);
+            for (int index = 0; index < ids.length; index++) {
+                if (index > 0) {
+                    builder.append(',');
+                }
+                builder.append(ids[index]);
+            }
+            result = builder.toString();
         }
         return result;
     }
@@ -228,9 +607,14 @@ public final class GW2APIClient {
     public static String idsToString(final String... ids) {
         String result = "all"; // NOI18N.
         if (ids.length > 0) {
-            result = Arrays.stream(ids)
-                    .map(GW2APIClient::encodeURLParameter)
-                    .collect(Collectors.joining(",")); // NOI18N.
+            final StringBuilder builder = new StringBuilder(ids.length * 16);
+            for (int index = 0; index < ids.length; index++) {
+                if (index > 0) {
+                    builder.append(',');
+                }
+                builder.append(encodeURLParameter(ids[index]));
+            }
+            result = builder.toString();
         }
         return result;
     }
@@ -240,31 +624,43 @@ public final class GW2APIClient {
      * @return A {@code String} instance, never {@code null}.
      */
     public String buildQuery() {
-        final String baseCode = API_BASE_CODE;
-        final String api = apiLevel.name().toLowerCase();
-        final String endPoint = this.endPoint;
-        final String parametersString = parameters.entrySet()
-                .stream()
-                .map(entry -> {
-                    final String key = entry.getKey();
-                    final Object value = entry.getValue();
-                    String valueStr = null;
-                    if (value instanceof String) {
-                        valueStr = (String) value;
-                    } else {
-                        valueStr = value.toString();
-                    }
-                    return String.format("%s=%s", key, valueStr); // NOI18N.
-                })
-                .collect(Collectors.joining("&")); // NOI18N.
-        final String pattern = parameters.isEmpty() ? "%s/%s/%s" : "%s/%s/%s?%s"; // NOI18N.
-        final String query = String.format(pattern, baseCode, api, endPoint, parametersString);
-        return query;
+        return buildQuery(parameters);
+    }
+
+    /**
+     * Construct the URL for the query.
+     * @param parameters The parameters of the query.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    private String buildQuery(final Map<String, Object> parameters) {
+        return QueryTemplate.of(baseUrl, apiLevel, endPoint).build(parameters);
+    }
+
+    /**
+     * Construct the URLs for the query, splitting the {@code ids} parameter in chunks the API accepts.
+     * @return A non-modifiable {@code List<String>} instance, never {@code null} nor empty.
+     */
+    private List<String> buildChunkedQueries() {
+        final Object ids = parameters.get("ids"); // NOI18N.
+        // Encoded ids never contain a raw comma.
+        final String[] idValues = (ids == null) ? new String[0] : ids.toString().split(","); // NOI18N.
+        if (idValues.length <= MAX_IDS_PER_QUERY) {
+            return Collections.singletonList(buildQuery());
+        }
+        final List<String> result = new ArrayList<>((idValues.length + MAX_IDS_PER_QUERY - 1) / MAX_IDS_PER_QUERY);
+        final Map<String, Object> chunkParameters = new LinkedHashMap<>(parameters);
+        for (int start = 0; start < idValues.length; start += MAX_IDS_PER_QUERY) {
+            final int end = Math.min(start + MAX_IDS_PER_QUERY, idValues.length);
+            chunkParameters.put("ids", String.join(",", Arrays.asList(idValues).subList(start, end))); // NOI18N.
+            result.add(buildQuery(chunkParameters));
+        }
+        return Collections.unmodifiableList(result);
     }
 
     /**
      * Do a simply query that returns a simple object.
      * <br>This method blocks until the query returns or fails.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.`
      * @return An {@code Optional<T>} instance, never {@code null}.
@@ -273,7 +669,8 @@ public final class GW2APIClient {
         Logger.getLogger(WebQuery.class.getName()).entering(getClass().getName(), "queryObject", targetClass); // NOI18N.
         Optional<T> result = Optional.empty();
         try {
-            final T value = impl_queryObject(targetClass);
+            final QueryCost cost = startQuery();
+            final T value = QueryCoalescer.INSTANCE.execute(coalescingKey("object", targetClass), () -> impl_queryObject(targetClass, cost)); // NOI18N.
             result = Optional.ofNullable(value);
         } catch (RuntimeException ex) {
             Logger.getLogger(WebQuery.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
@@ -283,9 +680,35 @@ public final class GW2APIClient {
         return result;
     }
 
+    /**
+     * Do a query whose response is read as raw JSON, for endpoints that have no mapping.
+     * <br>This method blocks until the query returns or fails.
+     * @return An {@code Optional<JsonStructure>} instance, never {@code null}.
+     */
+    Optional<JsonStructure> queryJson() {
+        Logger.getLogger(WebQuery.class.getName()).entering(getClass().getName(), "queryJson"); // NOI18N.
+        Optional<JsonStructure> result = Optional.empty();
+        try {
+            final QueryCost cost = startQuery();
+            cost.addChunks(1);
+            final JsonStructure value = impl_load(buildQuery(), "json", JsonStructure.class, cost, url -> { // NOI18N.
+                try (final JsonReader reader = Json.createReader(url.openStream())) {
+                    return reader.read();
+                }
+            });
+            result = Optional.ofNullable(value);
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(WebQuery.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+        } finally {
+            Logger.getLogger(WebQuery.class.getName()).exiting(getClass().getName(), "queryJson"); // NOI18N.
+        }
+        return result;
+    }
+
     /**
      * Do a simple query that returns a list of object.
      * <br>This method blocks until the query returns or fails.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.
      * @return A {@code List<T>} instance, never {@code null}.
@@ -294,7 +717,7 @@ public final class GW2APIClient {
         Logger.getLogger(WebQuery.class.getName()).entering(getClass().getName(), "queryArray", targetClass); // NOI18N.
         List<T> result = Collections.EMPTY_LIST;
         try {
-            result = impl_queryArray(targetClass);
+            result = fetchArray(targetClass);
         } catch (RuntimeException ex) {
             Logger.getLogger(WebQuery.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
         } finally {
@@ -303,9 +726,46 @@ public final class GW2APIClient {
         return result;
     }
 
+    /**
+     * Do a simple query that returns a list of object, reporting failures to the caller.
+     * <br>Unlike {@link #queryArray(Class)}, a request that fails does not return an empty list, so callers can tell a failure from objects that do not exist.
+     * <br>This method blocks until the query returns or fails.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
+     * @param <T> The type to use.
+     * @param targetClass The target class.
+     * @return A {@code List<T>} instance, never {@code null}.
+     * @throws RuntimeException If the request failed or if the response could not be decoded.
+     */
+    public <T> List<T> fetchArray(final Class<T> targetClass) throws RuntimeException {
+        final QueryCost cost = startQuery();
+        return QueryCoalescer.INSTANCE.execute(coalescingKey("array", targetClass), () -> impl_queryArray(targetClass, cost)); // NOI18N.
+    }
+
+    /**
+     * Do a simple query that returns a stream of objects.
+     * <br>This method returns immediately; the request is sent when the stream is first consumed.
+     * <br>Objects are decoded one at a time while the response is being read, so they can be processed and discarded without holding the whole array in memory.
+     * <br>If the query contains more than {@link #MAX_IDS_PER_QUERY} ids, chunks are requested one after the other as the stream progresses.
+     * <br>The stream should be closed if it is not entirely consumed, so the connection is released.
+     * <br>A request that fails or a response that cannot be decoded ends the stream with a {@code RuntimeException}.
+     * @param <T> The type to use.
+     * @param targetClass The target class.
+     * @return A sequential {@code Stream<T>} instance, never {@code null}.
+     */
+    public <T> Stream<T> queryArrayStream(final Class<T> targetClass) {
+        final QueryCost cost = startQuery();
+        final List<String> queries = buildChunkedQueries();
+        cost.addChunks(queries.size());
+        // Chunks are chained rather than flat-mapped so that each one is only requested once the previous one has been consumed.
+        final ChainedSpliterator<String, T> spliterator = new ChainedSpliterator<>(queries.iterator(), query -> impl_queryArrayStream(targetClass, query, cost));
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close);
+    }
+
     /**
      * Do a simple query that returns a list of enum values.
      * <br>This method blocks until the query returns or fails.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.
      * @return A {@code List<T>} instance, never {@code null}.
@@ -314,7 +774,8 @@ public final class GW2APIClient {
         Logger.getLogger(WebQuery.class.getName()).entering(getClass().getName(), "queryEnumValues", targetClass); // NOI18N.
         List<T> result = Collections.EMPTY_LIST;
         try {
-            result = impl_queryEnumValues(targetClass);
+            final QueryCost cost = startQuery();
+            result = QueryCoalescer.INSTANCE.execute(coalescingKey("enum", targetClass), () -> impl_queryEnumValues(targetClass, cost)); // NOI18N.
         } catch (RuntimeException ex) {
             Logger.getLogger(WebQuery.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
         } finally {
@@ -326,16 +787,20 @@ public final class GW2APIClient {
     /**
      * Do a simple query that returns a page.
      * <br>This method blocks until the query returns or fails.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.
      * @return A {@code List<T>} instance, never {@code null}.
+     * @see #page(int)
+     * @see #pageSize(int)
+     * @see #queryAllPages(java.lang.Class)
      */
-    // @todo Support page query per page index.
     public <T> PageResult<T> queryPage(final Class<T> targetClass) {
         Logger.getLogger(WebQuery.class.getName()).entering(getClass().getName(), "queryPage", targetClass); // NOI18N.
         PageResult<T> result = PageResult.EMPTY;
         try {
-            result = impl_queryPage(targetClass);
+            final QueryCost cost = startQuery();
+            result = QueryCoalescer.INSTANCE.execute(coalescingKey("page", targetClass), () -> impl_queryPage(targetClass, cost)); // NOI18N.
         } catch (RuntimeException ex) {
             Logger.getLogger(WebQuery.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
         } finally {
@@ -344,100 +809,484 @@ public final class GW2APIClient {
         return result;
     }
 
-    private <T> T impl_queryObject(final Class<T> targetClass) throws RuntimeException {
+    private <T> T impl_queryObject(final Class<T> targetClass, final QueryCost cost) throws RuntimeException {
         try {
             final String query = buildQuery();
             Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("impl_queryObject %s", query)); // NOI18N.
-            final URL url = new URL(query);
-            final T result = context.loadObject(targetClass, url);
-            return result;
+            cost.addChunks(1);
+            return impl_load(query, "object", targetClass, cost, url -> context.loadObject(targetClass, url)); // NOI18N.
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private <T> List<T> impl_queryArray(final Class<T> targetClass, final QueryCost cost) throws RuntimeException {
+        final List<String> queries = buildChunkedQueries();
+        cost.addChunks(queries.size());
+        List<T> result = null;
+        if (queries.size() == 1) {
+            result = impl_queryArray(targetClass, queries.get(0), cost);
+        } else {
+            // Chunks are fetched concurrently but merged back in request order.
+            final List<List<T>> chunks = BoundedFanOut.map(queries, parallelism, CHUNK_EXECUTOR, query -> impl_queryArray(targetClass, query, cost));
+            result = new ArrayList<>();
+            for (final List<T> chunk : chunks) {
+                result.addAll(chunk);
+            }
+            result = Collections.unmodifiableList(result);
+            Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("impl_queryArray %s/%s: %s", apiLevel.name().toLowerCase(), endPoint, cost)); // NOI18N.
+        }
+        return result;
+    }
+
+    private <T> Stream<T> impl_queryArrayStream(final Class<T> targetClass, final String query, final QueryCost cost) throws RuntimeException {
+        try {
+            Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("impl_queryArrayStream %s", query)); // NOI18N.
+            final boolean cacheable = isDiskCacheable();
+            final HttpResponseCache.Entry entry = cacheable ? HttpResponseCache.INSTANCE.lookup(query) : null;
+            final Map<String, String> headers = (entry == null) ? Collections.EMPTY_MAP : entry.getConditionalHeaders();
+            final GW2APIResponse response = impl_execute(query, headers, cost);
+            final EndpointMetrics metrics = QueryMetrics.INSTANCE.get(EndPointTemplate.of(response.getURL()));
+            final boolean notModified = entry != null && response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+            if (entry != null) {
+                metrics.recordCache(notModified);
+            }
+            GW2APIResponse source = response;
+            if (notModified) {
+                // Decoded arrays are not kept when streaming: the stored body is decoded again.
+                response.close();
+                HttpResponseCache.INSTANCE.hit(false);
+                source = entry.open();
+            } else if (cacheable) {
+                source = HttpResponseCache.INSTANCE.store(query, response);
+            }
+            final JsonArraySpliterator<T> spliterator = new JsonArraySpliterator<>(source, url -> {
+                final long start = System.nanoTime();
+                final T value = context.loadObject(targetClass, url);
+                metrics.recordParse(System.nanoTime() - start);
+                return value;
+            });
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(spliterator::close);
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    private <T> List<T> impl_queryArray(final Class<T> targetClass) throws RuntimeException {
+    private <T> List<T> impl_queryArray(final Class<T> targetClass, final String query, final QueryCost cost) throws RuntimeException {
         try {
-            final String query = buildQuery();
             Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("impl_queryArray %s", query)); // NOI18N.
-            final URL url = new URL(query);
-            final Collection<T> value = context.loadObjectArray(targetClass, url);
-            List<T> result = new ArrayList<>(value);
-            result = Collections.unmodifiableList(result);
-            return result;
+            return impl_load(query, "array", targetClass, cost, url -> { // NOI18N.
+                final Collection<T> value = context.loadObjectArray(targetClass, url);
+                List<T> result = new ArrayList<>(value);
+                result = Collections.unmodifiableList(result);
+                return result;
+            });
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    private <T extends Enum> List<T> impl_queryEnumValues(final Class<T> targetClass) throws RuntimeException {
+    private <T extends Enum> List<T> impl_queryEnumValues(final Class<T> targetClass, final QueryCost cost) throws RuntimeException {
         try {
             final String query = buildQuery();
             Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("immpl_queryEnumValues %s", query)); // NOI18N.
-            final URL url = new URL(query);
-            final Collection<T> value = context.loadEnumArray(targetClass, url);
-            List<T> result = new ArrayList<>(value);
-            result = Collections.unmodifiableList(result);
-            return result;
+            cost.addChunks(1);
+            return impl_load(query, "enum", targetClass, cost, url -> { // NOI18N.
+                final Collection<T> value = context.loadEnumArray(targetClass, url);
+                List<T> result = new ArrayList<>(value);
+                result = Collections.unmodifiableList(result);
+                return result;
+            });
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    // @todo Support page query per page index.
-    private <T> PageResult<T> impl_queryPage(final Class<T> targetClass) throws RuntimeException {
+    private <T> PageResult<T> impl_queryPage(final Class<T> targetClass, final QueryCost cost) throws RuntimeException {
         try {
             final String query = buildQuery();
             Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("impl_queryPage %s", query)); // NOI18N.
-            final URL url = new URL(query);
-            PageResult<T> result = context.loadPage(targetClass, url);
-            return result;
+            cost.addChunks(1);
+            return impl_load(query, "page", targetClass, cost, url -> context.loadPage(targetClass, url)); // NOI18N.
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Walks through all pages of a paginated endpoint.
+     * <br>This method returns immediately; the first page is fetched when the stream is first consumed and tells how many pages there are.
+     * <br>The following pages are then fetched concurrently on the executor of this client, up to the prefetch window ahead of the consumer, and their values are streamed as pages arrive, in page order.
+     * <br>At most as many pages as the prefetch window are held in memory at any time; closing the stream cancels the pages still being fetched.
+     * <br>A page that cannot be fetched ends the stream with a {@code RuntimeException}.
+     * @param <T> The type to use.
+     * @param targetClass The target class.
+     * @return A sequential {@code Stream<T>} instance, never {@code null}.
+     * @see #pageSize(int)
+     * @see #prefetchWindow(int)
+     */
+    public <T> Stream<T> queryAllPages(final Class<T> targetClass) {
+        final QueryCost cost = startQuery();
+        // Later changes made to this client do not affect the stream.
+        final Map<String, Object> pageParameters = new LinkedHashMap<>(parameters);
+        pageParameters.remove("page"); // NOI18N.
+        pageParameters.put("page_size", pageSize); // NOI18N.
+        final PagedSpliterator<T> spliterator = new PagedSpliterator<>(pageIndex -> {
+            final Map<String, Object> queryParameters = new LinkedHashMap<>(pageParameters);
+            queryParameters.put("page", pageIndex); // NOI18N.
+            return impl_queryPageAt(targetClass, buildQuery(queryParameters), cost);
+        }, executor, prefetchWindow);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(spliterator::close);
+    }
+
+    private <T> PagedSpliterator.Page<T> impl_queryPageAt(final Class<T> targetClass, final String query, final QueryCost cost) throws RuntimeException {
+        try {
+            Logger.getLogger(WebQuery.class.getName()).log(Level.INFO, String.format("impl_queryPageAt %s", query)); // NOI18N.
+            cost.addChunks(1);
+            return impl_load(query, "pages", targetClass, cost, url -> { // NOI18N.
+                // Reading the headers does not consume the body.
+                final String pageTotalStr = url.openConnection().getHeaderField(PAGE_TOTAL_HEADER);
+                final Collection<T> value = context.loadObjectArray(targetClass, url);
+                List<T> result = new ArrayList<>(value);
+                result = Collections.unmodifiableList(result);
+                return new PagedSpliterator.Page<>(result, parsePageTotal(pageTotalStr));
+            });
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Parses the value of the {@code X-Page-Total} header.
+     * @param value The value of the header.
+     * @return An {@code int} &ge; 1.
+     * <br>Returns {@code 1} if the header is missing or invalid.
+     */
+    private static int parsePageTotal(final String value) {
+        int result = 1;
+        if (value != null) {
+            try {
+                result = Integer.parseInt(value.trim());
+            } catch (NumberFormatException ex) {
+                Logger.getLogger(GW2APIClient.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+        return Math.max(1, result);
+    }
+
+    /**
+     * Starts tracking the cost of a new query.
+     * <br>A query that is served by an identical query already in flight costs no chunk and no request.
+     * @return A {@code QueryCost} instance, never {@code null}.
+     */
+    private QueryCost startQuery() {
+        final QueryCost result = new QueryCost();
+        lastQueryCost = result;
+        return result;
+    }
+
+    /**
+     * Gets the key used to coalesce concurrent identical queries.
+     * @param kind The kind of query.
+     * @param targetClass The target class.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    private String coalescingKey(final String kind, final Class<?> targetClass) {
+        return kind + ':' + targetClass.getName() + ':' + buildQuery();
+    }
+
+    /**
+     * Decodes the response of a request.
+     * @param <R> The type of the result.
+     * @author Fabrice Bouyé
+     */
+    @FunctionalInterface
+    interface ResponseDecoder<R> {
+
+        /**
+         * Decodes a response.
+         * @param url A single-use URL that serves the response.
+         * @return A {@code R} instance, may be {@code null}.
+         * @throws IOException In case of IO error.
+         */
+        R decode(final URL url) throws IOException;
+    }
+
+    /**
+     * Tests whether the responses of this query go through the persistent HTTP cache.
+     * <br>Authenticated responses are never written to disk.
+     * @return A {@code boolean}.
+     */
+    private boolean isDiskCacheable() {
+        return apiLevel == APILevel.V2 && !parameters.containsKey("access_token") && HttpResponseCache.INSTANCE.accepts(endPoint); // NOI18N.
+    }
+
+    /**
+     * Sends the query and decodes its response.
+     * <br>Results still fresh in the {@link QueryCache} are returned without sending a request; otherwise the cached result is returned again if the response has the same content.
+     * <br>Responses of non-authenticated queries to static endpoints go through the persistent HTTP cache: a conditional request is sent when a response is already stored and the stored response is used if it has not changed.
+     * @param <R> The type of the result.
+     * @param query The query.
+     * @param kind The kind of query.
+     * @param targetClass The target class.
+     * @param cost The cost of the logical query this request belongs to.
+     * @param decoder Decodes the response.
+     * @return A {@code R} instance, may be {@code null}.
+     * @throws IOException In case of IO error or if the server returned an error code.
+     */
+    private <R> R impl_load(final String query, final String kind, final Class<?> targetClass, final QueryCost cost, final ResponseDecoder<R> decoder) throws IOException {
+        final boolean cacheable = isDiskCacheable();
+        final String decodingKey = String.format("%s:%s", kind, targetClass.getName()); // NOI18N.
+        // Results that are still fresh according to the expiry policy of the endpoint cost no request.
+        final String cacheKey = String.format("%s#%s", query, decodingKey); // NOI18N.
+        final Optional<R> fresh = QueryCache.INSTANCE.getIfFresh(cacheKey);
+        if (fresh.isPresent()) {
+            return fresh.get();
+        }
+        // The stored response is only looked up once a request is about to be sent.
+        final HttpResponseCache.Entry entry = cacheable ? HttpResponseCache.INSTANCE.lookup(query) : null;
+        final Map<String, String> headers = (entry == null) ? Collections.EMPTY_MAP : entry.getConditionalHeaders();
+        R result = null;
+        try (final GW2APIResponse response = impl_execute(query, headers, cost)) {
+            final EndpointMetrics metrics = QueryMetrics.INSTANCE.get(EndPointTemplate.of(response.getURL()));
+            final boolean notModified = entry != null && response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+            if (entry != null) {
+                metrics.recordCache(notModified);
+            }
+            final long start = System.nanoTime();
+            // The body is hashed while being decoded; when the content did not change, the previously decoded result is returned instead.
+            final ContentHash hash = new ContentHash();
+            if (notModified) {
+                result = (R) entry.getDecoded(decodingKey);
+                HttpResponseCache.INSTANCE.hit(result != null);
+                if (result == null) {
+                    try (final GW2APIResponse stored = hash.wrap(entry.open())) {
+                        result = decoder.decode(stored.toURL());
+                    }
+                    result = QueryCache.INSTANCE.update(cacheKey, hash.getValue(), result);
+                    entry.putDecoded(decodingKey, result);
+                } else {
+                    result = QueryCache.INSTANCE.unchanged(cacheKey, result);
+                }
+            } else if (!cacheable) {
+                try (final GW2APIResponse hashing = hash.wrap(response)) {
+                    result = decoder.decode(hashing.toURL());
+                }
+                result = QueryCache.INSTANCE.update(cacheKey, hash.getValue(), result);
+            } else {
+                // The response is committed to the cache once its body has been entirely read.
+                try (final GW2APIResponse storing = hash.wrap(HttpResponseCache.INSTANCE.store(query, response))) {
+                    result = decoder.decode(storing.toURL());
+                }
+                result = QueryCache.INSTANCE.update(cacheKey, hash.getValue(), result);
+                HttpResponseCache.INSTANCE.attach(query, decodingKey, result);
+            }
+            metrics.recordParse(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the query through the transport.
+     * @param query The query.
+     * @param headers Additional request headers.
+     * @param cost The cost of the logical query this request belongs to.
+     * @return A {@code GW2APIResponse} instance, never {@code null}.
+     * <br>The response is successful, or is a {@code 304 Not Modified} response to a conditional request.
+     * @throws IOException In case of IO error or if the server returned an error code.
+     */
+    private GW2APIResponse impl_execute(final String query, final Map<String, String> headers, final QueryCost cost) throws IOException {
+        final URL url = new URL(query);
+        final CircuitBreaker breaker = CircuitBreakers.INSTANCE.get(EndPointTemplate.of(url));
+        final EndpointMetrics metrics = QueryMetrics.INSTANCE.get(EndPointTemplate.of(url));
+        if (!breaker.allowRequest()) {
+            metrics.recordRejected();
+            throw new CircuitOpenException(breaker.getEndPoint());
+        }
+        try {
+            for (int retry = 0;; retry++) {
+                final GW2APIResponse response;
+                try {
+                    response = impl_send(url, headers, cost, metrics);
+                } catch (IOException ex) {
+                    if (isInterruption(ex)) {
+                        throw ex;
+                    }
+                    // Timeouts are failures of the endpoint like any other IO error.
+                    metrics.recordError();
+                    impl_retryOrFail(query, retry, ex, breaker, metrics);
+                    continue;
+                }
+                final boolean notModified = !headers.isEmpty() && response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+                if (response.isSuccess() || notModified) {
+                    breaker.recordSuccess();
+                    return response;
+                }
+                response.close();
+                metrics.recordError();
+                final IOException error = new IOException(String.format("Server returned HTTP response code: %d for URL: %s", response.getStatusCode(), query)); // NOI18N.
+                // Client errors will not go away by retrying and do not mean the endpoint is failing.
+                if (response.getStatusCode() < HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                    breaker.recordSuccess();
+                    throw error;
+                }
+                impl_retryOrFail(query, retry, error, breaker, metrics);
+            }
+        } catch (IOException ex) {
+            // An interruption is neither a success nor a failure of the endpoint; a trial request must not leave the breaker half-open forever.
+            if (isInterruption(ex)) {
+                breaker.cancelTrial();
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            breaker.cancelTrial();
+            throw ex;
+        }
+    }
+
+    /**
+     * Tests whether an IO error is due to the current thread being interrupted.
+     * <br>A {@code SocketTimeoutException} is an {@code InterruptedIOException} but reports a connect or read timeout, not an interruption.
+     * @param ex The IO error.
+     * @return A {@code boolean}.
+     */
+    private static boolean isInterruption(final IOException ex) {
+        return Thread.currentThread().isInterrupted() || (ex instanceof InterruptedIOException && !(ex instanceof SocketTimeoutException));
+    }
+
+    /**
+     * Waits before the next retry, or gives up.
+     * @param query The query.
+     * @param retry The index of the retry, starting at 0.
+     * @param error The error of the last attempt.
+     * @param breaker The circuit breaker of the endpoint.
+     * @param metrics The metrics of the endpoint.
+     * @throws IOException If no retry is left, the error of the last attempt; if the current thread was interrupted while waiting, an {@code InterruptedIOException}.
+     */
+    private void impl_retryOrFail(final String query, final int retry, final IOException error, final CircuitBreaker breaker, final EndpointMetrics metrics) throws IOException {
+        if (retry >= retryPolicy.getMaxRetries()) {
+            breaker.recordFailure();
+            throw error;
+        }
+        metrics.recordRetry();
+        final long delay = retryPolicy.getDelay(retry);
+        Logger.getLogger(WebQuery.class.getName()).log(Level.WARNING, String.format("%s, retrying %s in %d ms", error.getMessage(), query, delay)); // NOI18N.
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Sends a request through the transport, once the rate limit allows it.
+     * <br>Requests rejected because of the rate limit are sent again after the delay requested by the server.
+     * @param url The URL.
+     * @param headers Additional request headers.
+     * @param cost The cost of the logical query this request belongs to.
+     * @param metrics The metrics of the endpoint.
+     * @return A {@code GW2APIResponse} instance, never {@code null}.
+     * @throws IOException In case of IO error.
+     */
+    private GW2APIResponse impl_send(final URL url, final Map<String, String> headers, final QueryCost cost, final EndpointMetrics metrics) throws IOException {
+        GW2APIResponse response = null;
+        for (int attempt = 0; response == null; attempt++) {
+            try {
+                RequestScheduler.INSTANCE.acquire(priority);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(ex.getMessage());
+            }
+            cost.addRequest();
+            final long start = System.nanoTime();
+            response = transport.get(url, headers);
+            metrics.recordRequest(System.nanoTime() - start);
+            if (response.getStatusCode() == HTTP_TOO_MANY_REQUESTS) {
+                RequestScheduler.INSTANCE.rateLimited(parseRetryAfter(response.getHeader("Retry-After"))); // NOI18N.
+                if (attempt < MAX_RATE_LIMIT_RETRIES) {
+                    Logger.getLogger(WebQuery.class.getName()).log(Level.WARNING, String.format("Rate limit exceeded, retrying %s", url)); // NOI18N.
+                    response.close();
+                    response = null;
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Parses the value of a {@code Retry-After} header.
+     * @param value The value, either a delay in seconds or an HTTP date; may be {@code null}.
+     * @return The delay in ms.
+     */
+    private static long parseRetryAfter(final String value) {
+        long result = DEFAULT_RETRY_AFTER;
+        if (value != null) {
+            try {
+                result = TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+            } catch (NumberFormatException ex) {
+                try {
+                    final ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    result = Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis();
+                } catch (DateTimeParseException dex) {
+                    Logger.getLogger(WebQuery.class.getName()).log(Level.WARNING, dex.getMessage(), dex);
+                }
+            }
+        }
+        return Math.max(0, result);
+    }
+
     /**
      * Do a simply asynchronous query that returns a simple object.
-     * <br>This method returns immediately.
+     * <br>This method returns immediately; the query runs on the executor of this client.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.`
      * @return An {@code CompletableFuture<T>} instance, never {@code null}.
      */
     public <T> CompletableFuture<T> queryObjectAsync(final Class<T> targetClass) {
-        return CompletableFuture.supplyAsync(() -> this.impl_queryObject(targetClass));
+        final QueryCost cost = startQuery();
+        return QueryCoalescer.INSTANCE.submit(coalescingKey("object", targetClass), () -> this.impl_queryObject(targetClass, cost), executor); // NOI18N.
     }
 
     /**
      * Do a simply asynchronous query that returns a list of objects.
-     * <br>This method returns immediately.
+     * <br>This method returns immediately; the query runs on the executor of this client.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.`
      * @return An {@code CompletableFuture<List<T>>} instance, never {@code null}.
      */
     public <T> CompletableFuture<List<T>> queryArrayAsync(final Class<T> targetClass) {
-        return CompletableFuture.supplyAsync(() -> this.impl_queryArray(targetClass));
+        final QueryCost cost = startQuery();
+        return QueryCoalescer.INSTANCE.submit(coalescingKey("array", targetClass), () -> this.impl_queryArray(targetClass, cost), executor); // NOI18N.
     }
 
     /**
      * Do a simply asynchronous query that returns a list of enum values.
-     * <br>This method returns immediately.
+     * <br>This method returns immediately; the query runs on the executor of this client.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.`
      * @return An {@code CompletableFuture<List<T>>} instance, never {@code null}.
      */
     public <T extends Enum> CompletableFuture<List<T>> queryEnumValuesAsync(final Class<T> targetClass) {
-        return CompletableFuture.supplyAsync(() -> this.impl_queryEnumValues(targetClass));
+        final QueryCost cost = startQuery();
+        return QueryCoalescer.INSTANCE.submit(coalescingKey("enum", targetClass), () -> this.impl_queryEnumValues(targetClass, cost), executor); // NOI18N.
     }
 
     /**
      * Do a simply asynchronous query that returns a page of of objects.
-     * <br>This method returns immediately.
+     * <br>This method returns immediately; the query runs on the executor of this client.
+     * <br>Concurrent identical queries share a single request and a single decoded result.
      * @param <T> The type to use.
      * @param targetClass The target class.`
      * @return An {@code CompletableFuture<PageResult<T>>} instance, never {@code null}.
      */
     public <T> CompletableFuture<PageResult<T>> queryPageAsync(final Class<T> targetClass) {
-        return CompletableFuture.supplyAsync(() -> this.impl_queryPage(targetClass));
+        final QueryCost cost = startQuery();
+        return QueryCoalescer.INSTANCE.submit(coalescingKey("page", targetClass), () -> this.impl_queryPage(targetClass, cost), executor); // NOI18N.
     }
 }
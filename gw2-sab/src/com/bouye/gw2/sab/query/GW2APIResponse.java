@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response returned by a {@code GW2APITransport}.
+ * <br>Closing the response drains whatever is left of its body so the underlying connection can be reused.
+ * @author Fabrice Bouyé
+ */
+public final class GW2APIResponse implements Closeable {
+
+    /**
+     * Size of the buffer used when draining the body.
+     */
+    private static final int DRAIN_BUFFER_SIZE = 4096;
+
+    /**
+     * The source URL.
+     */
+    private final URL url;
+    /**
+     * The HTTP status code.
+     */
+    private final int statusCode;
+    /**
+     * Response headers, keys are case insensitive.
+     */
+    private final Map<String, List<String>> headers;
+    /**
+     * The body of the response.
+     */
+    private final InputStream body;
+    /**
+     * Invoked once when the response is closed; may be {@code null}.
+     */
+    private final Runnable onClose;
+    /**
+     * Flag used to avoid closing the response twice.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /**
+     * Creates a new instance.
+     * @param url The source URL.
+     * @param statusCode The HTTP status code.
+     * @param headers The response headers.
+     * @param body The body of the response, may be {@code null}.
+     * @param onClose Invoked once when the response is closed, may be {@code null}.
+     * @throws NullPointerException If {@code url} or {@code headers} is {@code null}.
+     */
+    public GW2APIResponse(final URL url, final int statusCode, final Map<String, List<String>> headers, final InputStream body, final Runnable onClose) throws NullPointerException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(headers);
+        this.url = url;
+        this.statusCode = statusCode;
+        final Map<String, List<String>> headersCopy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.entrySet()
+                .stream()
+                // HttpURLConnection stores the status line under a null key.
+                .filter(entry -> entry.getKey() != null)
+                .forEach(entry -> headersCopy.put(entry.getKey(), entry.getValue()));
+        this.headers = Collections.unmodifiableMap(headersCopy);
+        this.body = new ResponseInputStream((body == null) ? new ByteArrayInputStream(new byte[0]) : body);
+        this.onClose = onClose;
+    }
+
+    public URL getURL() {
+        return url;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Gets all response headers.
+     * @return A non-modifiable {@code Map<String, List<String>>} instance, never {@code null}.
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets the first value of given header.
+     * @param name The name of the header, case insensitive.
+     * @return A {@code String} instance, may be {@code null}.
+     */
+    public String getHeader(final String name) {
+        final List<String> values = headers.get(name);
+        return (values == null || values.isEmpty()) ? null : values.get(0);
+    }
+
+    /**
+     * Gets the body of the response.
+     * <br>Closing this stream closes the response.
+     * @return An {@code InputStream} instance, never {@code null}.
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Tests whether the status code indicates a success.
+     * @return {@code True} if the property is verified, {@code false} otherwise.
+     */
+    public boolean isSuccess() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * Wraps this response into a single-use URL.
+     * <br>Opening a connection on the returned URL does not issue any new request, the connection serves the headers and body of this response.
+     * <br>This allows the response to be fed to the URL-based JSON-P context.
+     * @return An {@code URL} instance, never {@code null}.
+     * @throws MalformedURLException Should never happen.
+     */
+    public URL toURL() throws MalformedURLException {
+        return new URL(null, url.toExternalForm(), new ResponseURLStreamHandler(this));
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+
+    /**
+     * Drains and closes the body, then releases the underlying connection.
+     */
+    private final class ResponseInputStream extends FilterInputStream {
+
+        ResponseInputStream(final InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                // The connection only goes back to the keep-alive pool once the body has been fully read.
+                final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+                while (in.read(buffer) != -1) {
+                }
+            } finally {
+                try {
+                    in.close();
+                } finally {
+                    if (onClose != null) {
+                        onClose.run();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Defines how HTTP requests issued by the {@code GW2APIClient} reach the Web API.
+ * @author Fabrice Bouyé
+ */
+public interface GW2APITransport {
+
+    /**
+     * Issues a GET request.
+     * <br>This method blocks until the status line and the headers of the response have been received.
+     * <br>The returned response must be closed by the caller once its body has been consumed.
+     * @param url The target URL.
+     * @param headers Additional request headers.
+     * @return A {@code GW2APIResponse} instance, never {@code null}.
+     * @throws NullPointerException If {@code url} or {@code headers} is {@code null}.
+     * @throws IOException In case of IO error.
+     */
+    GW2APIResponse get(final URL url, final Map<String, String> headers) throws NullPointerException, IOException;
+}
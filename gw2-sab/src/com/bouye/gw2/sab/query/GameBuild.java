@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.core.APILevel;
+import com.bouye.gw2.sab.SABConstants;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+
+/**
+ * Tracks the game build by polling the {@code v2/build} endpoint.
+ * <br>When the build changes, static data cached with the {@link ExpiryPolicy#BUILD} policy is evicted from the {@link QueryCache}.
+ * <br>Polling starts the first time such data is cached.
+ * @author Fabrice Bouyé
+ */
+public enum GameBuild {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * The current build, -1 if not known yet.
+     */
+    private final AtomicInteger id = new AtomicInteger(-1);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * Gets the current game build.
+     * @return An {@code int}, -1 if not known yet.
+     */
+    public int getId() {
+        return id.get();
+    }
+
+    /**
+     * Starts polling the game build, if not done yet.
+     */
+    void start() {
+        if (SABConstants.INSTANCE.isOffline() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "GameBuild-poll"); // NOI18N.
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = SABConstants.INSTANCE.getWebApiBuildPollPeriod();
+        timer.scheduleWithFixedDelay(this::poll, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queries the current game build.
+     */
+    private void poll() {
+        try {
+            GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("build") // NOI18N.
+                    .priority(QueryPriority.BACKGROUND)
+                    .queryJson()
+                    .filter(value -> value instanceof JsonObject)
+                    .map(value -> ((JsonObject) value).getJsonNumber("id")) // NOI18N.
+                    .map(JsonNumber::intValue)
+                    .ifPresent(this::update);
+        } catch (RuntimeException ex) {
+            // Keep polling.
+            Logger.getLogger(GameBuild.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Records the current game build.
+     * @param value The build.
+     */
+    void update(final int value) {
+        final int previous = id.getAndSet(value);
+        if (previous != -1 && previous != value) {
+            Logger.getLogger(GameBuild.class.getName()).log(Level.INFO, String.format("Game build changed from %d to %d", previous, value)); // NOI18N.
+            QueryCache.INSTANCE.evictBuildBound();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.core.APILevel;
+import api.web.gw2.mapping.v1.guilddetails.GuildDetails;
+import api.web.gw2.mapping.v2.guild.id.Guild;
+import com.bouye.gw2.sab.SABConstants;
+import com.bouye.gw2.sab.db.DBStorage;
+import com.bouye.gw2.sab.demo.DemoSupport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves guild ids into guild names and tags.
+ * <br>Guilds are first looked up in the local DB; missing guilds are queried concurrently, with a bounded number of requests in flight, then stored in the local DB.
+ * <br>The V2 {@code guild/:id} endpoint is used when it answers, the V1 {@code guild_details.php} endpoint otherwise.
+ * @author Fabrice Bouyé
+ */
+public enum GuildResolver {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * Guilds stored in the local DB for longer than this are queried again, in ms.
+     */
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Executor on which guilds are fetched concurrently.
+     * <br>Callers block until the fan-out finishes and may themselves run on the default query executor, so requests must not wait in line behind them on that executor.
+     */
+    private static final ExecutorService FAN_OUT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "GuildResolver-fanout"); // NOI18N.
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Resolves guilds.
+     * <br>This method blocks until all guilds are resolved or failed.
+     * @param ids The ids of the guilds.
+     * @return A non-modifiable {@code Map<String, GuildSummary>} instance, never {@code null}.
+     * <br>Guilds appear in the same order as their ids; guilds that could not be resolved are missing.
+     */
+    public Map<String, GuildSummary> resolve(final String... ids) {
+        final Map<String, GuildSummary> result = new LinkedHashMap<>();
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        if (isOffline) {
+            DemoSupport.INSTANCE.loadGuilds(ids)
+                    .stream()
+                    .map(GuildResolver::fromV1)
+                    .forEach(guild -> result.put(guild.getId(), guild));
+            return Collections.unmodifiableMap(result);
+        }
+        final List<String> missing = new ArrayList<>();
+        final long minTimestamp = System.currentTimeMillis() - MAX_AGE;
+        Arrays.stream(ids)
+                .distinct()
+                .forEach(id -> {
+                    final Optional<GuildSummary> stored = DBStorage.INSTANCE.getGuild(id, minTimestamp);
+                    result.put(id, stored.orElse(null));
+                    if (!stored.isPresent()) {
+                        missing.add(id);
+                    }
+                });
+        if (!missing.isEmpty()) {
+            final List<Optional<GuildSummary>> queried = BoundedFanOut.map(missing, GW2APIClient.DEFAULT_PARALLELISM, FAN_OUT_EXECUTOR, this::query);
+            for (int index = 0; index < missing.size(); index++) {
+                final String id = missing.get(index);
+                final Optional<GuildSummary> guild = queried.get(index);
+                if (guild.isPresent()) {
+                    result.put(id, guild.get());
+                    DBStorage.INSTANCE.putGuild(guild.get());
+                }
+            }
+        }
+        result.values().removeIf(guild -> guild == null);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Queries a single guild from the Web API.
+     * @param id The id of the guild.
+     * @return An {@code Optional<GuildSummary>} instance, never {@code null}.
+     */
+    private Optional<GuildSummary> query(final String id) {
+        try {
+            final Optional<Guild> guild = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint(String.format("guild/%s", GW2APIClient.encodeURLParameter(id))) // NOI18N.
+                    .queryObject(Guild.class);
+            if (guild.isPresent()) {
+                return guild.map(value -> new GuildSummary(id, value.getName(), value.getTag()));
+            }
+            final Optional<GuildDetails> guildDetails = GW2APIClient.create()
+                    .apiLevel(APILevel.V1)
+                    .endPoint("guild_details.php") // NOI18N.
+                    .putParameter("guild_id", id) // NOI18N.
+                    .queryObject(GuildDetails.class);
+            return guildDetails.map(GuildResolver::fromV1);
+        } catch (RuntimeException ex) {
+            Logger.getLogger(GuildResolver.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+        return Optional.empty();
+    }
+
+    private static GuildSummary fromV1(final GuildDetails guildDetails) {
+        return new GuildSummary(guildDetails.getGuildId(), guildDetails.getGuildName(), guildDetails.getTag());
+    }
+}
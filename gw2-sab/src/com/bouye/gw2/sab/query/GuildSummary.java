@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.Objects;
+
+/**
+ * Public identity of a guild: its id, name and tag.
+ * <br>This is the part of a guild's details that both the V1 and the V2 endpoints return without authentication.
+ * @author Fabrice Bouyé
+ */
+public final class GuildSummary {
+
+    private final String id;
+    private final String name;
+    private final String tag;
+
+    /**
+     * Creates a new instance.
+     * @param id The id of the guild.
+     * @param name The name of the guild.
+     * @param tag The tag of the guild.
+     * @throws NullPointerException If {@code id}, {@code name} or {@code tag} is {@code null}.
+     */
+    public GuildSummary(final String id, final String name, final String tag) throws NullPointerException {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(tag);
+        this.id = id;
+        this.name = name;
+        this.tag = tag;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [%s]", name, tag); // NOI18N.
+    }
+}
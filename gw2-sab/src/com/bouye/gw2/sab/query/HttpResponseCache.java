@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.bouye.gw2.sab.db.DBStorage;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent HTTP response cache for the Web API.
+ * <br>Responses of static endpoints that carry an {@code ETag} or a {@code Last-Modified} validator are stored on disk, in the local storage folder of the application.
+ * <br>Subsequent requests are sent as conditional requests; when the server answers {@code 304 Not Modified}, the stored response is used instead.
+ * <br>Objects decoded from a stored response are kept in memory so they do not need to be decoded again as long as the response does not change.
+ * @author Fabrice Bouyé
+ */
+public enum HttpResponseCache {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * Name of the cache folder within the local storage folder.
+     */
+    private static final String CACHE_FOLDER = "http-cache"; // NOI18N.
+    private static final String ETAG_HEADER = "ETag"; // NOI18N.
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified"; // NOI18N.
+    private static final String URL_KEY = "url"; // NOI18N.
+    private static final String HEADER_KEY_PREFIX = "header."; // NOI18N.
+    /**
+     * Endpoints whose responses are stored.
+     * <br>Only static content that is requested again on each launch is worth storing; polled endpoints such as {@code wvw/matches/scores} would rewrite their file at each poll.
+     * <br>Endpoints such as {@code items} or {@code skins} are not stored either: each request carries a different batch of ids, so entries would almost never be reused.
+     */
+    private static final Set<String> END_POINTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "worlds", // NOI18N.
+            "currencies", // NOI18N.
+            "professions", // NOI18N.
+            "quaggans", // NOI18N.
+            "guild/upgrades", // NOI18N.
+            "files"))); // NOI18N.
+
+    /**
+     * A stored response.
+     * @author Fabrice Bouyé
+     */
+    static final class Entry {
+
+        /**
+         * The source URL.
+         */
+        private final URL url;
+        /**
+         * Stored response headers, including the validators.
+         */
+        private final Map<String, List<String>> headers;
+        /**
+         * File that contains the body.
+         */
+        private final Path bodyFile;
+        /**
+         * Objects decoded from the body, by decoding key.
+         * <br>The cache uses soft references that may be garbaged when the VM runs out of memory.
+         */
+        private final Map<String, SoftReference<Object>> decoded = new ConcurrentHashMap<>();
+
+        private Entry(final URL url, final Map<String, List<String>> headers, final Path bodyFile) {
+            this.url = url;
+            this.headers = headers;
+            this.bodyFile = bodyFile;
+        }
+
+        /**
+         * Gets the headers to send along a conditional request.
+         * @return A non-modifiable {@code Map<String, String>}, never {@code null}.
+         */
+        Map<String, String> getConditionalHeaders() {
+            final Map<String, String> result = new LinkedHashMap<>();
+            final List<String> etag = headers.get(ETAG_HEADER);
+            if (etag != null && !etag.isEmpty()) {
+                result.put("If-None-Match", etag.get(0)); // NOI18N.
+            }
+            final List<String> lastModified = headers.get(LAST_MODIFIED_HEADER);
+            if (lastModified != null && !lastModified.isEmpty()) {
+                result.put("If-Modified-Since", lastModified.get(0)); // NOI18N.
+            }
+            return Collections.unmodifiableMap(result);
+        }
+
+        /**
+         * Gets an object previously decoded from this entry.
+         * @param key The decoding key.
+         * @return An {@code Object} instance, may be {@code null}.
+         */
+        Object getDecoded(final String key) {
+            final SoftReference<Object> valueRef = decoded.get(key);
+            return (valueRef == null) ? null : valueRef.get();
+        }
+
+        /**
+         * Stores an object decoded from this entry.
+         * @param key The decoding key.
+         * @param value The decoded value.
+         */
+        void putDecoded(final String key, final Object value) {
+            if (value != null) {
+                decoded.put(key, new SoftReference<>(value));
+            }
+        }
+
+        /**
+         * Opens the stored response.
+         * @return A {@code GW2APIResponse} instance, never {@code null}.
+         * @throws IOException In case of IO error.
+         */
+        GW2APIResponse open() throws IOException {
+            return new GW2APIResponse(url, 200, headers, Files.newInputStream(bodyFile), null);
+        }
+    }
+
+    /**
+     * Entries loaded in memory, by URL.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong decodedHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    /**
+     * Gets the number of conditional requests that were answered by {@code 304 Not Modified}.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of hits that were served without decoding the response again.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getDecodedHitCount() {
+        return decodedHitCount.get();
+    }
+
+    /**
+     * Gets the number of cacheable requests that had to download the full response.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of conditional requests sent.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    /**
+     * Removes all stored responses, from memory and from disk.
+     */
+    public void clear() {
+        entries.clear();
+        final File[] files = getCacheFolder().listFiles();
+        if (files != null) {
+            Arrays.stream(files).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Tests whether the responses of an endpoint are stored.
+     * @param endPoint The endpoint, ie: {@code items}.
+     * @return A {@code boolean}.
+     */
+    boolean accepts(final String endPoint) {
+        return END_POINTS.contains(endPoint);
+    }
+
+    /**
+     * Looks up the stored response for given URL.
+     * <br>A non-{@code null} result means a conditional request should be sent.
+     * @param url The URL.
+     * @return An {@code Entry} instance, may be {@code null}.
+     */
+    Entry lookup(final String url) {
+        Entry result = entries.get(url);
+        if (result == null) {
+            result = load(url);
+            if (result != null) {
+                entries.putIfAbsent(url, result);
+                result = entries.get(url);
+            }
+        }
+        if (result != null) {
+            revalidationCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Reports that a conditional request was answered by {@code 304 Not Modified}.
+     * @param decodedHit {@code True} if the decoded value was still available.
+     */
+    void hit(final boolean decodedHit) {
+        hitCount.incrementAndGet();
+        if (decodedHit) {
+            decodedHitCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stores a response while its body is being read.
+     * <br>The response is committed to disk once its body has been entirely read; if the response carries no validator, nothing is stored.
+     * @param url The URL.
+     * @param response The response.
+     * @return A {@code GW2APIResponse} to read instead of {@code response}, never {@code null}.
+     */
+    GW2APIResponse store(final String url, final GW2APIResponse response) {
+        missCount.incrementAndGet();
+        if (response.getHeader(ETAG_HEADER) == null && response.getHeader(LAST_MODIFIED_HEADER) == null) {
+            entries.remove(url);
+            return response;
+        }
+        try {
+            final File folder = getCacheFolder();
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new IOException("Could not create HTTP cache folder."); // NOI18N.
+            }
+            final String name = fileName(url);
+            final Path tempFile = Files.createTempFile(folder.toPath(), name, ".tmp"); // NOI18N.
+            final OutputStream output = Files.newOutputStream(tempFile);
+            final InputStream body = new FilterInputStream(response.getBody()) {
+                private boolean complete = false;
+
+                @Override
+                public int read() throws IOException {
+                    final int result = super.read();
+                    if (result == -1) {
+                        complete = true;
+                    } else {
+                        output.write(result);
+                    }
+                    return result;
+                }
+
+                @Override
+                public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                    final int result = super.read(buffer, offset, length);
+                    if (result == -1) {
+                        complete = true;
+                    } else {
+                        output.write(buffer, offset, result);
+                    }
+                    return result;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        output.close();
+                        if (complete) {
+                            commit(url, response, name, tempFile);
+                        }
+                    } finally {
+                        Files.deleteIfExists(tempFile);
+                        super.close();
+                    }
+                }
+            };
+            return new GW2APIResponse(response.getURL(), response.getStatusCode(), response.getHeaders(), body, null);
+        } catch (IOException ex) {
+            Logger.getLogger(HttpResponseCache.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+        return response;
+    }
+
+    /**
+     * Commits a stored response.
+     * @param url The URL.
+     * @param response The response.
+     * @param name The base name of the files.
+     * @param tempFile Temporary file that contains the body.
+     * @throws IOException In case of IO error.
+     */
+    private void commit(final String url, final GW2APIResponse response, final String name, final Path tempFile) throws IOException {
+        final File folder = getCacheFolder();
+        final Path bodyFile = new File(folder, name + ".body").toPath(); // NOI18N.
+        final Properties properties = new Properties();
+        properties.setProperty(URL_KEY, url);
+        response.getHeaders().forEach((key, values) -> {
+            if (!values.isEmpty()) {
+                properties.setProperty(HEADER_KEY_PREFIX + key, values.get(0));
+            }
+        });
+        Files.move(tempFile, bodyFile, StandardCopyOption.REPLACE_EXISTING);
+        try (final OutputStream output = Files.newOutputStream(new File(folder, name + ".properties").toPath())) { // NOI18N.
+            properties.store(output, null);
+        }
+        final Entry entry = new Entry(response.getURL(), response.getHeaders(), bodyFile);
+        entries.put(url, entry);
+    }
+
+    /**
+     * Attaches a freshly decoded value to the response stored for given URL.
+     * <br>Has no effect if the response was not stored.
+     * @param url The URL.
+     * @param key The decoding key.
+     * @param value The decoded value.
+     */
+    void attach(final String url, final String key, final Object value) {
+        final Entry entry = entries.get(url);
+        if (entry != null) {
+            entry.putDecoded(key, value);
+        }
+    }
+
+    /**
+     * Loads the entry stored on disk for given URL.
+     * @param url The URL.
+     * @return An {@code Entry} instance, may be {@code null}.
+     */
+    private Entry load(final String url) {
+        final File folder = getCacheFolder();
+        final String name = fileName(url);
+        final File propertiesFile = new File(folder, name + ".properties"); // NOI18N.
+        final File bodyFile = new File(folder, name + ".body"); // NOI18N.
+        if (!propertiesFile.exists() || !bodyFile.exists()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (final InputStream input = Files.newInputStream(propertiesFile.toPath())) {
+            properties.load(input);
+            // Guard against hash collisions.
+            if (!url.equals(properties.getProperty(URL_KEY))) {
+                return null;
+            }
+            final Map<String, List<String>> headers = new HashMap<>();
+            properties.stringPropertyNames()
+                    .stream()
+                    .filter(key -> key.startsWith(HEADER_KEY_PREFIX))
+                    .forEach(key -> headers.put(key.substring(HEADER_KEY_PREFIX.length()), Collections.singletonList(properties.getProperty(key))));
+            return new Entry(new URL(url), headers, bodyFile.toPath());
+        } catch (IOException ex) {
+            Logger.getLogger(HttpResponseCache.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the cache folder.
+     * @return A {@code File} instance, never {@code null}.
+     */
+    private File getCacheFolder() {
+        return new File(DBStorage.INSTANCE.getStorageFolder(), CACHE_FOLDER);
+    }
+
+    /**
+     * Gets the base name of the files that store the response of given URL.
+     * @param url The URL.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    private static String fileName(final String url) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8)); // NOI18N.
+            final StringBuilder result = new StringBuilder(digest.length * 2);
+            for (final byte value : digest) {
+                result.append(String.format("%02x", value)); // NOI18N.
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // Should never happen.
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,4 +1,4 @@
-/* 
+/*
  * Copyright (C) 2016-2017 Fabrice Bouyé
  * All rights reserved.
  *
@@ -9,17 +9,41 @@ package com.bouye.gw2.sab.query;
 
 import com.bouye.gw2.sab.SABConstants;
 import com.bouye.gw2.sab.db.DBStorage;
-import java.lang.ref.SoftReference;
-import java.util.Collections;
-import java.util.HashMap;
+import com.bouye.gw2.sab.net.IOUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.AbstractMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javafx.application.Platform;
 import javafx.scene.image.Image;
 
 /**
  * Cache for images and icons provided by the Web API.
+ * <br>Remote images go through a pipeline: they are downloaded by a bounded pool of workers, then decoded by another pool, never on the JavaFX application thread.
+ * Icons of the render service are immutable and are written through to the local storage, so they are never downloaded again in later sessions.
+ * <br>The cache is bounded by the size of decoded images (width &times; height &times; 4 bytes); once the budget is exceeded, the least recently used images are evicted.
+ * <br>Images that are on screen may be pinned so they are never evicted.
+ * <br>Lookups of different URLs never share a lock.
  * @author Fabrice Bouyé
  */
 public enum ImageCache {
@@ -30,14 +54,107 @@ public enum ImageCache {
     INSTANCE;
 
     /**
-     * The icon cache.
-     * <br>The cache uses soft references that may be garbaged when the VM runs out of memory.
+     * Number of bytes per decoded pixel.
      */
-    private final Map<String, SoftReference<Image>> cache = Collections.synchronizedMap(new HashMap());
+    private static final int BYTES_PER_PIXEL = 4;
+    /**
+     * Delay before an image that could not be loaded is loaded again, in ns.
+     */
+    private static final long FAILURE_RETRY_DELAY = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Name of the threads that download images.
+     */
+    private static final String DOWNLOAD_THREAD_NAME = "ImageCache-download-%d"; // NOI18N.
+    /**
+     * Name of the threads that decode images.
+     */
+    private static final String DECODE_THREAD_NAME = "ImageCache-decode-%d"; // NOI18N.
+
+    /**
+     * An entry in the cache.
+     * @author Fabrice Bouyé
+     */
+    private static final class CachedImage {
+
+        final String url;
+        /**
+         * The image, completed once decoded; completed with {@code null} if it could not be loaded.
+         */
+        final CompletableFuture<Image> image = new CompletableFuture<>();
+        /**
+         * Size of the decoded image in bytes, 0 until known, -1 once evicted.
+         */
+        final AtomicLong weight = new AtomicLong();
+        /**
+         * Time of the last access, in ns.
+         */
+        volatile long lastAccess = System.nanoTime();
+        /**
+         * Time at which the image failed to load, in ns; only meaningful once {@code failed} is {@code true}.
+         */
+        volatile long failedAt;
+        /**
+         * {@code True} if the image could not be loaded.
+         */
+        volatile boolean failed = false;
+
+        CachedImage(final String url) {
+            this.url = url;
+        }
+    }
+
+    /**
+     * The image cache.
+     * <br>Entries of images that failed to load are kept for a short while, which prevents from retrieval attempts at each access; they are replaced by a new attempt once {@link #FAILURE_RETRY_DELAY} has elapsed.
+     */
+    private final ConcurrentMap<String, CachedImage> cache = new ConcurrentHashMap<>();
+    /**
+     * Pin count of each URL.
+     */
+    private final ConcurrentMap<String, Integer> pins = new ConcurrentHashMap<>();
+    /**
+     * Only one thread evicts at a time; other threads do not wait for it.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /**
+     * Size of the decoded images in the cache, in bytes.
+     */
+    private final AtomicLong byteSize = new AtomicLong();
+    private volatile long maximumByteSize = SABConstants.INSTANCE.getImageCacheSize() * 1024L * 1024L;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder downloadCount = new LongAdder();
+    private final LongAdder storeHitCount = new LongAdder();
+    /**
+     * Downloads remote images.
+     */
+    private final ExecutorService downloadExecutor = newPool(DOWNLOAD_THREAD_NAME, SABConstants.INSTANCE.getImageDownloadThreads());
+    /**
+     * Reads images from the local storage and decodes them.
+     */
+    private final ExecutorService decodeExecutor = newPool(DECODE_THREAD_NAME, SABConstants.INSTANCE.getImageDecodeThreads());
+    private volatile String renderServiceUrl = SABConstants.INSTANCE.getRenderServiceUrl();
+
+    /**
+     * Creates a pool of daemon threads.
+     * @param name The name of the threads.
+     * @param threadCount The number of threads.
+     * @return An {@code ExecutorService} instance, never {@code null}.
+     */
+    private static ExecutorService newPool(final String name, final int threadCount) {
+        final AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, String.format(name, threadIndex.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
      * Retrieves an image from the cache.
-     * <br>If the image is not in the cache, an empty image is returned and the data of the image is loaded in the background.
+     * <br>If the image has not been decoded yet, {@code null} is returned and the image is loaded in the background; use {@link #loadImage(String, Consumer)} to be notified once it is available.
      * @param url The URL of the image.
      * @return An {@code Image} instance, may be {@code null}.
      * @throws NullPointerException If {@code url} is {@code null}.
@@ -49,36 +166,322 @@ public enum ImageCache {
     /**
      * Retrieves an image from the cache.
      * @param url The URL of the image.
-     * @param backgroundLoading If {@code true}, the image is loaded in background.
+     * @param backgroundLoading If {@code true}, the image is loaded in background; otherwise this method blocks until the image is available.
      * @return An {@code Image} instance, may be {@code null}.
      * @throws NullPointerException If {@code url} is {@code null}.
      */
     public Image getImage(final String url, final boolean backgroundLoading) throws NullPointerException {
+        final CompletableFuture<Image> image = loadImage(url);
+        return backgroundLoading ? image.getNow(null) : image.join();
+    }
+
+    /**
+     * Retrieves an image from the cache and hands it to a consumer on the JavaFX application thread.
+     * <br>The consumer is invoked immediately if the image has already been decoded; this method should then be invoked from the JavaFX application thread.
+     * @param url The URL of the image.
+     * @param consumer Receives the image, which may be {@code null} if it could not be loaded.
+     * @throws NullPointerException If {@code url} or {@code consumer} is {@code null}.
+     */
+    public void loadImage(final String url, final Consumer<Image> consumer) throws NullPointerException {
+        Objects.requireNonNull(consumer);
+        final CompletableFuture<Image> image = loadImage(url);
+        if (image.isDone()) {
+            consumer.accept(image.join());
+        } else {
+            image.thenAcceptAsync(consumer, Platform::runLater);
+        }
+    }
+
+    /**
+     * Retrieves an image from the cache.
+     * <br>Images of the local storage are loaded on the calling thread; remote images are loaded in the background.
+     * @param url The URL of the image.
+     * @return A {@code CompletableFuture<Image>} instance, never {@code null}.
+     * <br>Completes with {@code null} if the image could not be loaded; the image is loaded again if requested once the retry delay has elapsed.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    public CompletableFuture<Image> loadImage(final String url) throws NullPointerException {
         Objects.requireNonNull(url);
-        Image result = null;
-        synchronized (cache) {
-            SoftReference<Image> imageRef = cache.get(url);
-            result = (imageRef == null) ? null : imageRef.get();
-            if (result == null && !cache.containsKey(url)) {
-                try {
-                    // For local images, access the data base and ignore the background loading parameter.
-                    if (!url.startsWith("https://")) { // NOI18N.
-                        result = DBStorage.INSTANCE.getImageFromCache(url);
-                    } // Remote image.
-                    else if (!SABConstants.INSTANCE.isOffline()) {
-                        result = new Image(url, backgroundLoading);
-                    } else {
-                        // @todo Return a local (as embededed within the app) default non-null image when in offline mode.   
+        CachedImage entry = cache.get(url);
+        // A failure may be transient (ie: bad connexion), try again after a while.
+        if (entry != null && entry.failed && System.nanoTime() - entry.failedAt > FAILURE_RETRY_DELAY) {
+            cache.remove(url, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            final CachedImage newEntry = new CachedImage(url);
+            entry = cache.putIfAbsent(url, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+                missCount.increment();
+                load(newEntry);
+            } else {
+                hitCount.increment();
+            }
+        } else {
+            hitCount.increment();
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.image;
+    }
+
+    /**
+     * Loads an image.
+     * @param entry The entry of the image.
+     */
+    private void load(final CachedImage entry) {
+        final String url = entry.url;
+        entry.image.thenAccept(image -> weigh(entry, image));
+        // For local images, access the data base.
+        if (!url.startsWith("https://") && !url.startsWith("http://")) { // NOI18N.
+            Image image = null;
+            try {
+                image = DBStorage.INSTANCE.getImageFromCache(url);
+            } catch (Exception ex) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, ex.getMessage(), ex);
+            }
+            complete(entry, image);
+            return;
+        }
+        final boolean persistent = url.startsWith(renderServiceUrl);
+        CompletableFuture.supplyAsync(() -> persistent ? DBStorage.INSTANCE.getIcon(url) : Optional.<byte[]>empty(), decodeExecutor)
+                .thenCompose(stored -> {
+                    if (stored.isPresent()) {
+                        storeHitCount.increment();
+                        return CompletableFuture.completedFuture(stored.get());
                     }
-                    imageRef = new SoftReference<>(result);
-                } catch (Exception ex) {
-                    Logger.getLogger(getClass().getName()).log(Level.WARNING, ex.getMessage(), ex);
-                    cache.put(url, null);
-                }
-                // Storing the key upon failure should prevent from further retrieval attempts.
-                cache.put(url, imageRef);
+                    // @todo Return a local (as embededed within the app) default non-null image when in offline mode.
+                    return SABConstants.INSTANCE.isOffline() ? CompletableFuture.<byte[]>completedFuture(null) : CompletableFuture.supplyAsync(() -> download(url, persistent), downloadExecutor);
+                })
+                .thenApplyAsync(this::decode, decodeExecutor)
+                .whenComplete((image, ex) -> {
+                    if (ex != null) {
+                        Logger.getLogger(getClass().getName()).log(Level.WARNING, ex.getMessage(), ex);
+                    }
+                    complete(entry, (ex == null) ? image : null);
+                });
+    }
+
+    /**
+     * Completes the entry of an image.
+     * @param entry The entry.
+     * @param image The image, {@code null} if it could not be loaded.
+     */
+    private void complete(final CachedImage entry, final Image image) {
+        if (image == null) {
+            entry.failedAt = System.nanoTime();
+            entry.failed = true;
+        }
+        entry.image.complete(image);
+    }
+
+    /**
+     * Downloads an image.
+     * @param url The URL of the image.
+     * @param persistent If {@code true}, the image is written through to the local storage.
+     * @return A {@code byte[]} instance, {@code null} if the download failed.
+     */
+    private byte[] download(final String url, final boolean persistent) {
+        byte[] result = null;
+        try (final InputStream input = new URL(url).openStream();
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            IOUtils.INSTANCE.copy(input, output);
+            result = output.toByteArray();
+            downloadCount.increment();
+            if (persistent) {
+                DBStorage.INSTANCE.putIcon(url, result);
             }
+            // May happen when download fails (ie: bad connexion, missing image, etc.).
+        } catch (IOException ex) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING, ex.getMessage(), ex);
         }
         return result;
     }
+
+    /**
+     * Decodes an image.
+     * @param data The data of the image, may be {@code null}.
+     * @return An {@code Image} instance, {@code null} if the data could not be decoded.
+     */
+    private Image decode(final byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        final Image result = new Image(new ByteArrayInputStream(data));
+        return result.isError() ? null : result;
+    }
+
+    /**
+     * Pins an image so it is not evicted, ie: while it is on screen.
+     * <br>Pins are counted; the image may be evicted again once it has been unpinned as many times as it has been pinned.
+     * @param url The URL of the image.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    public void pin(final String url) throws NullPointerException {
+        pins.merge(url, 1, Integer::sum);
+    }
+
+    /**
+     * Unpins an image.
+     * @param url The URL of the image.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    public void unpin(final String url) throws NullPointerException {
+        pins.computeIfPresent(url, (key, count) -> (count == 1) ? null : count - 1);
+        evictIfNeeded();
+    }
+
+    /**
+     * Sets the maximum size of the decoded images in the cache.
+     * @param value The size in bytes.
+     * @throws IllegalArgumentException If {@code value} &lt; 0.
+     */
+    public void setMaximumByteSize(final long value) throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException();
+        }
+        maximumByteSize = value;
+        evictIfNeeded();
+    }
+
+    /**
+     * Gets the maximum size of the decoded images in the cache.
+     * @return A {@code long} &ge; 0, in bytes.
+     */
+    public long getMaximumByteSize() {
+        return maximumByteSize;
+    }
+
+    /**
+     * Gets the size of the decoded images in the cache.
+     * <br>Images that are still loading are not accounted for yet.
+     * @return A {@code long} &ge; 0, in bytes.
+     */
+    public long getByteSize() {
+        return byteSize.get();
+    }
+
+    /**
+     * Gets the number of lookups that found the image in the cache.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to load the image.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of images evicted to stay within the budget.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Gets the number of images downloaded from the network.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getDownloadCount() {
+        return downloadCount.sum();
+    }
+
+    /**
+     * Gets the number of remote images read from the local storage instead of the network.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getStoreHitCount() {
+        return storeHitCount.sum();
+    }
+
+    /**
+     * Sets the base URL of the render service, whose icons are written through to the local storage.
+     * <br>Tests may use this method to serve icons from a local server.
+     * @param value The new value, ie: {@code https://render.guildwars2.com}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    public void setRenderServiceUrl(final String value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        renderServiceUrl = value;
+    }
+
+    /**
+     * Removes all images from the memory cache; images in the local storage are kept.
+     */
+    public void clear() {
+        cache.values()
+                .forEach(entry -> {
+                    if (cache.remove(entry.url, entry)) {
+                        final long weight = entry.weight.getAndSet(-1);
+                        if (weight > 0) {
+                            byteSize.addAndGet(-weight);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Gets the number of entries in the cache.
+     * @return An {@code int} &ge; 0.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Accounts for the size of an image once it has been decoded.
+     * @param entry The entry.
+     * @param image The image, may be {@code null}.
+     */
+    private void weigh(final CachedImage entry, final Image image) {
+        if (image == null) {
+            return;
+        }
+        final long weight = Math.max(1, (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL);
+        // Fails if the entry has been evicted in the meantime.
+        if (entry.weight.compareAndSet(0, weight)) {
+            byteSize.addAndGet(weight);
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Evicts the least recently used images that are not pinned until the cache fits in its budget.
+     */
+    private void evictIfNeeded() {
+        if (byteSize.get() <= maximumByteSize || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // Access times are copied first since they keep changing while sorting.
+            final List<Map.Entry<Long, CachedImage>> candidates = cache.values()
+                    .stream()
+                    .filter(entry -> entry.weight.get() > 0)
+                    .map(entry -> new AbstractMap.SimpleImmutableEntry<>(entry.lastAccess, entry))
+                    .sorted(Map.Entry.comparingByKey())
+                    .collect(Collectors.toList());
+            for (final Map.Entry<Long, CachedImage> candidate : candidates) {
+                if (byteSize.get() <= maximumByteSize) {
+                    break;
+                }
+                final CachedImage entry = candidate.getValue();
+                if (!pins.containsKey(entry.url) && cache.remove(entry.url, entry)) {
+                    final long weight = entry.weight.getAndSet(-1);
+                    if (weight > 0) {
+                        byteSize.addAndGet(-weight);
+                    }
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
 }
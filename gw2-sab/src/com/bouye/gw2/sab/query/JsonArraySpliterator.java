@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonParser;
+
+/**
+ * Spliterator that decodes the elements of a JSON array one at a time while the response is being read.
+ * <br>Each element is copied in a small buffer and handed to the decoder as if it were a response on its own; only a single element is held in memory at any time.
+ * <br>The response is closed once the end of the array is reached, when decoding fails or when this spliterator is closed.
+ * @param <T> The type of the values.
+ * @author Fabrice Bouyé
+ */
+final class JsonArraySpliterator<T> implements Spliterator<T> {
+
+    /**
+     * The response being read.
+     */
+    private final GW2APIResponse response;
+    /**
+     * Decodes a single element.
+     */
+    private final GW2APIClient.ResponseDecoder<T> decoder;
+    /**
+     * Streaming parser on the body of the response.
+     */
+    private final JsonParser parser;
+    /**
+     * Buffer reused for each element.
+     */
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    /**
+     * {@code True} once the opening bracket of the array has been read.
+     */
+    private boolean started = false;
+    /**
+     * {@code True} once the response has been closed.
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new instance.
+     * @param response The response whose body is a JSON array.
+     * @param decoder Decodes a single element.
+     * @throws NullPointerException If {@code response} or {@code decoder} is {@code null}.
+     */
+    JsonArraySpliterator(final GW2APIResponse response, final GW2APIClient.ResponseDecoder<T> decoder) throws NullPointerException {
+        Objects.requireNonNull(response);
+        Objects.requireNonNull(decoder);
+        this.response = response;
+        this.decoder = decoder;
+        this.parser = Json.createParser(response.getBody());
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) throws RuntimeException {
+        Objects.requireNonNull(action);
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!started) {
+                started = true;
+                if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                    throw new IOException(String.format("%s does not contain an array.", response.getURL())); // NOI18N.
+                }
+            }
+            final JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_ARRAY) {
+                close();
+                return false;
+            }
+            buffer.reset();
+            try (final JsonGenerator generator = Json.createGenerator(buffer)) {
+                copy(event, generator);
+            }
+            final GW2APIResponse element = new GW2APIResponse(response.getURL(), response.getStatusCode(), response.getHeaders(), new ByteArrayInputStream(buffer.toByteArray()), null);
+            final T value = decoder.decode(element.toURL());
+            action.accept(value);
+            return true;
+        } catch (IOException | JsonException ex) {
+            close();
+            throw new RuntimeException(ex);
+        } catch (RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Copies a single value, including all its children, from the parser to the generator.
+     * @param first The first event of the value, already read from the parser.
+     * @param generator The generator.
+     */
+    private void copy(final JsonParser.Event first, final JsonGenerator generator) {
+        int depth = 0;
+        JsonParser.Event event = first;
+        while (true) {
+            switch (event) {
+                case START_ARRAY:
+                    generator.writeStartArray();
+                    depth++;
+                    break;
+                case START_OBJECT:
+                    generator.writeStartObject();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                case END_OBJECT:
+                    generator.writeEnd();
+                    depth--;
+                    break;
+                case KEY_NAME:
+                    generator.writeKey(parser.getString());
+                    break;
+                case VALUE_STRING:
+                    generator.write(parser.getString());
+                    break;
+                case VALUE_NUMBER:
+                    // Keeps the exact value of the number, whatever its size.
+                    generator.write(parser.getBigDecimal());
+                    break;
+                case VALUE_TRUE:
+                    generator.write(true);
+                    break;
+                case VALUE_FALSE:
+                    generator.write(false);
+                    break;
+                case VALUE_NULL:
+                default:
+                    generator.writeNull();
+            }
+            if (depth == 0) {
+                break;
+            }
+            event = parser.next();
+        }
+    }
+
+    /**
+     * Closes the response.
+     * <br>If the array has not been entirely read, the rest of the body is discarded.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            parser.close();
+            response.close();
+        } catch (IOException | JsonException ex) {
+            Logger.getLogger(JsonArraySpliterator.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // The body can only be read sequentially.
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+}
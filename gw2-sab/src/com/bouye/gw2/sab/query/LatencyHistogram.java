@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations.
+ * <br>Durations are sorted in buckets whose bounds are powers of two microseconds; recording a value only updates a couple of atomic counters and never allocates.
+ * <br>Percentiles are therefore approximate: the upper bound of the bucket that contains the requested rank is returned.
+ * @author Fabrice Bouyé
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of buckets: {@value}.
+     * <br>The last bucket holds all durations longer than about 35 minutes.
+     */
+    private static final int BUCKET_COUNT = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    /**
+     * Sum of all durations, in ns.
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * Longest duration, in ns.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates a new empty instance.
+     */
+    LatencyHistogram() {
+    }
+
+    /**
+     * Records a duration.
+     * @param nanos The duration, in ns.
+     */
+    void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        final long micros = value / 1_000;
+        // Bucket i holds durations in [2^i, 2^(i+1)) µs; bucket 0 also holds durations under 1 µs.
+        final int index = Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, micros)));
+        buckets.incrementAndGet(index);
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the mean duration.
+     * @return A {@code double} &ge; 0, in ms; {@code 0} if nothing has been recorded.
+     */
+    public double getMean() {
+        final long n = count.sum();
+        return (n == 0) ? 0 : sum.sum() / (n * 1_000_000d);
+    }
+
+    /**
+     * Gets the longest duration.
+     * @return A {@code double} &ge; 0, in ms.
+     */
+    public double getMax() {
+        return max.get() / 1_000_000d;
+    }
+
+    /**
+     * Gets an approximate percentile.
+     * @param percentile The percentile, in [0, 100].
+     * @return A {@code double} &ge; 0, in ms; {@code 0} if nothing has been recorded.
+     * @throws IllegalArgumentException If {@code percentile} is not in [0, 100].
+     */
+    public double getPercentile(final double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException();
+        }
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            snapshot[index] = buckets.get(index);
+            total += snapshot[index];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            seen += snapshot[index];
+            if (seen >= rank) {
+                // Upper bound of the bucket, never above the longest recorded duration.
+                return Math.min((2L << index) / 1_000d, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            buckets.set(index, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
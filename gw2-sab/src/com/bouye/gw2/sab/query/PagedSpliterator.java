@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Spliterator that walks through all pages of a paginated endpoint.
+ * <br>The first page is fetched on first use and gives the total number of pages; the following pages are then fetched concurrently, ahead of the consumer, within a fixed window.
+ * <br>At most {@code window} pages are held in memory at any time, regardless of the size of the collection.
+ * @param <T> The type of the values.
+ * @author Fabrice Bouyé
+ */
+final class PagedSpliterator<T> implements Spliterator<T> {
+
+    /**
+     * A page of values.
+     * @param <T> The type of the values.
+     * @author Fabrice Bouyé
+     */
+    static final class Page<T> {
+
+        /**
+         * Values in this page.
+         */
+        final List<T> values;
+        /**
+         * Total number of pages, as reported by the {@code X-Page-Total} header.
+         */
+        final int pageTotal;
+
+        /**
+         * Creates a new instance.
+         * @param values The values in this page.
+         * @param pageTotal The total number of pages.
+         * @throws NullPointerException If {@code values} is {@code null}.
+         */
+        Page(final List<T> values, final int pageTotal) throws NullPointerException {
+            Objects.requireNonNull(values);
+            this.values = values;
+            this.pageTotal = pageTotal;
+        }
+    }
+
+    /**
+     * Fetches a page by index, blocking.
+     */
+    private final IntFunction<Page<T>> pageFetcher;
+    /**
+     * Executor on which the following pages are fetched.
+     */
+    private final Executor executor;
+    /**
+     * Maximum number of pages fetched or held at any time.
+     */
+    private final int window;
+    /**
+     * Pages being fetched or waiting to be consumed, in page order.
+     */
+    private final Deque<CompletableFuture<Page<T>>> pending = new ArrayDeque<>();
+    /**
+     * Values of the page being consumed.
+     */
+    private Iterator<T> current = Collections.emptyIterator();
+    /**
+     * Total number of pages, {@code -1} until the first page has been fetched.
+     */
+    private int pageTotal = -1;
+    /**
+     * Index of the next page to request.
+     */
+    private int nextPage = 0;
+    /**
+     * {@code True} once the spliterator has been closed.
+     */
+    private boolean closed = false;
+
+    /**
+     * Creates a new instance.
+     * @param pageFetcher Fetches a page by index, blocking.
+     * @param executor Executor on which the following pages are fetched.
+     * @param window Maximum number of pages fetched or held at any time.
+     * @throws NullPointerException If {@code pageFetcher} or {@code executor} is {@code null}.
+     * @throws IllegalArgumentException If {@code window} is lower than 1.
+     */
+    PagedSpliterator(final IntFunction<Page<T>> pageFetcher, final Executor executor, final int window) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(pageFetcher);
+        Objects.requireNonNull(executor);
+        if (window < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.pageFetcher = pageFetcher;
+        this.executor = executor;
+        this.window = window;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        Objects.requireNonNull(action);
+        while (!current.hasNext()) {
+            if (!nextPage()) {
+                return false;
+            }
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    /**
+     * Moves to the next page.
+     * @return {@code False} if there are no more pages.
+     * @throws RuntimeException If the page could not be fetched.
+     */
+    private boolean nextPage() throws RuntimeException {
+        if (closed) {
+            return false;
+        }
+        Page<T> page = null;
+        final CompletableFuture<Page<T>> future = pending.poll();
+        if (pageTotal < 0) {
+            // The first page is fetched on the calling thread since it tells how many pages there are.
+            page = pageFetcher.apply(nextPage++);
+            pageTotal = Math.max(1, page.pageTotal);
+        } else if (future == null) {
+            // Nothing fetched ahead, which happens with a window of a single page.
+            if (nextPage >= pageTotal) {
+                return false;
+            }
+            page = pageFetcher.apply(nextPage++);
+        } else {
+            try {
+                page = future.join();
+            } catch (CompletionException ex) {
+                close();
+                final Throwable cause = ex.getCause();
+                throw (cause instanceof RuntimeException) ? (RuntimeException) cause : ex;
+            }
+        }
+        // The slot of the page just received is handed to the next page.
+        while (nextPage < pageTotal && pending.size() < window - 1) {
+            final int pageIndex = nextPage++;
+            pending.add(CompletableFuture.supplyAsync(() -> pageFetcher.apply(pageIndex), executor));
+        }
+        current = page.values.iterator();
+        return true;
+    }
+
+    /**
+     * Cancels pages that are still being fetched.
+     */
+    void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        pending.forEach(future -> future.cancel(false));
+        pending.clear();
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        // Pages are already fetched concurrently.
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
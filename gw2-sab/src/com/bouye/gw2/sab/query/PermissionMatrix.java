@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.tokeninfo.TokenInfoPermission;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What an application key may query.
+ * <br>Permits of all endpoints are computed once, when the permissions of the key become known; until then, everything is granted and the server decides.
+ * <br>Instances are immutable.
+ * @author Fabrice Bouyé
+ */
+public final class PermissionMatrix {
+
+    /**
+     * Matrix of a key whose permissions are not known yet.
+     */
+    static final PermissionMatrix UNKNOWN = new PermissionMatrix(null, null);
+
+    /**
+     * Permissions of the key, {@code null} if not known yet.
+     */
+    private final Set<TokenInfoPermission> permissions;
+    /**
+     * Ids of the guilds the account leads, {@code null} if not known yet.
+     */
+    private final Set<String> guildLeader;
+    /**
+     * Permit of each endpoint, guild leadership aside.
+     */
+    private final Map<AuthenticatedEndPoint, QueryPermit> permits = new EnumMap<>(AuthenticatedEndPoint.class);
+
+    /**
+     * Creates a new instance.
+     * @param permissions Permissions of the key, {@code null} if not known yet.
+     * @param guildLeader Ids of the guilds the account leads, {@code null} if not known yet.
+     */
+    private PermissionMatrix(final Set<TokenInfoPermission> permissions, final Set<String> guildLeader) {
+        this.permissions = (permissions == null) ? null : Collections.unmodifiableSet(permissions.isEmpty() ? EnumSet.noneOf(TokenInfoPermission.class) : EnumSet.copyOf(permissions));
+        this.guildLeader = (guildLeader == null) ? null : Collections.unmodifiableSet(new HashSet<>(guildLeader));
+        for (final AuthenticatedEndPoint endPoint : AuthenticatedEndPoint.values()) {
+            QueryPermit permit = QueryPermit.granted(endPoint);
+            if (this.permissions != null) {
+                final Set<TokenInfoPermission> missing = EnumSet.copyOf(endPoint.getPermissions());
+                missing.removeAll(this.permissions);
+                permit = QueryPermit.of(endPoint, missing, false);
+            }
+            permits.put(endPoint, permit);
+        }
+    }
+
+    /**
+     * Creates a new matrix.
+     * @param permissions Permissions of the key, {@code null} if not known.
+     * @param guildLeader Ids of the guilds the account leads, {@code null} if not known.
+     * @return A {@code PermissionMatrix} instance, never {@code null}.
+     */
+    public static PermissionMatrix of(final Set<TokenInfoPermission> permissions, final Set<String> guildLeader) {
+        return (permissions == null && guildLeader == null) ? UNKNOWN : new PermissionMatrix(permissions, guildLeader);
+    }
+
+    /**
+     * Creates a copy of this matrix with new permissions.
+     * @param value The permissions of the key.
+     * @return A {@code PermissionMatrix} instance, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    PermissionMatrix withPermissions(final Set<TokenInfoPermission> value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        return new PermissionMatrix(value, guildLeader);
+    }
+
+    /**
+     * Creates a copy of this matrix with new guild leadership.
+     * @param value The ids of the guilds the account leads.
+     * @return A {@code PermissionMatrix} instance, never {@code null}.
+     * @throws NullPointerException If {@code value} is {@code null}.
+     */
+    PermissionMatrix withGuildLeader(final Set<String> value) throws NullPointerException {
+        Objects.requireNonNull(value);
+        return new PermissionMatrix(permissions, value);
+    }
+
+    /**
+     * Indicates whether the permissions of the key are known.
+     * @return A {@code boolean}.
+     */
+    public boolean isPermissionsKnown() {
+        return permissions != null;
+    }
+
+    /**
+     * Indicates whether the guilds the account leads are known.
+     * @return A {@code boolean}.
+     */
+    public boolean isGuildLeaderKnown() {
+        return guildLeader != null;
+    }
+
+    /**
+     * Indicates whether the key has a permission.
+     * @param permission The permission.
+     * @return {@code True} if the key has the permission or its permissions are not known yet, {@code false} otherwise.
+     * @throws NullPointerException If {@code permission} is {@code null}.
+     */
+    public boolean hasPermission(final TokenInfoPermission permission) throws NullPointerException {
+        Objects.requireNonNull(permission);
+        return (permissions == null) || permissions.contains(permission);
+    }
+
+    /**
+     * Checks whether an endpoint that is not specific to a guild may be queried.
+     * @param endPoint The endpoint.
+     * @return A {@code QueryPermit} instance, never {@code null}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    public QueryPermit check(final AuthenticatedEndPoint endPoint) throws NullPointerException {
+        return check(endPoint, null);
+    }
+
+    /**
+     * Checks whether an endpoint may be queried.
+     * @param endPoint The endpoint.
+     * @param guildId The id of the guild, for guild endpoints.
+     * @return A {@code QueryPermit} instance, never {@code null}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    public QueryPermit check(final AuthenticatedEndPoint endPoint, final String guildId) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        final QueryPermit result = permits.get(endPoint);
+        final boolean notLeader = endPoint.isGuildLeaderOnly() && guildId != null && guildLeader != null && !guildLeader.contains(guildId);
+        return notLeader ? QueryPermit.of(endPoint, result.getMissingPermissions(), true) : result;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.account.Account;
+import api.web.gw2.mapping.v2.tokeninfo.TokenInfo;
+import api.web.gw2.mapping.v2.tokeninfo.TokenInfoPermission;
+import com.bouye.gw2.sab.session.Session;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides up front whether authenticated queries can succeed, so queries the application key is not allowed to do cost neither a request nor an error.
+ * <br>The permission matrix of each key is cached. It is filled from the token info and the account whenever the session is updated; if a key is checked before that, its token info (and account, for guild endpoints) is queried once.
+ * <br>As long as the permissions of a key are not known, all queries are granted and the server decides.
+ * @author Fabrice Bouyé
+ */
+public enum PermissionPlanner {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * Delay before the token info of a key is queried again after a first failure, in ms.
+     */
+    private static final long MIN_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Maximum delay before the token info of a key is queried again, in ms.
+     */
+    private static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * A failed token info lookup.
+     * @author Fabrice Bouyé
+     */
+    private static final class Failure {
+
+        /**
+         * Number of consecutive failures.
+         */
+        final int count;
+        /**
+         * Time after which the token info may be queried again, in ms.
+         */
+        final long retryAt;
+
+        Failure(final int count, final long retryAt) {
+            this.count = count;
+            this.retryAt = retryAt;
+        }
+    }
+
+    /**
+     * Permission matrix of each application key.
+     */
+    private final Map<String, PermissionMatrix> matrices = new ConcurrentHashMap<>();
+    /**
+     * Last failed token info lookup of each application key; the matrix of the key stays unknown until the lookup is retried.
+     */
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    /**
+     * Number of queries denied so far.
+     */
+    private final AtomicLong denied = new AtomicLong();
+
+    /**
+     * Records the permissions of an application key.
+     * @param appKey The application key.
+     * @param tokenInfo The token info of the key.
+     * @throws NullPointerException If {@code appKey} or {@code tokenInfo} is {@code null}.
+     */
+    public void update(final String appKey, final TokenInfo tokenInfo) throws NullPointerException {
+        Objects.requireNonNull(appKey);
+        Objects.requireNonNull(tokenInfo);
+        failures.remove(appKey);
+        matrices.merge(appKey, PermissionMatrix.UNKNOWN.withPermissions(tokenInfo.getPermissions()), (oldValue, value) -> oldValue.withPermissions(tokenInfo.getPermissions()));
+    }
+
+    /**
+     * Records the guilds the account of an application key leads.
+     * @param appKey The application key.
+     * @param account The account of the key.
+     * @throws NullPointerException If {@code appKey} or {@code account} is {@code null}.
+     */
+    public void update(final String appKey, final Account account) throws NullPointerException {
+        Objects.requireNonNull(appKey);
+        Objects.requireNonNull(account);
+        matrices.merge(appKey, PermissionMatrix.UNKNOWN.withGuildLeader(account.getGuildLeader()), (oldValue, value) -> oldValue.withGuildLeader(account.getGuildLeader()));
+    }
+
+    /**
+     * Records whatever is known of a session.
+     * @param session The session.
+     * @throws NullPointerException If {@code session} is {@code null}.
+     */
+    public void update(final Session session) throws NullPointerException {
+        Objects.requireNonNull(session);
+        Optional.ofNullable(session.getTokenInfo()).ifPresent(tokenInfo -> update(session.getAppKey(), tokenInfo));
+        Optional.ofNullable(session.getAccount()).ifPresent(account -> update(session.getAppKey(), account));
+    }
+
+    /**
+     * Forgets the permissions of an application key (ie: when the key is removed or its permissions changed).
+     * @param appKey The application key.
+     * @throws NullPointerException If {@code appKey} is {@code null}.
+     */
+    public void invalidate(final String appKey) throws NullPointerException {
+        Objects.requireNonNull(appKey);
+        matrices.remove(appKey);
+        failures.remove(appKey);
+    }
+
+    /**
+     * Gets the permission matrix of an application key, querying its token info if needed.
+     * <br>When the token info cannot be retrieved, it is not queried again for this key until a delay has elapsed; this delay doubles with each consecutive failure.
+     * @param appKey The application key.
+     * @return A {@code PermissionMatrix} instance, never {@code null}.
+     * @throws NullPointerException If {@code appKey} is {@code null}.
+     */
+    public PermissionMatrix getMatrix(final String appKey) throws NullPointerException {
+        Objects.requireNonNull(appKey);
+        PermissionMatrix result = matrices.getOrDefault(appKey, PermissionMatrix.UNKNOWN);
+        final Failure failure = failures.get(appKey);
+        final long now = System.currentTimeMillis();
+        if (!result.isPermissionsKnown() && (failure == null || now >= failure.retryAt)) {
+            final Optional<TokenInfo> tokenInfo = WebQuery.INSTANCE.queryTokenInfo(appKey);
+            if (tokenInfo.isPresent()) {
+                update(appKey, tokenInfo.get());
+            } else {
+                final int count = (failure == null) ? 1 : failure.count + 1;
+                final long delay = Math.min(MAX_RETRY_DELAY, MIN_RETRY_DELAY << Math.min(count - 1, 16));
+                failures.put(appKey, new Failure(count, now + delay));
+            }
+            result = matrices.getOrDefault(appKey, PermissionMatrix.UNKNOWN);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether an endpoint that is not specific to a guild may be queried.
+     * @param appKey The application key.
+     * @param endPoint The endpoint.
+     * @return A {@code QueryPermit} instance, never {@code null}.
+     * @throws NullPointerException If {@code appKey} or {@code endPoint} is {@code null}.
+     */
+    public QueryPermit check(final String appKey, final AuthenticatedEndPoint endPoint) throws NullPointerException {
+        return check(appKey, endPoint, null);
+    }
+
+    /**
+     * Checks whether an endpoint may be queried.
+     * <br>For guild endpoints that need a guild leader, the account is queried once if the guilds it leads are not known yet.
+     * @param appKey The application key.
+     * @param endPoint The endpoint.
+     * @param guildId The id of the guild, for guild endpoints.
+     * @return A {@code QueryPermit} instance, never {@code null}.
+     * @throws NullPointerException If {@code appKey} or {@code endPoint} is {@code null}.
+     */
+    public QueryPermit check(final String appKey, final AuthenticatedEndPoint endPoint, final String guildId) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        PermissionMatrix matrix = getMatrix(appKey);
+        QueryPermit result = matrix.check(endPoint, guildId);
+        if (result.isGranted() && endPoint.isGuildLeaderOnly() && guildId != null && !matrix.isGuildLeaderKnown() && matrix.hasPermission(TokenInfoPermission.GUILDS)) {
+            WebQuery.INSTANCE.queryAccount(appKey).ifPresent(account -> update(appKey, account));
+            matrix = matrices.getOrDefault(appKey, PermissionMatrix.UNKNOWN);
+            result = matrix.check(endPoint, guildId);
+        }
+        if (!result.isGranted()) {
+            denied.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of queries denied so far.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getDeniedCount() {
+        return denied.get();
+    }
+}
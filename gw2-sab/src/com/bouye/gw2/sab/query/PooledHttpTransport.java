@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transport that keeps connections alive and reuses them between requests.
+ * <br>Idle connections are kept in the keep-alive pool of the VM, which saves a new TCP connection and TLS handshake on each query.
+ * <br>The number of concurrent requests sent to a given host is limited; extra requests wait for a connection to be released.
+ * <br>Unless the caller specifies its own {@code Accept-Encoding} header, compressed responses are requested; gzip bodies are inflated on the fly while they are being read so the response appears uncompressed to the caller.
+ * @author Fabrice Bouyé
+ */
+public final class PooledHttpTransport implements GW2APITransport {
+
+    /**
+     * Default number of idle connections kept alive per host: {@value}.
+     */
+    public static final int DEFAULT_POOL_SIZE = 10;
+    /**
+     * Default number of concurrent requests per host: {@value}.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+    /**
+     * Default connection and read timeout in ms: {@value}.
+     */
+    public static final int DEFAULT_TIMEOUT = 30_000;
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding"; // NOI18N.
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding"; // NOI18N.
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length"; // NOI18N.
+    private static final String GZIP_ENCODING = "gzip"; // NOI18N.
+
+    /**
+     * Maximum number of concurrent requests per host.
+     */
+    private final int maxConnectionsPerHost;
+    /**
+     * Connection and read timeout in ms.
+     */
+    private final int timeout;
+    /**
+     * Request permits for each host.
+     */
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    /**
+     * Number of bytes received on the wire, before inflation.
+     */
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    /**
+     * Creates a new instance with default settings.
+     */
+    public PooledHttpTransport() {
+        this(DEFAULT_POOL_SIZE, DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates a new instance.
+     * <br>The keep-alive pool is shared by the whole VM and is sized on first use; changing {@code poolSize} after the first request has been sent has no effect.
+     * @param poolSize The number of idle connections kept alive per host.
+     * @param maxConnectionsPerHost The maximum number of concurrent requests per host.
+     * @param timeout The connection and read timeout in ms.
+     * @throws IllegalArgumentException If {@code poolSize} or {@code maxConnectionsPerHost} is lower than 1, or if {@code timeout} is negative.
+     */
+    public PooledHttpTransport(final int poolSize, final int maxConnectionsPerHost, final int timeout) throws IllegalArgumentException {
+        if (poolSize < 1 || maxConnectionsPerHost < 1 || timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.timeout = timeout;
+        System.setProperty("http.keepAlive", "true"); // NOI18N.
+        if (System.getProperty("http.maxConnections") == null) { // NOI18N.
+            System.setProperty("http.maxConnections", String.valueOf(poolSize)); // NOI18N.
+        }
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Gets the number of body bytes received on the wire, before inflation.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public GW2APIResponse get(final URL url, final Map<String, String> headers) throws NullPointerException, IOException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(headers);
+        final String hostKey = String.format("%s://%s:%d", url.getProtocol(), url.getHost(), url.getPort()); // NOI18N.
+        final Semaphore permits = hostPermits.computeIfAbsent(hostKey, key -> new Semaphore(maxConnectionsPerHost, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+        final EndpointMetrics metrics = QueryMetrics.INSTANCE.get(EndPointTemplate.of(url));
+        try {
+            final long start = System.nanoTime();
+            final URLConnection urlConnection = url.openConnection();
+            if (!(urlConnection instanceof HttpURLConnection)) {
+                throw new IOException(String.format("Unsupported protocol %s", url.getProtocol())); // NOI18N.
+            }
+            final HttpURLConnection connection = (HttpURLConnection) urlConnection;
+            connection.setRequestMethod("GET"); // NOI18N.
+            connection.setUseCaches(false);
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            final boolean acceptEncodingSet = headers.keySet()
+                    .stream()
+                    .anyMatch(ACCEPT_ENCODING_HEADER::equalsIgnoreCase);
+            if (!acceptEncodingSet) {
+                connection.setRequestProperty(ACCEPT_ENCODING_HEADER, GZIP_ENCODING);
+            }
+            headers.forEach(connection::setRequestProperty);
+            // Reused connections are already open.
+            connection.connect();
+            metrics.recordConnect(System.nanoTime() - start);
+            final int statusCode = connection.getResponseCode();
+            // The error stream must be consumed too or the connection will not be reused.
+            final InputStream rawBody = (statusCode >= HttpURLConnection.HTTP_BAD_REQUEST) ? connection.getErrorStream() : connection.getInputStream();
+            final CountingInputStream counter = (rawBody == null) ? null : new CountingInputStream(rawBody);
+            InputStream body = counter;
+            Map<String, List<String>> responseHeaders = connection.getHeaderFields();
+            final boolean hasBody = statusCode != HttpURLConnection.HTTP_NO_CONTENT && statusCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+            if (body != null && hasBody && GZIP_ENCODING.equalsIgnoreCase(connection.getContentEncoding())) {
+                try {
+                    body = new GZIPInputStream(body);
+                } catch (IOException ex) {
+                    body.close();
+                    throw ex;
+                }
+                // The caller sees the inflated body: the encoding and length headers no longer apply.
+                final Map<String, List<String>> inflatedHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                responseHeaders.entrySet()
+                        .stream()
+                        .filter(entry -> entry.getKey() != null)
+                        .forEach(entry -> inflatedHeaders.put(entry.getKey(), entry.getValue()));
+                inflatedHeaders.remove(CONTENT_ENCODING_HEADER);
+                inflatedHeaders.remove(CONTENT_LENGTH_HEADER);
+                responseHeaders = inflatedHeaders;
+            }
+            return new GW2APIResponse(url, statusCode, responseHeaders, body, () -> {
+                permits.release();
+                metrics.recordPayload((counter == null) ? 0 : counter.getCount());
+            });
+        } catch (IOException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Counts bytes read from the wire.
+     * @author Fabrice Bouyé
+     */
+    private final class CountingInputStream extends FilterInputStream {
+
+        /**
+         * Bytes read from this stream.
+         */
+        private long count;
+
+        CountingInputStream(final InputStream input) {
+            super(input);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = super.read();
+            if (result != -1) {
+                count++;
+                bytesReceived.incrementAndGet();
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                count += result;
+                bytesReceived.addAndGet(result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(final long length) throws IOException {
+            final long result = super.skip(length);
+            count += result;
+            bytesReceived.addAndGet(result);
+            return result;
+        }
+    }
+}
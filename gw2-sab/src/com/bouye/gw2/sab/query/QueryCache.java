@@ -1,4 +1,4 @@
-/* 
+/*
  * Copyright (C) 2016-2017 Fabrice Bouyé
  * All rights reserved.
  *
@@ -7,25 +7,97 @@
  */
 package com.bouye.gw2.sab.query;
 
+import com.bouye.gw2.sab.SABConstants;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Cache for web queries.
+ * <br>The value of a given URL and content is produced once; callers that ask for it while it is being produced wait for it, while callers of other URLs are never blocked.
+ * <br>Content is identified by a 64-bit hash rather than kept as is: when a refresh returns identical content, the previously decoded instance is returned and {@link ChangeListener change listeners} are not notified, so consumers may skip rebuilding their UI.
+ * <br>Each endpoint has an {@link ExpiryPolicy} that tells how long its results may be used without querying the server again.
+ * By default, {@code wvw/matches} and {@code commerce/exchange} results are kept for a short time, {@code account} results for the session and static data such as {@code items}, {@code skins} or {@code achievements} until the game build changes.
  * @author Fabrice Bouyé
  */
-enum QueryCache {
+public enum QueryCache {
     /**
      * The unique instance of this class.
      */
     INSTANCE;
 
+    /**
+     * Why an entry left the cache.
+     * @author Fabrice Bouyé
+     */
+    public enum EvictionCause {
+        /**
+         * The entry expired according to the policy of its endpoint.
+         */
+        EXPIRED,
+        /**
+         * The entry was replaced by a newer result.
+         */
+        REPLACED,
+        /**
+         * The entry was garbaged when the VM ran out of memory.
+         */
+        COLLECTED,
+        /**
+         * The entry was explicitly invalidated.
+         */
+        INVALIDATED;
+    }
+
+    /**
+     * Notified when an entry leaves the cache.
+     * <br>Listeners are invoked on the thread that evicted the entry.
+     * @author Fabrice Bouyé
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+
+        /**
+         * Invoked when an entry leaves the cache.
+         * @param url The URL of the entry.
+         * @param value The value of the entry, {@code null} if it has been garbaged.
+         * @param cause Why the entry left the cache.
+         */
+        void evicted(final String url, final Object value, final EvictionCause cause);
+    }
+
+    /**
+     * Notified when a refresh returns a content that differs from the cached one.
+     * <br>Listeners are invoked on the thread that refreshed the entry.
+     * @author Fabrice Bouyé
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        /**
+         * Invoked when a refresh returns a new content.
+         * @param url The URL of the entry.
+         * @param oldValue The previous value, {@code null} if it has been garbaged.
+         * @param newValue The new value.
+         */
+        void changed(final String url, final Object oldValue, final Object newValue);
+    }
+
     /**
      * An entry in the cache.
      * @author Fabrice Bouyé
@@ -33,52 +105,494 @@ enum QueryCache {
     private static final class Result<T> {
 
         /**
-         * The source JSON.
+         * Hash of the source content.
+         */
+        final long hash;
+        /**
+         * {@code True} if the hash is known; results reused after a {@code 304 Not Modified} response may have none.
+         */
+        final boolean hashed;
+        /**
+         * The query result, completed once produced.
+         */
+        final CompletableFuture<T> value = new CompletableFuture<>();
+        final ExpiryPolicy policy;
+        /**
+         * Time the entry was created, in ms.
+         */
+        final long created = System.currentTimeMillis();
+        /**
+         * Game build when the entry was created.
          */
-        String json;
+        final int build = GameBuild.INSTANCE.getId();
+
+        Result(final long hash, final boolean hashed, final ExpiryPolicy policy) {
+            this.hash = hash;
+            this.hashed = hashed;
+            this.policy = policy;
+        }
+
+        boolean hasContent(final long hash) {
+            return hashed && this.hash == hash;
+        }
+
+        boolean isExpired() {
+            return policy.isExpired(created, build, System.currentTimeMillis(), GameBuild.INSTANCE.getId());
+        }
+    }
+
+    /**
+     * A soft reference that knows its key, so it can be removed from the cache once garbaged.
+     * @author Fabrice Bouyé
+     */
+    private static final class ResultReference extends SoftReference<Result<?>> {
+
+        final String url;
         /**
-         * The query result.
+         * {@code True} if the entry expires when the game build changes; kept here since the entry may be garbaged.
          */
-        T value;
+        final boolean buildBound;
+
+        ResultReference(final String url, final Result<?> result, final ReferenceQueue<Result<?>> queue) {
+            super(result, queue);
+            this.url = url;
+            this.buildBound = result.policy.isBuildBound();
+        }
     }
 
+    /**
+     * Extracts the endpoint from an URL, ie: {@code wvw/matches} from {@code https://api.guildwars2.com/v2/wvw/matches?ids=1-1}.
+     */
+    private static final Pattern END_POINT_PATTERN = Pattern.compile("^[^?#]*?/v\\d+/([^?#]*)"); // NOI18N.
+
     /**
      * The query result cache.
      * <br>The cache uses soft references that may be garbaged when the VM runs out of memory.
      */
-    private final Map<String, SoftReference<Result>> cache = Collections.synchronizedMap(new HashMap<>());
+    private final ConcurrentMap<String, ResultReference> cache = new ConcurrentHashMap<>();
+    /**
+     * Receives references that have been garbaged.
+     */
+    private final ReferenceQueue<Result<?>> garbaged = new ReferenceQueue<>();
+    /**
+     * Expiry policy of each endpoint; keys that end with a {@code /} apply to sub-endpoints.
+     */
+    private final Map<String, ExpiryPolicy> policies = new ConcurrentHashMap<>();
+    private final List<EvictionListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong unchangedCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiryCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private QueryCache() {
+        final ExpiryPolicy wvwPolicy = ExpiryPolicy.ttl(SABConstants.INSTANCE.getWebApiCacheWvwTtl());
+        policies.put("wvw/matches", wvwPolicy); // NOI18N.
+        policies.put("wvw/matches/", wvwPolicy); // NOI18N.
+        policies.put("commerce/exchange/", ExpiryPolicy.ttl(SABConstants.INSTANCE.getWebApiCacheExchangeTtl())); // NOI18N.
+        policies.put("account", ExpiryPolicy.SESSION); // NOI18N.
+        for (final String endPoint : new String[]{"items", "skins", "achievements"}) { // NOI18N.
+            policies.put(endPoint, ExpiryPolicy.BUILD);
+            policies.put(endPoint + '/', ExpiryPolicy.BUILD);
+        }
+    }
+
+    /**
+     * Sets the expiry policy of an endpoint.
+     * @param endPoint The endpoint, ie: {@code items}; ends with a {@code /} to apply to sub-endpoints, ie: {@code items/}.
+     * @param policy The policy.
+     * @throws NullPointerException If {@code endPoint} or {@code policy} is {@code null}.
+     */
+    public void setPolicy(final String endPoint, final ExpiryPolicy policy) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        Objects.requireNonNull(policy);
+        policies.put(endPoint, policy);
+    }
+
+    /**
+     * Gets the expiry policy of an URL.
+     * <br>The policy of the endpoint is used if any, otherwise the policy of the closest parent endpoint that applies to sub-endpoints.
+     * @param url The URL.
+     * @return An {@code ExpiryPolicy} instance, never {@code null}.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    public ExpiryPolicy getPolicy(final String url) throws NullPointerException {
+        final Matcher matcher = END_POINT_PATTERN.matcher(url);
+        if (!matcher.find()) {
+            return ExpiryPolicy.NONE;
+        }
+        final String endPoint = matcher.group(1);
+        ExpiryPolicy result = policies.get(endPoint);
+        for (int slash = endPoint.lastIndexOf('/'); result == null && slash > 0; slash = endPoint.lastIndexOf('/', slash - 1)) {
+            result = policies.get(endPoint.substring(0, slash + 1));
+        }
+        return (result == null) ? ExpiryPolicy.NONE : result;
+    }
+
+    public void addEvictionListener(final EvictionListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeEvictionListener(final EvictionListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void addChangeListener(final ChangeListener listener) {
+        changeListeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeChangeListener(final ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
 
     /**
      * Retrieves a query result from the cache.
+     * <br>The JSON is hashed, not kept.
      * @param <T> The type of the object to retrieve.
      * @param url The source URL.
      * @param json The JSON returned by the URL.
-     * @param producer Produces the result from the JSON; invoked in case of cache fault.
-     * @return A {@code T} instance, may be {@code null}.
+     * @param producer Produces the result from the JSON; invoked in case of cache fault or if the content has changed.
+     * @return A {@code T} instance, may be {@code null} if the producer failed.
      * @throws NullPointerException If {@code url}, {@code json} or {@code producer} is {@code null}.
      */
     public <T> T get(final String url, final String json, final Function<String, T> producer) throws NullPointerException {
-        Objects.requireNonNull(url);
         Objects.requireNonNull(json);
         Objects.requireNonNull(producer);
-        T result = null;
-        synchronized (cache) {
-            SoftReference<Result> resultRef = cache.get(url);
-            if (resultRef != null) {
-                result = (!resultRef.get().json.equals(json)) ? null : (T) resultRef.get().value;
+        return get(url, ContentHash.of(json), () -> producer.apply(json));
+    }
+
+    /**
+     * Retrieves a query result from the cache.
+     * @param <T> The type of the object to retrieve.
+     * @param url The source URL.
+     * @param hash The hash of the content returned by the URL.
+     * @param producer Produces the result; invoked in case of cache fault or if the content has changed.
+     * @return A {@code T} instance, may be {@code null} if the producer failed or returned {@code null}; such results are not cached.
+     * @throws NullPointerException If {@code url} or {@code producer} is {@code null}.
+     */
+    public <T> T get(final String url, final long hash, final Supplier<T> producer) throws NullPointerException {
+        Objects.requireNonNull(url);
+        Objects.requireNonNull(producer);
+        purge();
+        final ExpiryPolicy policy = getPolicy(url);
+        while (true) {
+            final ResultReference resultRef = cache.get(url);
+            // The entry may have been garbaged since.
+            final Result<T> cached = (resultRef == null) ? null : (Result<T>) resultRef.get();
+            if (cached != null && cached.hasContent(hash)) {
+                final T value = cached.value.join();
+                // The content did not change: an expired entry is re-armed with the same value.
+                if (value == null || !rearm(url, resultRef, cached, value)) {
+                    continue;
+                }
+                hitCount.incrementAndGet();
+                return value;
+            }
+            final Result<T> cacheEntry = new Result<>(hash, true, policy);
+            final ResultReference entryRef = new ResultReference(url, cacheEntry, garbaged);
+            // Another thread installed an entry first, use it instead.
+            if (!install(url, resultRef, entryRef)) {
+                continue;
+            }
+            missCount.incrementAndGet();
+            T value = null;
+            try {
+                value = producer.get();
+            } catch (Exception ex) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            } finally {
+                // Do not keep a failure nor a null result, the next call will try again.
+                // This also applies when the producer throws an Error, which is then rethrown: threads waiting on the entry must not block forever.
+                // The entry is removed before being completed so threads waiting on it do not find it again.
+                if (value == null) {
+                    cache.remove(url, entryRef);
+                }
+                cacheEntry.value.complete(value);
             }
-            if (result == null) {
-                final Result<T> cacheEntry = new Result();
-                cacheEntry.json = json;
-                try {
-                    cacheEntry.value = producer.apply(json);
-                } catch (Exception ex) {
-                    Logger.getLogger(getClass().getName()).log(Level.SEVERE, ex.getMessage(), ex);
+            if (cached != null) {
+                fireEvicted(url, cached, EvictionCause.REPLACED);
+                if (value != null) {
+                    fireChanged(url, cached, value);
                 }
-                resultRef = new SoftReference<>(cacheEntry);
-                cache.put(url, resultRef);
+            }
+            if (policy.isBuildBound()) {
+                GameBuild.INSTANCE.start();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Retrieves a query result that may be used without querying the server.
+     * @param <T> The type of the object to retrieve.
+     * @param url The source URL.
+     * @return An {@code Optional<T>} instance, never {@code null}.
+     * <br>Empty if the endpoint is not cached, if there is no result or if the result has expired.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    public <T> Optional<T> getIfFresh(final String url) throws NullPointerException {
+        Objects.requireNonNull(url);
+        if (!getPolicy(url).isCached()) {
+            return Optional.empty();
+        }
+        purge();
+        final ResultReference resultRef = cache.get(url);
+        final Result<T> cached = (resultRef == null) ? null : (Result<T>) resultRef.get();
+        if (cached != null && cached.isExpired()) {
+            if (cache.remove(url, resultRef)) {
+                expiryCount.incrementAndGet();
+                fireEvicted(url, cached, EvictionCause.EXPIRED);
+            }
+        } else if (cached != null) {
+            hitCount.incrementAndGet();
+            return Optional.ofNullable(cached.value.join());
+        }
+        missCount.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores a query result decoded by the caller.
+     * <br>If the cached result has the same content, it is kept and returned instead so callers may test whether anything changed by identity; otherwise change listeners are notified.
+     * @param <T> The type of the object to store.
+     * @param url The source URL.
+     * @param hash The hash of the content returned by the URL.
+     * @param value The result, {@code null} values are not stored.
+     * @return A {@code T} instance, either the cached result or {@code value}.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    public <T> T update(final String url, final long hash, final T value) throws NullPointerException {
+        return store(url, hash, true, value);
+    }
+
+    /**
+     * Stores a query result whose content is known not to have changed since the last request, ie: after a {@code 304 Not Modified} response.
+     * <br>The cached result, if any, is kept, re-armed and returned.
+     * @param <T> The type of the object to store.
+     * @param url The source URL.
+     * @param value The result, {@code null} values are not stored.
+     * @return A {@code T} instance, either the cached result or {@code value}.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    <T> T unchanged(final String url, final T value) throws NullPointerException {
+        return store(url, 0, false, value);
+    }
+
+    /**
+     * Stores a query result decoded by the caller.
+     * @param <T> The type of the object to store.
+     * @param url The source URL.
+     * @param hash The hash of the content.
+     * @param hashed {@code True} if the hash is known; otherwise the content is known to be unchanged.
+     * @param value The result, {@code null} values are not stored.
+     * @return A {@code T} instance, either the cached result or {@code value}.
+     * @throws NullPointerException If {@code url} is {@code null}.
+     */
+    private <T> T store(final String url, final long hash, final boolean hashed, final T value) throws NullPointerException {
+        Objects.requireNonNull(url);
+        if (value == null) {
+            return null;
+        }
+        purge();
+        final ExpiryPolicy policy = getPolicy(url);
+        while (true) {
+            final ResultReference resultRef = cache.get(url);
+            final Result<T> cached = (resultRef == null) ? null : (Result<T>) resultRef.get();
+            final T previous = (cached == null) ? null : cached.value.join();
+            if (previous != null && (!hashed || cached.hasContent(hash))) {
+                if (!rearm(url, resultRef, cached, previous)) {
+                    continue;
+                }
+                unchangedCount.incrementAndGet();
+                return previous;
+            }
+            final Result<T> cacheEntry = new Result<>(hash, hashed, policy);
+            cacheEntry.value.complete(value);
+            if (!install(url, resultRef, new ResultReference(url, cacheEntry, garbaged))) {
+                continue;
+            }
+            if (cached != null) {
+                fireEvicted(url, cached, EvictionCause.REPLACED);
+                if (hashed) {
+                    fireChanged(url, cached, value);
+                }
+            }
+            if (policy.isBuildBound()) {
+                GameBuild.INSTANCE.start();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Invalidates the results of an endpoint and its sub-endpoints.
+     * @param endPoint The endpoint, ie: {@code account}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    public void invalidate(final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        evictIf(ref -> {
+            final Matcher matcher = END_POINT_PATTERN.matcher(ref.url);
+            return matcher.find() && (matcher.group(1).equals(endPoint) || matcher.group(1).startsWith(endPoint + '/'));
+        }, EvictionCause.INVALIDATED);
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        evictIf(ref -> true, EvictionCause.INVALIDATED);
+    }
+
+    /**
+     * Removes all entries that expire when the game build changes.
+     */
+    void evictBuildBound() {
+        evictIf(ref -> ref.buildBound, EvictionCause.EXPIRED);
+    }
+
+    /**
+     * Gets the number of lookups that found a valid result.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of refreshes that returned the same content as the cached result.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.get();
+    }
+
+    /**
+     * Gets the number of lookups that found no valid result.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of results that expired.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getExpiryCount() {
+        return expiryCount.get();
+    }
+
+    /**
+     * Gets the number of results that left the cache, whatever the cause.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of entries in the cache, including entries that may have been garbaged.
+     * @return An {@code int} &ge; 0.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes entries.
+     * @param predicate Selects the entries to remove.
+     * @param cause Why the entries are removed.
+     */
+    private void evictIf(final Predicate<ResultReference> predicate, final EvictionCause cause) {
+        purge();
+        cache.values()
+                .stream()
+                .filter(predicate)
+                .forEach(ref -> {
+                    if (cache.remove(ref.url, ref)) {
+                        final Result<?> entry = ref.get();
+                        if (cause == EvictionCause.EXPIRED) {
+                            expiryCount.incrementAndGet();
+                        }
+                        fireEvicted(ref.url, entry, (entry == null) ? EvictionCause.COLLECTED : cause);
+                    }
+                });
+    }
+
+    /**
+     * Installs a new entry.
+     * @param url The URL of the entry.
+     * @param expected The reference currently in the cache, {@code null} if none.
+     * @param entryRef The reference to the new entry.
+     * @return {@code True} if the entry was installed, {@code false} if another thread modified the cache first.
+     */
+    private boolean install(final String url, final ResultReference expected, final ResultReference entryRef) {
+        return (expected == null) ? cache.putIfAbsent(url, entryRef) == null : cache.replace(url, expected, entryRef);
+    }
+
+    /**
+     * Re-arms the expiry of an entry whose content did not change.
+     * @param <T> The type of the value.
+     * @param url The URL of the entry.
+     * @param resultRef The reference currently in the cache.
+     * @param cached The current entry.
+     * @param value The value of the current entry.
+     * @return {@code True} if the entry is still current, {@code false} if another thread modified the cache first.
+     */
+    private <T> boolean rearm(final String url, final ResultReference resultRef, final Result<T> cached, final T value) {
+        if (!cached.isExpired() || !cached.policy.isCached()) {
+            return cache.get(url) == resultRef;
+        }
+        final Result<T> cacheEntry = new Result<>(cached.hash, cached.hashed, cached.policy);
+        cacheEntry.value.complete(value);
+        return cache.replace(url, resultRef, new ResultReference(url, cacheEntry, garbaged));
+    }
+
+    /**
+     * Removes entries whose references have been garbaged.
+     */
+    private void purge() {
+        for (ResultReference ref = (ResultReference) garbaged.poll(); ref != null; ref = (ResultReference) garbaged.poll()) {
+            if (cache.remove(ref.url, ref)) {
+                fireEvicted(ref.url, null, EvictionCause.COLLECTED);
+            }
+        }
+    }
+
+    /**
+     * Notifies listeners that an entry left the cache.
+     * @param url The URL of the entry.
+     * @param entry The entry, {@code null} if it has been garbaged.
+     * @param cause Why the entry left the cache.
+     */
+    private void fireEvicted(final String url, final Result<?> entry, final EvictionCause cause) {
+        evictionCount.incrementAndGet();
+        final Object value = (entry == null) ? null : entry.value.getNow(null);
+        for (final EvictionListener listener : listeners) {
+            try {
+                listener.evicted(url, value, cause);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Notifies listeners that a refresh returned a new content.
+     * @param url The URL of the entry.
+     * @param entry The previous entry.
+     * @param value The new value.
+     */
+    private void fireChanged(final String url, final Result<?> entry, final Object value) {
+        final Object oldValue = entry.value.getNow(null);
+        for (final ChangeListener listener : changeListeners) {
+            try {
+                listener.changed(url, oldValue, value);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, ex.getMessage(), ex);
             }
         }
-        return result;
     }
 }
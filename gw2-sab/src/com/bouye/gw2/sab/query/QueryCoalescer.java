@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Registry of queries in flight.
+ * <br>Concurrent identical queries share a single network call and a single decoded result.
+ * @author Fabrice Bouyé
+ */
+public enum QueryCoalescer {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * Queries currently in flight, by key.
+     */
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * Number of queries actually issued.
+     */
+    private final AtomicLong issued = new AtomicLong();
+    /**
+     * Number of queries that joined a query already in flight.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Gets the number of queries actually issued.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getIssuedCount() {
+        return issued.get();
+    }
+
+    /**
+     * Gets the number of queries that were served by a query already in flight.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Gets the number of queries currently in flight.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Runs a query on the calling thread, unless an identical query is already in flight.
+     * <br>In the later case, this method blocks until the query in flight returns and shares its result.
+     * @param <T> The type of the result.
+     * @param key The key of the query.
+     * @param query The query.
+     * @return A {@code T} instance, may be {@code null}.
+     * @throws NullPointerException If {@code key} or {@code query} is {@code null}.
+     * @throws RuntimeException If the query failed.
+     */
+    <T> T execute(final String key, final Supplier<T> query) throws NullPointerException, RuntimeException {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(query);
+        final CompletableFuture<T> promise = new CompletableFuture<>();
+        final CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException ex) {
+                final Throwable cause = ex.getCause();
+                throw (cause instanceof RuntimeException) ? (RuntimeException) cause : ex;
+            }
+        }
+        issued.incrementAndGet();
+        return run(key, promise, query);
+    }
+
+    /**
+     * Runs a query asynchronously, unless an identical query is already in flight.
+     * @param <T> The type of the result.
+     * @param key The key of the query.
+     * @param query The query.
+     * @param executor The executor that runs the query.
+     * @return A {@code CompletableFuture<T>} instance, never {@code null}.
+     * <br>All concurrent callers of an identical query receive futures completed by the same query; cancelling one of them does not affect the others.
+     * <br>If {@code executor} rejects the query, the future completes exceptionally with a {@code RejectedExecutionException}.
+     * @throws NullPointerException If {@code key}, {@code query} or {@code executor} is {@code null}.
+     */
+    <T> CompletableFuture<T> submit(final String key, final Supplier<T> query, final Executor executor) throws NullPointerException {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(query);
+        Objects.requireNonNull(executor);
+        final CompletableFuture<T> promise = new CompletableFuture<>();
+        final CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.thenApply(Function.identity());
+        }
+        issued.incrementAndGet();
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    run(key, promise, query);
+                } catch (RuntimeException ex) {
+                    // Already reported through the promise.
+                }
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            // The query will never run: unregister it so identical queries are not left waiting on it.
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(ex);
+        }
+        return promise.thenApply(Function.identity());
+    }
+
+    /**
+     * Runs the query and completes the promise.
+     * @param <T> The type of the result.
+     * @param key The key of the query.
+     * @param promise The promise registered for this key.
+     * @param query The query.
+     * @return A {@code T} instance, may be {@code null}.
+     * @throws RuntimeException If the query failed.
+     */
+    private <T> T run(final String key, final CompletableFuture<T> promise, final Supplier<T> query) throws RuntimeException {
+        try {
+            final T result = query.get();
+            // Unregister before completing so later queries are sent again instead of receiving a result that is already old.
+            inFlight.remove(key, promise);
+            promise.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports what a logical query cost in terms of chunks and HTTP requests.
+ * @author Fabrice Bouyé
+ */
+public final class QueryCost {
+
+    /**
+     * Number of chunks the query was split into.
+     */
+    private final AtomicInteger chunks = new AtomicInteger();
+    /**
+     * Number of HTTP requests issued.
+     */
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Creates a new instance.
+     */
+    QueryCost() {
+    }
+
+    /**
+     * Gets the number of chunks the query was split into.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getChunkCount() {
+        return chunks.get();
+    }
+
+    /**
+     * Gets the number of HTTP requests issued by the query.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    void addChunks(final int value) {
+        chunks.addAndGet(value);
+    }
+
+    void addRequest() {
+        requests.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d chunk(s), %d request(s)", getChunkCount(), getRequestCount()); // NOI18N.
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor that runs asynchronous Web API queries.
+ * <br>Queries block on network IO and must not run on the common fork-join pool, which is reserved for computations such as parallel streams.
+ * <br>This class wraps another executor and keeps track of the tasks it runs.
+ * @author Fabrice Bouyé
+ */
+public final class QueryExecutor implements Executor {
+
+    /**
+     * Name of the threads of the bounded pool.
+     */
+    private static final String THREAD_NAME = "GW2APIClient-async-%d"; // NOI18N.
+
+    /**
+     * The executor that actually runs the tasks.
+     */
+    private final Executor delegate;
+    /**
+     * Number of tasks submitted but not started yet.
+     */
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    /**
+     * Number of tasks currently running.
+     */
+    private final AtomicInteger activeCount = new AtomicInteger();
+    /**
+     * Number of tasks that completed normally.
+     */
+    private final AtomicLong completedCount = new AtomicLong();
+    /**
+     * Number of tasks that ended with an exception.
+     */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     * @param delegate The executor that actually runs the tasks.
+     */
+    private QueryExecutor(final Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates an executor backed by a fixed number of daemon threads.
+     * <br>Extra tasks wait in line until a thread is available.
+     * @param threadCount The number of threads.
+     * @return A {@code QueryExecutor} instance, never {@code null}.
+     * @throws IllegalArgumentException If {@code threadCount} is lower than 1.
+     */
+    public static QueryExecutor newBoundedPool(final int threadCount) throws IllegalArgumentException {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException();
+        }
+        final AtomicInteger threadIndex = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, String.format(THREAD_NAME, threadIndex.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new QueryExecutor(executor);
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * <br>If the runtime does not support virtual threads, a bounded pool of {@code fallbackThreadCount} threads is created instead.
+     * @param fallbackThreadCount The number of threads of the bounded pool.
+     * @return A {@code QueryExecutor} instance, never {@code null}.
+     * @throws IllegalArgumentException If {@code fallbackThreadCount} is lower than 1.
+     * @see #isVirtualThreadSupported()
+     */
+    public static QueryExecutor newVirtualThreadPerTask(final int fallbackThreadCount) throws IllegalArgumentException {
+        if (fallbackThreadCount < 1) {
+            throw new IllegalArgumentException();
+        }
+        final ExecutorService executor = createVirtualThreadExecutor();
+        return (executor == null) ? newBoundedPool(fallbackThreadCount) : new QueryExecutor(executor);
+    }
+
+    /**
+     * Wraps an existing executor.
+     * <br>Tests may use this method to run queries on a deterministic executor, such as one that runs tasks on the calling thread.
+     * @param executor The executor.
+     * @return A {@code QueryExecutor} instance, never {@code null}.
+     * @throws NullPointerException If {@code executor} is {@code null}.
+     */
+    public static QueryExecutor wrap(final Executor executor) throws NullPointerException {
+        Objects.requireNonNull(executor);
+        return (executor instanceof QueryExecutor) ? (QueryExecutor) executor : new QueryExecutor(executor);
+    }
+
+    /**
+     * Indicates whether the runtime supports virtual threads.
+     * @return {@code True} if virtual threads are supported, {@code false} otherwise.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return findVirtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * Finds {@code Executors.newVirtualThreadPerTaskExecutor()}, which only exists on recent runtimes.
+     * @return A {@code Method} instance, may be {@code null}.
+     */
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); // NOI18N.
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * @return An {@code ExecutorService} instance, or {@code null} if the runtime does not support virtual threads.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        final Method method = findVirtualThreadFactoryMethod();
+        if (method != null) {
+            try {
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                Logger.getLogger(QueryExecutor.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void execute(final Runnable command) throws NullPointerException, RejectedExecutionException {
+        Objects.requireNonNull(command);
+        queuedCount.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queuedCount.decrementAndGet();
+                activeCount.incrementAndGet();
+                boolean completed = false;
+                try {
+                    command.run();
+                    completed = true;
+                } finally {
+                    activeCount.decrementAndGet();
+                    if (completed) {
+                        completedCount.incrementAndGet();
+                    } else {
+                        failedCount.incrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            queuedCount.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * Gets the number of tasks currently running.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Gets the number of tasks that completed normally.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Gets the number of tasks that ended with an exception.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
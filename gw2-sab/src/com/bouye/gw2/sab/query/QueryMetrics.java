@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects the metrics of all endpoints of the Web API.
+ * <br>Metrics are registered with the platform MBean server under the {@code com.bouye.gw2.sab.query} domain as soon as an endpoint is first queried, and can be written to a file on demand.
+ * <br>Endpoints are identified by their template, ie: {@code /v2/characters/:id/equipment}, so requests to the same endpoint share their metrics whatever the character or guild being queried.
+ * @author Fabrice Bouyé
+ */
+public enum QueryMetrics implements QueryMetricsMBean {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * Domain of the MBeans.
+     */
+    private static final String JMX_DOMAIN = "com.bouye.gw2.sab.query"; // NOI18N.
+
+    private final Map<String, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+    /**
+     * {@code True} once this instance has been registered with the MBean server.
+     */
+    private final AtomicBoolean registered = new AtomicBoolean(false);
+
+    /**
+     * Gets the metrics of an endpoint, creating them if needed.
+     * @param endPoint The template of the endpoint.
+     * @return An {@code EndpointMetrics} instance, never {@code null}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    EndpointMetrics get(final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        EndpointMetrics result = metrics.get(endPoint);
+        if (result == null) {
+            register();
+            result = metrics.computeIfAbsent(endPoint, key -> {
+                final EndpointMetrics value = new EndpointMetrics(key);
+                register(value);
+                return value;
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Gets the metrics of an endpoint.
+     * @param endPoint The template of the endpoint, ie: {@code /v2/characters/:id/equipment}.
+     * @return An {@code Optional<EndpointMetrics>} instance, never {@code null}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    public Optional<EndpointMetrics> getMetrics(final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        return Optional.ofNullable(metrics.get(endPoint));
+    }
+
+    /**
+     * Gets the metrics of all endpoints queried so far.
+     * @return A non-modifiable {@code List<EndpointMetrics>} instance, never {@code null}.
+     * <br>Endpoints are sorted by template.
+     */
+    public List<EndpointMetrics> getAllMetrics() {
+        final List<EndpointMetrics> result = new ArrayList<>(metrics.values());
+        result.sort(Comparator.comparing(EndpointMetrics::getEndPoint));
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public String[] getEndPoints() {
+        return getAllMetrics()
+                .stream()
+                .map(EndpointMetrics::getEndPoint)
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public void dump(final String fileName) throws IOException {
+        Objects.requireNonNull(fileName);
+        dump(Paths.get(fileName));
+    }
+
+    /**
+     * Writes the metrics of all endpoints to a file.
+     * <br>The file contains one line per endpoint; values are separated by tabs; durations are in ms.
+     * @param file The file.
+     * @throws IOException In case of IO error.
+     * @throws NullPointerException If {@code file} is {@code null}.
+     */
+    public void dump(final Path file) throws IOException, NullPointerException {
+        Objects.requireNonNull(file);
+        try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                final PrintWriter output = new PrintWriter(writer)) {
+            output.printf("# %s%n", ZonedDateTime.now()); // NOI18N.
+            output.println("endpoint\trequests\terrors\tretries\trejected\tbytes\tpayload.mean\tpayload.max\tcache.hits\tcache.misses\tcache.ratio\tconnect.mean\tconnect.p50\tconnect.p99\tfirstbyte.mean\tfirstbyte.p50\tfirstbyte.p99\tfirstbyte.max\tparse.mean\tparse.p50\tparse.p99"); // NOI18N.
+            getAllMetrics().forEach(m -> {
+                output.printf(Locale.US, "%s\t%d\t%d\t%d\t%d\t%d\t%.0f\t%d\t%d\t%d\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f\t%.3f%n", // NOI18N.
+                        m.getEndPoint(),
+                        m.getRequestCount(), m.getErrorCount(), m.getRetryCount(), m.getRejectedCount(),
+                        m.getBytesReceived(), m.getMeanPayloadSize(), m.getMaxPayloadSize(),
+                        m.getCacheHitCount(), m.getCacheMissCount(), m.getCacheHitRatio(),
+                        m.getConnectMean(), m.getConnectP50(), m.getConnectP99(),
+                        m.getFirstByteMean(), m.getFirstByteP50(), m.getFirstByteP99(), m.getFirstByteMax(),
+                        m.getParseMean(), m.getParseP50(), m.getParseP99());
+            });
+            if (output.checkError()) {
+                throw new IOException(String.format("Could not write metrics to %s", file)); // NOI18N.
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        metrics.values().forEach(EndpointMetrics::reset);
+    }
+
+    /**
+     * Registers this instance with the platform MBean server, once.
+     */
+    private void register() {
+        if (registered.compareAndSet(false, true)) {
+            registerMBean(this, String.format("%s:type=QueryMetrics", JMX_DOMAIN)); // NOI18N.
+        }
+    }
+
+    /**
+     * Registers the metrics of an endpoint with the platform MBean server.
+     * @param endPointMetrics The metrics.
+     */
+    private void register(final EndpointMetrics endPointMetrics) {
+        registerMBean(endPointMetrics, String.format("%s:type=EndpointMetrics,name=%s", JMX_DOMAIN, ObjectName.quote(endPointMetrics.getEndPoint()))); // NOI18N.
+    }
+
+    /**
+     * Registers an MBean with the platform MBean server.
+     * <br>Metrics are still collected if the registration fails.
+     * @param mbean The MBean.
+     * @param name The name of the MBean.
+     */
+    private static void registerMBean(final Object mbean, final String name) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+            }
+        } catch (JMException | RuntimeException ex) {
+            Logger.getLogger(QueryMetrics.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.IOException;
+
+/**
+ * Management interface of the query metrics.
+ * @author Fabrice Bouyé
+ */
+public interface QueryMetricsMBean {
+
+    /**
+     * Gets the paths of all endpoints queried so far.
+     * @return A {@code String[]} instance, never {@code null}.
+     */
+    String[] getEndPoints();
+
+    /**
+     * Writes the metrics of all endpoints to a file.
+     * @param fileName The path of the file.
+     * @throws IOException In case of IO error.
+     */
+    void dump(final String fileName) throws IOException;
+
+    /**
+     * Clears the metrics of all endpoints.
+     */
+    void reset();
+}
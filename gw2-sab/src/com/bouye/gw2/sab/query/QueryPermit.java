@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.tokeninfo.TokenInfoPermission;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Tells whether an application key may query an authenticated endpoint.
+ * <br>When denied, the permit tells what is missing so the UI can explain why data is not displayed.
+ * @author Fabrice Bouyé
+ * @see PermissionPlanner
+ */
+public final class QueryPermit {
+
+    private final AuthenticatedEndPoint endPoint;
+    private final Set<TokenInfoPermission> missingPermissions;
+    private final boolean guildLeaderRequired;
+
+    /**
+     * Creates a new instance.
+     * @param endPoint The endpoint.
+     * @param missingPermissions The permissions the application key lacks.
+     * @param guildLeaderRequired {@code True} if the account is not the leader of the guild.
+     */
+    private QueryPermit(final AuthenticatedEndPoint endPoint, final Set<TokenInfoPermission> missingPermissions, final boolean guildLeaderRequired) {
+        this.endPoint = endPoint;
+        this.missingPermissions = missingPermissions;
+        this.guildLeaderRequired = guildLeaderRequired;
+    }
+
+    /**
+     * Creates a permit that grants access.
+     * @param endPoint The endpoint.
+     * @return A {@code QueryPermit} instance, never {@code null}.
+     * @throws NullPointerException If {@code endPoint} is {@code null}.
+     */
+    static QueryPermit granted(final AuthenticatedEndPoint endPoint) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        return new QueryPermit(endPoint, Collections.emptySet(), false);
+    }
+
+    /**
+     * Creates a permit.
+     * @param endPoint The endpoint.
+     * @param missingPermissions The permissions the application key lacks.
+     * @param guildLeaderRequired {@code True} if the account is not the leader of the guild.
+     * @return A {@code QueryPermit} instance, never {@code null}.
+     * <br>Access is granted if nothing is missing.
+     * @throws NullPointerException If {@code endPoint} or {@code missingPermissions} is {@code null}.
+     */
+    static QueryPermit of(final AuthenticatedEndPoint endPoint, final Set<TokenInfoPermission> missingPermissions, final boolean guildLeaderRequired) throws NullPointerException {
+        Objects.requireNonNull(endPoint);
+        Objects.requireNonNull(missingPermissions);
+        final Set<TokenInfoPermission> missing = missingPermissions.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(missingPermissions));
+        return new QueryPermit(endPoint, missing, guildLeaderRequired);
+    }
+
+    public AuthenticatedEndPoint getEndPoint() {
+        return endPoint;
+    }
+
+    /**
+     * Indicates whether the endpoint may be queried.
+     * @return {@code True} if nothing is missing, {@code false} otherwise.
+     */
+    public boolean isGranted() {
+        return missingPermissions.isEmpty() && !guildLeaderRequired;
+    }
+
+    /**
+     * Gets the permissions the application key lacks.
+     * @return A non-modifiable {@code Set<TokenInfoPermission>} instance, never {@code null}.
+     */
+    public Set<TokenInfoPermission> getMissingPermissions() {
+        return missingPermissions;
+    }
+
+    /**
+     * Indicates whether access is denied because the account is not the leader of the guild.
+     * @return A {@code boolean}.
+     */
+    public boolean isGuildLeaderRequired() {
+        return guildLeaderRequired;
+    }
+
+    @Override
+    public String toString() {
+        return isGranted() ? String.format("%s: granted", endPoint.getPath()) : String.format("%s: denied, missing %s%s", endPoint.getPath(), missingPermissions, guildLeaderRequired ? " and guild leadership" : ""); // NOI18N.
+    }
+}
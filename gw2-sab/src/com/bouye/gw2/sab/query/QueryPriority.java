@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+/**
+ * Priority classes of Web API requests, from highest to lowest.
+ * @author Fabrice Bouyé
+ */
+public enum QueryPriority {
+    /**
+     * Requests whose result is about to be displayed on screen.
+     */
+    INTERACTIVE,
+    /**
+     * Periodic refresh of data already on screen.
+     */
+    BACKGROUND,
+    /**
+     * Speculative requests whose result may never be displayed.
+     */
+    PREFETCH;
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.core.APILevel;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled URL template of an endpoint.
+ * <br>The base URL, API level and endpoint are joined once; building a query then only appends the parameters to a per-thread buffer that is reused from one query to the next.
+ * @author Fabrice Bouyé
+ */
+final class QueryTemplate {
+
+    /**
+     * Maximum number of templates kept per base URL and API level.
+     * <br>Endpoints that embed a value, such as a character name, are not all worth keeping.
+     */
+    private static final int MAX_TEMPLATES = 256;
+    /**
+     * Buffers larger than this are not kept between queries, in characters.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    /**
+     * Templates, by base URL, then by API level, then by endpoint.
+     */
+    private static final Map<String, Map<APILevel, Map<String, QueryTemplate>>> TEMPLATES = new ConcurrentHashMap<>();
+    /**
+     * Buffer reused by each thread.
+     */
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The URL of the endpoint, without parameters.
+     */
+    private final String prefix;
+
+    /**
+     * Creates a new instance.
+     * @param baseCode The base URL of the API.
+     * @param apiLevel The API level.
+     * @param endPoint The endpoint.
+     */
+    private QueryTemplate(final String baseCode, final APILevel apiLevel, final String endPoint) {
+        prefix = baseCode + '/' + apiLevel.name().toLowerCase() + '/' + endPoint;
+    }
+
+    /**
+     * Gets the template of an endpoint.
+     * @param baseCode The base URL of the API.
+     * @param apiLevel The API level.
+     * @param endPoint The endpoint.
+     * @return A {@code QueryTemplate} instance, never {@code null}.
+     * @throws NullPointerException If {@code baseCode}, {@code apiLevel} or {@code endPoint} is {@code null}.
+     */
+    static QueryTemplate of(final String baseCode, final APILevel apiLevel, final String endPoint) throws NullPointerException {
+        Objects.requireNonNull(baseCode);
+        Objects.requireNonNull(apiLevel);
+        Objects.requireNonNull(endPoint);
+        Map<APILevel, Map<String, QueryTemplate>> levels = TEMPLATES.get(baseCode);
+        if (levels == null) {
+            TEMPLATES.putIfAbsent(baseCode, new ConcurrentHashMap<>());
+            levels = TEMPLATES.get(baseCode);
+        }
+        Map<String, QueryTemplate> templates = levels.get(apiLevel);
+        if (templates == null) {
+            levels.putIfAbsent(apiLevel, new ConcurrentHashMap<>());
+            templates = levels.get(apiLevel);
+        }
+        QueryTemplate result = templates.get(endPoint);
+        if (result == null) {
+            result = new QueryTemplate(baseCode, apiLevel, endPoint);
+            if (templates.size() < MAX_TEMPLATES) {
+                templates.putIfAbsent(endPoint, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds a query.
+     * @param parameters The parameters, already encoded.
+     * @return A {@code String} instance, never {@code null}.
+     */
+    String build(final Map<String, Object> parameters) {
+        if (parameters.isEmpty()) {
+            return prefix;
+        }
+        final StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append(prefix);
+        char separator = '?';
+        for (final Map.Entry<String, Object> entry : parameters.entrySet()) {
+            buffer.append(separator)
+                    .append(entry.getKey())
+                    .append('=');
+            final Object value = entry.getValue();
+            if (value instanceof String) {
+                buffer.append((String) value);
+            } else if (value instanceof Integer) {
+                buffer.append(((Integer) value).intValue());
+            } else {
+                buffer.append(value);
+            }
+            separator = '&';
+        }
+        final String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+}
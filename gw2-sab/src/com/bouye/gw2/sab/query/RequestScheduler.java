@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.bouye.gw2.sab.SABConstants;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side rate limiter for the Web API.
+ * <br>Requests take a token from a bucket that is refilled at a constant rate; when the bucket is empty, requests wait in line by priority then by arrival order.
+ * <br>When the server answers with a 429 status, the bucket is paused for the duration requested by the server.
+ * @author Fabrice Bouyé
+ */
+public enum RequestScheduler {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * A request waiting for a token.
+     * @author Fabrice Bouyé
+     */
+    private static final class Waiter implements Comparable<Waiter> {
+
+        final QueryPriority priority;
+        final long sequence;
+
+        Waiter(final QueryPriority priority, final long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Waiter other) {
+            final int result = priority.compareTo(other.priority);
+            return (result != 0) ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signaled whenever the head of the queue or the state of the bucket changes.
+     */
+    private final Condition changed = lock.newCondition();
+    /**
+     * Requests waiting for a token.
+     */
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    /**
+     * Arrival counter, used to keep FIFO order within a priority class.
+     */
+    private long sequence;
+    /**
+     * Number of tokens added to the bucket each second.
+     */
+    private double rate;
+    /**
+     * Maximum number of tokens in the bucket.
+     */
+    private double capacity;
+    /**
+     * Tokens currently in the bucket.
+     */
+    private double tokens;
+    /**
+     * Last time the bucket was refilled, in ns.
+     */
+    private long lastRefill = System.nanoTime();
+    /**
+     * No token is handed out before this time, in ns.
+     */
+    private long pausedUntil = lastRefill;
+    /**
+     * Number of tokens handed out.
+     */
+    private final AtomicLong acquiredCount = new AtomicLong();
+    /**
+     * Cumulated wait time, in ns.
+     */
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    /**
+     * Longest wait time, in ns.
+     */
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    /**
+     * Number of 429 responses reported.
+     */
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     */
+    private RequestScheduler() {
+        rate = SABConstants.INSTANCE.getWebApiRateLimit();
+        capacity = SABConstants.INSTANCE.getWebApiRateBurst();
+        tokens = capacity;
+    }
+
+    /**
+     * Sets the rate limit.
+     * @param requestsPerSecond The number of requests allowed each second.
+     * @param burst The number of requests that may be sent at once after an idle period.
+     * @throws IllegalArgumentException If {@code requestsPerSecond} or {@code burst} is lower than 1.
+     */
+    public void setRateLimit(final int requestsPerSecond, final int burst) throws IllegalArgumentException {
+        if (requestsPerSecond < 1 || burst < 1) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            rate = requestsPerSecond;
+            capacity = burst;
+            tokens = Math.min(tokens, capacity);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a token.
+     * @param priority The priority of the request.
+     * @throws NullPointerException If {@code priority} is {@code null}.
+     * @throws InterruptedException If the current thread was interrupted while waiting.
+     */
+    void acquire(final QueryPriority priority) throws NullPointerException, InterruptedException {
+        Objects.requireNonNull(priority);
+        final long start = System.nanoTime();
+        lock.lock();
+        try {
+            final Waiter waiter = new Waiter(priority, sequence++);
+            waiters.add(waiter);
+            try {
+                while (true) {
+                    if (waiters.peek() != waiter) {
+                        changed.await();
+                        continue;
+                    }
+                    final long now = System.nanoTime();
+                    refill(now);
+                    long delay = 0;
+                    if (now < pausedUntil) {
+                        delay = pausedUntil - now;
+                    } else if (tokens >= 1) {
+                        tokens -= 1;
+                        break;
+                    } else {
+                        delay = (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / rate);
+                    }
+                    changed.awaitNanos(delay);
+                }
+            } finally {
+                waiters.remove(waiter);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        final long waitTime = System.nanoTime() - start;
+        acquiredCount.incrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        maxWaitTime.accumulateAndGet(waitTime, Math::max);
+    }
+
+    /**
+     * Reports that the server rejected a request because of the rate limit.
+     * <br>No token is handed out until the delay expires, and the bucket restarts empty.
+     * @param delay The delay requested by the server, in ms.
+     */
+    void rateLimited(final long delay) {
+        rateLimitedCount.incrementAndGet();
+        lock.lock();
+        try {
+            final long now = System.nanoTime();
+            pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)));
+            lastRefill = pausedUntil;
+            tokens = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refills the bucket.
+     * <br>Must be called while holding the lock.
+     * @param now The current time, in ns.
+     */
+    private void refill(final long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting for a token.
+     * @return An {@code int} &ge; 0.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests of given priority waiting for a token.
+     * @param priority The priority.
+     * @return An {@code int} &ge; 0.
+     * @throws NullPointerException If {@code priority} is {@code null}.
+     */
+    public int getQueueDepth(final QueryPriority priority) throws NullPointerException {
+        Objects.requireNonNull(priority);
+        lock.lock();
+        try {
+            return (int) waiters.stream()
+                    .filter(waiter -> waiter.priority == priority)
+                    .count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests that went through the scheduler.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    /**
+     * Gets the average time requests waited for a token.
+     * @return A {@code long} &ge; 0, in ms.
+     */
+    public long getAverageWaitTime() {
+        final long count = acquiredCount.get();
+        return (count == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitTime.get() / count);
+    }
+
+    /**
+     * Gets the longest time a request waited for a token.
+     * @return A {@code long} &ge; 0, in ms.
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+    }
+
+    /**
+     * Gets the number of requests rejected by the server because of the rate limit.
+     * @return A {@code long} &ge; 0.
+     */
+    public long getRateLimitedCount() {
+        return rateLimitedCount.get();
+    }
+}
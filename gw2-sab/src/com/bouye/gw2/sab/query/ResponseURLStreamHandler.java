@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * URL stream handler that serves an already received {@code GW2APIResponse}.
+ * @author Fabrice Bouyé
+ */
+final class ResponseURLStreamHandler extends URLStreamHandler {
+
+    /**
+     * The response to serve.
+     */
+    private final GW2APIResponse response;
+
+    /**
+     * Creates a new instance.
+     * @param response The response to serve.
+     * @throws NullPointerException If {@code response} is {@code null}.
+     */
+    ResponseURLStreamHandler(final GW2APIResponse response) throws NullPointerException {
+        Objects.requireNonNull(response);
+        this.response = response;
+    }
+
+    @Override
+    protected URLConnection openConnection(final URL url) throws IOException {
+        return new ResponseURLConnection(url, response);
+    }
+
+    /**
+     * Connection that serves an already received response.
+     * @author Fabrice Bouyé
+     */
+    private static final class ResponseURLConnection extends HttpURLConnection {
+
+        /**
+         * The response to serve.
+         */
+        private final GW2APIResponse response;
+        /**
+         * Header names, indexed.
+         */
+        private final List<String> headerKeys;
+
+        ResponseURLConnection(final URL url, final GW2APIResponse response) {
+            super(url);
+            this.response = response;
+            this.responseCode = response.getStatusCode();
+            this.headerKeys = new ArrayList<>(response.getHeaders().keySet());
+            this.connected = true;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            // Already connected.
+        }
+
+        @Override
+        public void disconnect() {
+            try {
+                response.close();
+            } catch (IOException ex) {
+                // Nothing to do.
+            }
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return response.isSuccess() ? null : response.getBody();
+        }
+
+        @Override
+        public String getHeaderField(final String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public String getHeaderFieldKey(final int index) {
+            return (index < 0 || index >= headerKeys.size()) ? null : headerKeys.get(index);
+        }
+
+        @Override
+        public String getHeaderField(final int index) {
+            final String key = getHeaderFieldKey(index);
+            return (key == null) ? null : response.getHeader(key);
+        }
+    }
+}
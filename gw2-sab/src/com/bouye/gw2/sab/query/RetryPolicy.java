@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Defines how failed requests are retried.
+ * <br>Requests that fail with an IO error or a server error are retried after an exponential backoff with full jitter: the delay before the nth retry is a random value between 0 and {@code min(maxDelay, baseDelay * 2^n)}.
+ * @author Fabrice Bouyé
+ */
+public final class RetryPolicy {
+
+    /**
+     * A policy that never retries.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+
+    private final int maxRetries;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * Creates a new instance.
+     * @param maxRetries The maximum number of retries.
+     * @param baseDelay The base delay, in ms.
+     * @param maxDelay The maximum delay, in ms.
+     * @throws IllegalArgumentException If any argument is negative or if {@code maxDelay} is lower than {@code baseDelay}.
+     */
+    public RetryPolicy(final int maxRetries, final long baseDelay, final long maxDelay) throws IllegalArgumentException {
+        if (maxRetries < 0 || baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException();
+        }
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Gets the delay before a retry.
+     * @param retry The index of the retry, starting at 0.
+     * @return A {@code long} &ge; 0, in ms.
+     */
+    long getDelay(final int retry) {
+        // Avoids overflowing on large retry counts.
+        final long ceiling = (retry >= 30) ? maxDelay : Math.min(maxDelay, baseDelay << retry);
+        return (ceiling <= 0) ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -16,16 +16,28 @@ import api.web.gw2.mapping.v2.files.File;
 import api.web.gw2.mapping.v2.items.Item;
 import api.web.gw2.mapping.v2.professions.Profession;
 import api.web.gw2.mapping.v2.quaggans.Quaggan;
+import api.web.gw2.mapping.v2.skins.Skin;
 import api.web.gw2.mapping.v2.tokeninfo.TokenInfo;
 import api.web.gw2.mapping.v2.worlds.World;
 import com.bouye.gw2.sab.SABConstants;
 import com.bouye.gw2.sab.demo.DemoSupport;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 import static com.bouye.gw2.sab.query.GW2APIClient.*;
 import api.web.gw2.mapping.v2.characters.id.equipment.CharacterEquipment;
 import api.web.gw2.mapping.v2.characters.id.equipment.CharacterEquipmentResponse;
@@ -36,6 +48,7 @@ import api.web.gw2.mapping.v2.guild.id.members.GuildMember;
 import api.web.gw2.mapping.v2.guild.id.treasury.GuildTreasury;
 import api.web.gw2.mapping.v2.guild.upgrades.GuildUpgrade;
 import api.web.gw2.mapping.v2.account.wallet.AccountCurrencyAmount;
+import api.web.gw2.mapping.v2.account.inventory.AccountInventory;
 
 /**
  * Centralized class for web-queries.
@@ -44,6 +57,16 @@ import api.web.gw2.mapping.v2.account.wallet.AccountCurrencyAmount;
 public enum WebQuery {
     INSTANCE;
 
+    /**
+     * Executor on which guild details and characters are fetched concurrently.
+     * <br>Callers block until the fan-out finishes and may themselves run on the default query executor, so requests must not wait in line behind them on that executor.
+     */
+    private static final ExecutorService FAN_OUT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "WebQuery-fanout"); // NOI18N.
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * Return the language code to be used when doing queries that return
      * localized values.
@@ -57,6 +80,29 @@ public enum WebQuery {
         return supportedLanguages.contains(currentLanguage) ? currentLanguage : SABConstants.DEFAULT_WEBAPI_LANGUAGE;
     }
 
+    /**
+     * Fetches localized objects from their ids, reporting failures to the caller.
+     * <br>Objects that do not exist are missing from the result; a request that fails or a query made while offline throws instead of returning an empty list.
+     * @param <T> The type to use.
+     * @param endPoint The endpoint.
+     * @param targetClass The target class.
+     * @param ids The ids.
+     * @return A {@code List<T>} instance, never {@code null}.
+     * @throws IllegalStateException If the application is offline.
+     * @throws RuntimeException If the request failed.
+     */
+    private <T> List<T> fetchArray(final String endPoint, final Class<T> targetClass, final int... ids) throws IllegalStateException, RuntimeException {
+        if (SABConstants.INSTANCE.isOffline()) {
+            throw new IllegalStateException(String.format("Cannot query %s while offline.", endPoint)); // NOI18N.
+        }
+        return GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint(endPoint)
+                .language(getLanguageCode())
+                .ids(ids)
+                .fetchArray(targetClass);
+    }
+
     public Optional<TokenInfo> queryTokenInfo(final String appKey) {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         Optional<TokenInfo> result = Optional.empty();
@@ -103,6 +149,18 @@ public enum WebQuery {
         return result;
     }
 
+    /**
+     * Fetches worlds, reporting failures to the caller.
+     * @param ids The ids.
+     * @return A {@code List<World>} instance, never {@code null}.
+     * @throws RuntimeException If the request failed.
+     * @see #queryWorlds(int...)
+     */
+    public List<World> fetchWorlds(final int... ids) throws RuntimeException {
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        return isOffline ? DemoSupport.INSTANCE.loadWorlds(ids) : fetchArray("worlds", World.class, ids); // NOI18N.
+    }
+
     public List<File> queryFiles() {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         List<File> result = Collections.EMPTY_LIST;
@@ -112,26 +170,46 @@ public enum WebQuery {
                     .apiLevel(APILevel.V2)
                     .endPoint("files") // NOI18N.
                     .ids(new int[0])
+                    .priority(QueryPriority.PREFETCH)
                     .queryArray(File.class);
         }
         return result;
     }
 
+    /**
+     * Streams the files served by the API.
+     * <br>Files are decoded one at a time as the response is being read; the stream should be closed after use.
+     * @return A {@code Stream<File>} instance, never {@code null}.
+     */
+    public Stream<File> streamFiles() {
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        Stream<File> result = Stream.empty();
+        if (isOffline) {
+        } else {
+            result = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("files") // NOI18N.
+                    .ids(new int[0])
+                    .priority(QueryPriority.PREFETCH)
+                    .queryArrayStream(File.class);
+        }
+        return result;
+    }
+
     public List<GuildDetails> queryGuildDetails(final String... ids) {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
-        // V1 endpoint: can only query one guild at a time.
+        // V1 endpoint: can only query one guild at a time, guilds are queried concurrently.
         List<GuildDetails> result = Collections.EMPTY_LIST;
         if (isOffline) {
             result = DemoSupport.INSTANCE.loadGuilds(ids);
         } else {
-            final GW2APIClient client = GW2APIClient.create()
+            final List<Optional<GuildDetails>> values = BoundedFanOut.map(Arrays.asList(ids), DEFAULT_PARALLELISM, FAN_OUT_EXECUTOR, id -> GW2APIClient.create()
                     .apiLevel(APILevel.V1)
-                    .endPoint("guild_details.php"); // NOI18N.
+                    .endPoint("guild_details.php") // NOI18N.
+                    .putParameter("guild_id", id) // NOI18N.
+                    .queryObject(GuildDetails.class));
             result = new ArrayList(ids.length);
-            for (final String id : ids) {
-                final Optional<GuildDetails> value = client
-                        .putParameter("guild_id", id) // NOI18N.
-                        .queryObject(GuildDetails.class);
+            for (final Optional<GuildDetails> value : values) {
                 if (value.isPresent()) {
                     result.add(value.get());
                 }
@@ -146,7 +224,7 @@ public enum WebQuery {
         List<GuildMember> result = Collections.EMPTY_LIST;
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
             result = DemoSupport.INSTANCE.loadGuildRoster(id);
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.GUILD_MEMBERS, id).isGranted()) {
             final String endPoint = String.format("guild/%s/members", id); // NOI18N.
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
@@ -162,7 +240,7 @@ public enum WebQuery {
         List<GuildLogEvent> result = Collections.EMPTY_LIST;
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
             result = DemoSupport.INSTANCE.loadGuildLogs(id);
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.GUILD_LOG, id).isGranted()) {
             final String endPoint = String.format("guild/%s/log", id); // NOI18N.
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
@@ -177,7 +255,7 @@ public enum WebQuery {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         List<GuildTreasury> result = Collections.EMPTY_LIST;
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.GUILD_TREASURY, id).isGranted()) {
             final String endPoint = String.format("guild/%s/treasury", id); // NOI18N.
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
@@ -188,6 +266,20 @@ public enum WebQuery {
         return result;
     }
 
+    public List<AccountInventory> queryAccountInventory(final String appKey) {
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        List<AccountInventory> result = Collections.EMPTY_LIST;
+        if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.ACCOUNT_INVENTORY).isGranted()) {
+            result = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("account/inventory") // NOI18N.
+                    .applicationKey(appKey)
+                    .queryArray(AccountInventory.class);
+        }
+        return result;
+    }
+
     public List<GuildUpgrade> queryGuildUpgrades(int... ids) {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         List<GuildUpgrade> result = Collections.EMPTY_LIST;
@@ -210,7 +302,7 @@ public enum WebQuery {
         } else {
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
-                    .endPoint("guild/items") // NOI18N.
+                    .endPoint("items") // NOI18N.
                     .language(getLanguageCode())
                     .ids(ids)
                     .queryArray(Item.class);
@@ -218,6 +310,45 @@ public enum WebQuery {
         return result;
     }
 
+    public List<Skin> querySkins(int... ids) {
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        List<Skin> result = Collections.EMPTY_LIST;
+        if (isOffline) {
+        } else {
+            result = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("skins") // NOI18N.
+                    .language(getLanguageCode())
+                    .ids(ids)
+                    .queryArray(Skin.class);
+        }
+        return result;
+    }
+
+    /**
+     * Fetches items, reporting failures to the caller.
+     * @param ids The ids.
+     * @return A {@code List<Item>} instance, never {@code null}.
+     * @throws IllegalStateException If the application is offline.
+     * @throws RuntimeException If the request failed.
+     * @see #queryItems(int...)
+     */
+    public List<Item> fetchItems(final int... ids) throws IllegalStateException, RuntimeException {
+        return fetchArray("items", Item.class, ids); // NOI18N.
+    }
+
+    /**
+     * Fetches skins, reporting failures to the caller.
+     * @param ids The ids.
+     * @return A {@code List<Skin>} instance, never {@code null}.
+     * @throws IllegalStateException If the application is offline.
+     * @throws RuntimeException If the request failed.
+     * @see #querySkins(int...)
+     */
+    public List<Skin> fetchSkins(final int... ids) throws IllegalStateException, RuntimeException {
+        return fetchArray("skins", Skin.class, ids); // NOI18N.
+    }
+
     /**
      * Query a WvW using world id.
      * @param id The id of a world participating in the match.
@@ -256,11 +387,51 @@ public enum WebQuery {
         return result;
     }
 
+    /**
+     * Query the scores of a WvW match using world id.
+     * <br>The {@code wvw/matches/scores} document is a subset of the match document without objectives; it is decoded as a match whose maps have no objective.
+     * @param id The id of a world participating in the match.
+     * @return An {@code Optional<Match>} instance, never {@code null}.
+     */
+    public Optional<WvwMatch> queryWvwMatchScores(final int id) {
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        Optional<WvwMatch> result = Optional.empty();
+        if (isOffline) {
+        } else {
+            result = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("wvw/matches/scores") // NOI18N.
+                    .putParameter("world", id) // NOI18N.
+                    .queryObject(WvwMatch.class);
+        }
+        return result;
+    }
+
+    /**
+     * Query the scores of WvW matches using match ids.
+     * <br>The {@code wvw/matches/scores} document is a subset of the match document without objectives; it is decoded as a match whose maps have no objective.
+     * @param ids The id(s) of WvW matches.
+     * @return A {@code List<Match>} instance, never {@code null}.
+     */
+    public List<WvwMatch> queryWvwMatchScores(final String... ids) {
+        final boolean isOffline = SABConstants.INSTANCE.isOffline();
+        List<WvwMatch> result = Collections.EMPTY_LIST;
+        if (isOffline) {
+        } else {
+            result = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("wvw/matches/scores") // NOI18N.
+                    .ids(ids)
+                    .queryArray(WvwMatch.class);
+        }
+        return result;
+    }
+
     public List<String> queryCharacterNames(final String appKey) {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         List<String> result = Collections.EMPTY_LIST;
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.CHARACTERS).isGranted()) {
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
                     .endPoint("characters") // NOI18N.
@@ -274,7 +445,7 @@ public enum WebQuery {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         Optional<Character> result = Optional.empty();
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.CHARACTERS).isGranted()) {
             final String escapedCharacterName = encodeURLParameter(characterName);
             final String endPoint = String.format("characters/%s", escapedCharacterName); // NOI18N.
             result = GW2APIClient.create()
@@ -290,7 +461,7 @@ public enum WebQuery {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         Optional<CharacterEquipmentResponse> result = Optional.empty();
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.CHARACTER_EQUIPMENT).isGranted()) {
             final String escapedCharacterName = encodeURLParameter(characterName);
             final String endPoint = String.format("characters/%s/equipment", escapedCharacterName); // NOI18N.
             result = GW2APIClient.create()
@@ -302,28 +473,109 @@ public enum WebQuery {
         return result;
     }
 
+    /**
+     * Queries characters of an account.
+     * <br>Characters are loaded in bulk, see {@link #queryCharacters(java.lang.String, java.util.function.Consumer, java.lang.String...)}.
+     * @param appKey The application key.
+     * @param ids The names of the characters; if empty, all characters of the account are returned.
+     * @return A non-modifiable {@code List<Character>} instance, never {@code null}.
+     * <br>When names are provided, characters are returned in the same order.
+     */
     public List<Character> queryCharacters(final String appKey, final String... ids) {
+        final List<Character> result = new ArrayList(ids.length);
+        queryCharacters(appKey, result::add, ids);
+        if (ids.length > 0) {
+            final List<String> names = Arrays.asList(ids);
+            result.sort((character1, character2) -> Integer.compare(names.indexOf(character1.getName()), names.indexOf(character2.getName())));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Queries characters of an account and hands each of them to the consumer as soon as it is decoded.
+     * <br>Characters are first requested in bulk from the {@code characters} endpoint.
+     * <br>If the bulk request fails or its response cannot be decoded, characters that were not received yet are requested one by one, with a bounded number of concurrent requests.
+     * <br>The consumer is invoked on the calling thread; this method blocks until all characters have been handed over.
+     * <br>Exceptions thrown by the consumer are propagated to the caller.
+     * @param appKey The application key.
+     * @param consumer The consumer.
+     * @param ids The names of the characters; if empty, all characters of the account are loaded.
+     */
+    public void queryCharacters(final String appKey, final Consumer<Character> consumer, final String... ids) {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
-        List<Character> result = Collections.EMPTY_LIST;
-        if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
-            result = new ArrayList(ids.length);
-            final GW2APIClient client = GW2APIClient.create()
-                    .apiLevel(APILevel.V2)
-                    .applicationKey(appKey);
-            for (final String id : ids) {
-                final String escapedCharacterName = encodeURLParameter(id);
-                final String endPoint = String.format("characters/%s", escapedCharacterName); // NOI18N.
-                final Optional<Character> value = client
-                        .endPoint(endPoint)
-                        .queryObject(Character.class);
-                if (value.isPresent()) {
-                    result.add(value.get());
+        if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey) || !PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.CHARACTERS).isGranted()) {
+            return;
+        }
+        final Set<String> received = new HashSet<>();
+        try (final Stream<Character> characters = GW2APIClient.create()
+                .apiLevel(APILevel.V2)
+                .endPoint("characters") // NOI18N.
+                .applicationKey(appKey)
+                .ids(ids)
+                .queryArrayStream(Character.class)) {
+            characters.forEach(character -> {
+                received.add(character.getName());
+                try {
+                    consumer.accept(character);
+                } catch (RuntimeException ex) {
+                    throw new ConsumerException(ex);
+                }
+            });
+            return;
+        } catch (ConsumerException ex) {
+            // Not a failure of the query, do not fall back.
+            throw ex.getCause();
+        } catch (RuntimeException ex) {
+            Logger.getLogger(WebQuery.class.getName()).log(Level.WARNING, "Bulk character query failed, querying characters one by one.", ex); // NOI18N.
+        }
+        final List<String> names = new ArrayList<>((ids.length == 0) ? queryCharacterNames(appKey) : Arrays.asList(ids));
+        names.removeAll(received);
+        queryCharactersOneByOne(appKey, consumer, names);
+    }
+
+    /**
+     * Carries an exception thrown by a consumer out of a stream, so it is not mistaken for a failure of the query.
+     */
+    private static final class ConsumerException extends RuntimeException {
+
+        ConsumerException(final RuntimeException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
+
+    /**
+     * Queries characters one by one, with a bounded number of concurrent requests.
+     * @param appKey The application key.
+     * @param consumer The consumer, invoked on the calling thread.
+     * @param names The names of the characters.
+     */
+    private void queryCharactersOneByOne(final String appKey, final Consumer<Character> consumer, final List<String> names) {
+        final CompletionService<Optional<Character>> completionService = new ExecutorCompletionService<>(FAN_OUT_EXECUTOR);
+        int submitted = 0;
+        int pending = 0;
+        try {
+            while (submitted < names.size() || pending > 0) {
+                // Keep a bounded number of requests in flight.
+                while (submitted < names.size() && pending < DEFAULT_PARALLELISM) {
+                    final String name = names.get(submitted++);
+                    completionService.submit(() -> queryCharacter(appKey, name));
+                    pending++;
                 }
+                final Optional<Character> character = completionService.take().get();
+                pending--;
+                character.ifPresent(consumer);
             }
-            result = Collections.unmodifiableList(result);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(WebQuery.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+        } catch (ExecutionException ex) {
+            Logger.getLogger(WebQuery.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
         }
-        return result;
     }
 
     public List<Currency> queryCurrencies(int... ids) {
@@ -341,11 +593,23 @@ public enum WebQuery {
         return result;
     }
 
+    /**
+     * Fetches currencies, reporting failures to the caller.
+     * @param ids The ids.
+     * @return A {@code List<Currency>} instance, never {@code null}.
+     * @throws IllegalStateException If the application is offline.
+     * @throws RuntimeException If the request failed.
+     * @see #queryCurrencies(int...)
+     */
+    public List<Currency> fetchCurrencies(final int... ids) throws IllegalStateException, RuntimeException {
+        return fetchArray("currencies", Currency.class, ids); // NOI18N.
+    }
+
     public List<AccountCurrencyAmount> queryWallet(final String appKey) {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         List<AccountCurrencyAmount> result = Collections.EMPTY_LIST;
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.ACCOUNT_WALLET).isGranted()) {
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
                     .endPoint("account/wallet") // NOI18N.
@@ -374,7 +638,7 @@ public enum WebQuery {
         final boolean isOffline = SABConstants.INSTANCE.isOffline();
         Optional<PvpStat> result = Optional.empty();
         if (isOffline || DemoSupport.INSTANCE.isDemoApplicationKey(appKey)) {
-        } else {
+        } else if (PermissionPlanner.INSTANCE.check(appKey, AuthenticatedEndPoint.PVP_STATS).isGranted()) {
             result = GW2APIClient.create()
                     .apiLevel(APILevel.V2)
                     .endPoint("pvp/stats") // NOI18N.
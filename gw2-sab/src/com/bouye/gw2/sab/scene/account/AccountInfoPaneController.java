@@ -7,7 +7,6 @@
  */
 package com.bouye.gw2.sab.scene.account;
 
-import api.web.gw2.mapping.v1.guilddetails.GuildDetails;
 import api.web.gw2.mapping.v2.account.Account;
 import api.web.gw2.mapping.v2.account.AccountAccessType;
 import api.web.gw2.mapping.v2.tokeninfo.TokenInfo;
@@ -15,6 +14,8 @@ import api.web.gw2.mapping.v2.worlds.World;
 import com.bouye.gw2.sab.SABConstants;
 import com.bouye.gw2.sab.scene.SABControllerBase;
 import com.bouye.gw2.sab.session.Session;
+import com.bouye.gw2.sab.query.GuildResolver;
+import com.bouye.gw2.sab.query.GuildSummary;
 import com.bouye.gw2.sab.query.WebQuery;
 import com.bouye.gw2.sab.text.LabelUtils;
 import java.net.URL;
@@ -25,7 +26,6 @@ import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.function.BiConsumer;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
@@ -281,16 +281,16 @@ public final class AccountInfoPaneController extends SABControllerBase<AccountIn
             final String[] guildIds = guildLinks.stream()
                     .map(hyperlink -> (String) hyperlink.getUserData())
                     .toArray(size -> new String[size]);
-            final Map<String, GuildDetails> guilds = WebQuery.INSTANCE.queryGuildDetails(guildIds)
-                    .stream()
-                    .collect(Collectors.toMap(guildDetails -> guildDetails.getGuildId(), Function.identity()));
+            final Map<String, GuildSummary> guilds = GuildResolver.INSTANCE.resolve(guildIds);
             // Update on JavaFX application thread.
             Platform.runLater(() -> {
                 guildLinks.stream().forEach(guildLink -> {
                     final String guildId = (String) guildLink.getUserData();
-                    final GuildDetails guildDetails = guilds.get(guildId);
-                    final String label = String.format("%s [%s]", guildDetails.getGuildName(), guildDetails.getTag());
-                    guildLink.setText(label);
+                    final GuildSummary guild = guilds.get(guildId);
+                    if (guild != null) {
+                        final String label = String.format("%s [%s]", guild.getName(), guild.getTag());
+                        guildLink.setText(label);
+                    }
                 });
             });
             return null;
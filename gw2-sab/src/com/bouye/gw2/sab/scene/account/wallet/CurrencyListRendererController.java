@@ -18,7 +18,6 @@ import javafx.beans.InvalidationListener;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import api.web.gw2.mapping.v2.account.wallet.AccountCurrencyAmount;
 
@@ -77,10 +76,13 @@ public final class CurrencyListRendererController extends SABControllerBase<Curr
             nameLabel.setText(currency.getName());
             final int amount = (currencyAmount == null) ? 0 : currencyAmount.getValue();
             amountLabel.setText(String.valueOf(amount));
-            currency.getIcon().ifPresent(url -> {
-                final Image image = ImageCache.INSTANCE.getImage(url.toExternalForm());
-                icon.setImage(image);
-            });
+            icon.setImage(null);
+            currency.getIcon().ifPresent(url -> ImageCache.INSTANCE.loadImage(url.toExternalForm(), image -> {
+                // The renderer may show another currency by the time the icon is loaded.
+                if (parentNode().map(CurrencyListRenderer::getCurrency).orElse(null) == wrapper) {
+                    icon.setImage(image);
+                }
+            }));
             infoTip.setText(currency.getDescription());
         }
     }
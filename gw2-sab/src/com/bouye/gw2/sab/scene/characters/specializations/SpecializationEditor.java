@@ -328,20 +328,17 @@ public final class SpecializationEditor extends Region {
         backgroundURL.ifPresent(url -> {
             System.out.println(url);
             final String urlValue = url.toExternalForm();
-            final Image specializationBackground = ImageCache.INSTANCE.getImage(urlValue);
-            if (specializationBackground == null) {
-                return;
-            }
-            specializationBackground.progressProperty().addListener((ob, ov, nv) -> {
-                if (nv.intValue() == 1) {
-                    // Specialization images contain large blank areas that need to be removed.
-                    Rectangle2D crop = getOverrideCropArea(urlValue);
-                    if (crop == Rectangle2D.EMPTY) {
-                        crop = autoCropBackgroundImage(specializationBackground);
-                    }
-                    background.setViewport(crop);
-                    background.setImage(specializationBackground);
+            ImageCache.INSTANCE.loadImage(urlValue, specializationBackground -> {
+                if (specializationBackground == null) {
+                    return;
+                }
+                // Specialization images contain large blank areas that need to be removed.
+                Rectangle2D crop = getOverrideCropArea(urlValue);
+                if (crop == Rectangle2D.EMPTY) {
+                    crop = autoCropBackgroundImage(specializationBackground);
                 }
+                background.setViewport(crop);
+                background.setImage(specializationBackground);
             });
         });
         // Elite marker.
@@ -7,13 +7,16 @@
  */
 package com.bouye.gw2.sab.scene.commerce.exchange;
 
+import api.web.gw2.mapping.core.APILevel;
 import api.web.gw2.mapping.core.CoinAmount;
-import api.web.gw2.mapping.core.JsonpContext;
 import api.web.gw2.mapping.v2.commerce.exchange.ExchangeRate;
 import api.web.gw2.mapping.v2.commerce.exchange.ExchangeResource;
+import com.bouye.gw2.sab.query.GW2APIClient;
+import com.bouye.gw2.sab.query.QueryPriority;
 import com.bouye.gw2.sab.scene.SABControllerBase;
 import com.bouye.gw2.sab.text.IntegerOnlyFilter;
 import java.net.URL;
+import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -113,10 +116,19 @@ public final class GemExchangePaneController extends SABControllerBase<GemExchan
 
         @Override
         protected Void call() throws Exception {
-            final String gemQuery = String.format("https://api.guildwars2.com/v2/commerce/exchange/gems?quantity=%d", TEST_COINS_QUANTITY); // NOI18N.
-            final String coinQuery = String.format("https://api.guildwars2.com/v2/commerce/exchange/coins?quantity=%d", TEST_GEMS_QUANTITY); // NOI18N.
-            final ExchangeRate gemExchangeRate = JsonpContext.SAX.loadObject(ExchangeRate.class, new URL(gemQuery));
-            final ExchangeRate coinExchangeRate = JsonpContext.SAX.loadObject(ExchangeRate.class, new URL(coinQuery));
+            // Periodic refresh: let on-screen queries go first when the rate limit is reached.
+            final Optional<ExchangeRate> gemExchangeRate = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("commerce/exchange/gems") // NOI18N.
+                    .putParameter("quantity", TEST_COINS_QUANTITY) // NOI18N.
+                    .priority(QueryPriority.BACKGROUND)
+                    .queryObject(ExchangeRate.class);
+            final Optional<ExchangeRate> coinExchangeRate = GW2APIClient.create()
+                    .apiLevel(APILevel.V2)
+                    .endPoint("commerce/exchange/coins") // NOI18N.
+                    .putParameter("quantity", TEST_GEMS_QUANTITY) // NOI18N.
+                    .priority(QueryPriority.BACKGROUND)
+                    .queryObject(ExchangeRate.class);
             return null;
         }
     }
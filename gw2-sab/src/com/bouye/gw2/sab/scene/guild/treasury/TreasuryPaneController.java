@@ -28,7 +28,6 @@ import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.control.TextField;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.TilePane;
@@ -127,12 +126,11 @@ public final class TreasuryPaneController extends SABControllerBase<TreasuryPane
             final Tooltip tooltip = new Tooltip(item.getName());
             Tooltip.install(result, tooltip);
             item.getIcon().ifPresent(url -> {
-                final Image image = ImageCache.INSTANCE.getImage(url.toExternalForm());
                 final ImageView imageView = new ImageView();
                 // @todo switch to CSS whenever those property become styleable.
                 imageView.fitWidthProperty().bind(result.prefWidthProperty());
                 imageView.fitHeightProperty().bind(result.prefHeightProperty());
-                imageView.setImage(image);
+                ImageCache.INSTANCE.loadImage(url.toExternalForm(), imageView::setImage);
                 result.getChildren().add(imageView);
             });
         }
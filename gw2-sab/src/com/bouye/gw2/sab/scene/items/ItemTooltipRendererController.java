@@ -41,7 +41,6 @@ import javafx.beans.value.ChangeListener;
 import javafx.css.PseudoClass;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.text.TextFlow;
@@ -147,12 +146,11 @@ public final class ItemTooltipRendererController extends SABControllerBase<ItemT
             }
             descriptionFlow.getChildren().setAll(LabelUtils.INSTANCE.split(description));
             item.getIcon().ifPresent(url -> {
-                final Image image = ImageCache.INSTANCE.getImage(url.toExternalForm());
                 final ImageView imageView = new ImageView();
                 // @todo switch to CSS whenever those property become styleable.
                 imageView.fitWidthProperty().bind(iconContainer.prefWidthProperty());
                 imageView.fitHeightProperty().bind(iconContainer.prefHeightProperty());
-                imageView.setImage(image);
+                ImageCache.INSTANCE.loadImage(url.toExternalForm(), imageView::setImage);
                 iconContainer.getChildren().add(imageView);
             });
         }
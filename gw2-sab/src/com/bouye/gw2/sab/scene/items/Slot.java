@@ -18,8 +18,10 @@ import com.bouye.gw2.sab.text.LabelUtils;
 import com.bouye.gw2.sab.wrappers.ItemWrapper;
 import com.bouye.gw2.sab.wrappers.TreasuryWrapper;
 import java.net.URL;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -27,7 +29,6 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.css.PseudoClass;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Region;
 
@@ -45,6 +46,14 @@ public final class Slot extends Region {
 
     private final ImageView icon = new ImageView();
     private final Region border = new Region();
+    /**
+     * The path of the current icon, {@code null} if none.
+     */
+    private String iconPath;
+    /**
+     * The path of the icon pinned in the image cache, {@code null} if none.
+     */
+    private String pinnedPath;
 
     /**
      * Creates a empty instance.
@@ -143,11 +152,13 @@ public final class Slot extends Region {
         showRarityProperty().addListener(observable -> Optional.ofNullable(getValue()).ifPresent(this::installValue));
         showTooltipProperty().addListener(observable -> Optional.ofNullable(getValue()).ifPresent(this::installValue));
         valueProperty().addListener(valueChangeListener);
+        sceneProperty().addListener(sceneChangeListener);
     }
 
     protected void dispose() {
         tooltip.removeListener(tooltipChangeListener);
         valueProperty().removeListener(valueChangeListener);
+        sceneProperty().removeListener(sceneChangeListener);
         uninstallValue(null);
         getChildren().clear();
         icon.fitWidthProperty().unbind();
@@ -170,6 +181,11 @@ public final class Slot extends Region {
                 .ifPresent(this::installValue);
     };
 
+    /**
+     * Called whenever the slot is added to or removed from a scene.
+     */
+    private final InvalidationListener sceneChangeListener = observable -> updatePin();
+
     /**
      * Called whenever the tooltip changes.
      */
@@ -274,6 +290,8 @@ public final class Slot extends Region {
      */
     private void uninstallIcon(final URL url) {
         icon.setImage(null);
+        iconPath = null;
+        updatePin();
     }
 
     /**
@@ -282,8 +300,30 @@ public final class Slot extends Region {
      */
     private void installIcon(final URL url) {
         final String path = url.toExternalForm();
-        final Image image = ImageCache.INSTANCE.getImage(path);
-        icon.setImage(image);
+        iconPath = path;
+        updatePin();
+        ImageCache.INSTANCE.loadImage(path, image -> {
+            // The slot may show another value by the time the icon is loaded.
+            if (path.equals(iconPath)) {
+                icon.setImage(image);
+            }
+        });
+    }
+
+    /**
+     * Keeps the icon pinned in the image cache while the slot is in a scene.
+     */
+    private void updatePin() {
+        final String path = (getScene() == null) ? null : iconPath;
+        if (!Objects.equals(path, pinnedPath)) {
+            if (pinnedPath != null) {
+                ImageCache.INSTANCE.unpin(pinnedPath);
+            }
+            if (path != null) {
+                ImageCache.INSTANCE.pin(path);
+            }
+            pinnedPath = path;
+        }
     }
 
     private void uninstallTooltip(final Tooltip tooltip) {
@@ -26,7 +26,6 @@ import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.control.ToggleGroup;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -131,10 +130,7 @@ public final class SeasonPaneController extends SABControllerBase<SeasonPane> {
             final PvpSeasonDivision currentDivision = divisions.get(divisionIndex);
             // PvpSeason icon.
             final URLReference largeIcon = currentDivision.getLargeIcon();
-            largeIcon.ifPresent(url -> {
-                final Image image = ImageCache.INSTANCE.getImage(url.toExternalForm());
-                seasonIcon.setImage(image);
-            });
+            largeIcon.ifPresent(url -> ImageCache.INSTANCE.loadImage(url.toExternalForm(), seasonIcon::setImage));
             // Division details.
             divisionPane.setDivision(currentDivision);
             // Division overview.
@@ -161,8 +157,8 @@ public final class SeasonPaneController extends SABControllerBase<SeasonPane> {
         final String text = SABConstants.I18N.getString(String.format("season-pane.division%d.label", index + 1)); // NOI18N.
         button.setText(text);
         division.getSmallIcon().ifPresent(url -> {
-            final Image image = ImageCache.INSTANCE.getImage(url.toExternalForm());
-            final ImageView imageView = new ImageView(image);
+            final ImageView imageView = new ImageView();
+            ImageCache.INSTANCE.loadImage(url.toExternalForm(), imageView::setImage);
             button.setGraphic(imageView);
         });
         button.setSelected(division == currentDivision);
@@ -181,8 +177,8 @@ public final class SeasonPaneController extends SABControllerBase<SeasonPane> {
                 final URLReference pipIconURL = currentDivision.getPipIcon();
                 if (pipIconURL.isPresent()) {
                     final URL url = pipIconURL.get();
-                    final Image icon = ImageCache.INSTANCE.getImage(url.toExternalForm());
-                    final ImageView imageView = new ImageView(icon);
+                    final ImageView imageView = new ImageView();
+                    ImageCache.INSTANCE.loadImage(url.toExternalForm(), imageView::setImage);
                     graphic = imageView;
                 }
                 break;
@@ -21,7 +21,6 @@ import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.SelectionModel;
 import javafx.scene.control.SingleSelectionModel;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Region;
 
@@ -104,8 +103,15 @@ public final class QuagganPane extends Region {
         final String titleValue = (quaggan == null) ? null : quaggan.getId();
         title.set(titleValue);
         final URLReference imageURL = (quaggan == null) ? null : quaggan.getUrl();
-        final Image image = (imageURL == null || !imageURL.isPresent()) ? null : ImageCache.INSTANCE.getImage(imageURL.get().toExternalForm());
-        imageView.setImage(image);
+        imageView.setImage(null);
+        if (imageURL != null && imageURL.isPresent()) {
+            ImageCache.INSTANCE.loadImage(imageURL.get().toExternalForm(), image -> {
+                // Another quaggan may be shown by the time the image is loaded.
+                if (quaggan == getSelectionModel().getSelectedItem()) {
+                    imageView.setImage(image);
+                }
+            });
+        }
     }
 
     private final SelectionModel<Quaggan> selectionModel = new SingleSelectionModel<Quaggan>() {
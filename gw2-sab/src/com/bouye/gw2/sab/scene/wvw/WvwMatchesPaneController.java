@@ -116,6 +116,7 @@ public final class WvwMatchesPaneController extends SABControllerBase<WvwMatches
                     final int startRowIndex = teamNumber * matchIndex + 1;
                     final WvwMatch match = matchIterator.next();
                     final Map<WvwMatchTeam, String> worldNames = createWorldNames(match, worlds);
+                    final Map<WvwMatchTeam, Integer> scores = wrapper.getScores(match);
                     // Compute aggragated objectives and income.
                     final Map<WvwMatchTeam, int[]> aggregateObjectives = computeAggregateObjectives(match);
                     final Map<WvwMatchTeam, Integer> incomes = computeIncome(aggregateObjectives);
@@ -138,7 +139,7 @@ public final class WvwMatchesPaneController extends SABControllerBase<WvwMatches
                         final int rowIndex = startRowIndex + teamIndex;
                         final WvwMatchTeam team = teams.get(teamIndex);
                         //
-                        final int scoreValue = match.getScores().get(team);
+                        final int scoreValue = scores.get(team);
                         final String score = String.valueOf(scoreValue);
                         final Label scoreLabel = new Label(score);
                         GridPane.setConstraints(scoreLabel, 2, rowIndex);
@@ -147,7 +148,7 @@ public final class WvwMatchesPaneController extends SABControllerBase<WvwMatches
                         rowNodes.add(scoreLabel);
                     }
                     // Column#3 - Score bar chart.
-                    final double maxScore = match.getScores()
+                    final double maxScore = scores
                             .values()
                             .stream()
                             .mapToInt(value -> value)
@@ -157,7 +158,7 @@ public final class WvwMatchesPaneController extends SABControllerBase<WvwMatches
                         final int rowIndex = startRowIndex + teamIndex;
                         final WvwMatchTeam team = teams.get(teamIndex);
                         //
-                        final int scoreValue = match.getScores().get(team);
+                        final int scoreValue = scores.get(team);
                         final String score = String.valueOf(scoreValue);
                         final PseudoClass teamPseudoClass = PseudoClass.getPseudoClass(team.name());
                         final ProgressBar scoreProgressBar = new ProgressBar();
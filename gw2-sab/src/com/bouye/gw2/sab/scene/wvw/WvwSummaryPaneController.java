@@ -137,7 +137,7 @@ public final class WvwSummaryPaneController extends SABControllerBase<WvwSummary
                     //.map(teamIndex -> teams.size() - 1 - teamIndex)
                     .forEach(teamIndex -> {
                         final WvwMatchTeam team = teams.get(teamIndex);
-                        final int teamScore = match.getScores().get(team);
+                        final int teamScore = wrapper.getScores().get(team);
                         final String worldName = worldNames.get(team);
                         final BarChart.Series series = (BarChart.Series) scoreBarChart.getData().get(teamIndex);
                         series.setName(worldName);
@@ -169,7 +169,7 @@ public final class WvwSummaryPaneController extends SABControllerBase<WvwSummary
                         IntStream.range(0, pieTeams.size())
                                 .forEach(teamIndex -> {
                                     final WvwMatchTeam team = pieTeams.get(teamIndex);
-                                    final int teamScore = map.getScores().get(team);
+                                    final int teamScore = wrapper.getScores(map).get(team);
                                     final Optional<PieChart.Data> data = pieChart.getData()
                                             .stream()
                                             .map(obj -> (PieChart.Data) obj)
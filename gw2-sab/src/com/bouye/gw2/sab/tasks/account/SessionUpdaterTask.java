@@ -10,21 +10,52 @@ package com.bouye.gw2.sab.tasks.account;
 import api.web.gw2.mapping.v2.account.Account;
 import api.web.gw2.mapping.v2.tokeninfo.TokenInfo;
 import com.bouye.gw2.sab.session.Session;
+import com.bouye.gw2.sab.query.GW2APIClient;
+import com.bouye.gw2.sab.query.PermissionPlanner;
 import com.bouye.gw2.sab.query.WebQuery;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 
 /**
  * This task queries the v2/account and v2/tokeninfo endpoints to update session informations.
+ * <br>Several sessions are updated concurrently, and both endpoints are queried concurrently for a given session.
+ * <br>Sessions are updated as soon as their results arrive; updates received while the JavaFX application thread is busy are applied together.
+ * <br>The permissions of each key are also handed to the {@code PermissionPlanner}.
  * @author Fabrice Bouyé
  */
 public final class SessionUpdaterTask extends Task<Void> {
 
+    /**
+     * Maximum number of requests in flight: {@value}.
+     * <br>Each session needs two requests.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 2 * GW2APIClient.DEFAULT_PARALLELISM;
+
     /**
      * Sessions to update.
      */
     private final Session[] sessions;
+    /**
+     * Updates waiting to be applied on the JavaFX application thread.
+     */
+    private final Queue<Runnable> pendingUpdates = new ConcurrentLinkedQueue<>();
+    /**
+     * {@code True} while a batch of updates is scheduled on the JavaFX application thread.
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
 
     /**
      * Creates a new instance.
@@ -36,19 +67,66 @@ public final class SessionUpdaterTask extends Task<Void> {
 
     @Override
     protected Void call() throws Exception {
+        final List<Callable<Runnable>> requests = new ArrayList<>(2 * sessions.length);
         for (final Session session : sessions) {
             final String appKey = session.getAppKey();
-            final Optional<TokenInfo> tokenInfo = WebQuery.INSTANCE.queryTokenInfo(appKey);
-            final Optional<Account> account = WebQuery.INSTANCE.queryAccount(appKey);
-            // Update results on JavaFX application thread.
-            Platform.runLater(() -> {
-                tokenInfo.ifPresent(t -> session.setTokenInfo(t));
-                account.ifPresent(a -> {
+            // Both requests of a session are submitted one after the other so they run concurrently.
+            requests.add(() -> {
+                final Optional<TokenInfo> tokenInfo = WebQuery.INSTANCE.queryTokenInfo(appKey);
+                tokenInfo.ifPresent(t -> PermissionPlanner.INSTANCE.update(appKey, t));
+                return () -> tokenInfo.ifPresent(t -> session.setTokenInfo(t));
+            });
+            requests.add(() -> {
+                final Optional<Account> account = WebQuery.INSTANCE.queryAccount(appKey);
+                account.ifPresent(a -> PermissionPlanner.INSTANCE.update(appKey, a));
+                return () -> account.ifPresent(a -> {
                     session.setAccount(a);
                     session.setAccountName(a.getName());
                 });
             });
         }
+        final CompletionService<Runnable> completionService = new ExecutorCompletionService<>(GW2APIClient.getDefaultExecutor());
+        final List<Future<Runnable>> futures = new ArrayList<>(requests.size());
+        int submitted = 0;
+        int completed = 0;
+        try {
+            while (completed < requests.size() && !isCancelled()) {
+                // Keep a bounded number of requests in flight.
+                while (submitted < requests.size() && submitted - completed < MAX_CONCURRENT_REQUESTS) {
+                    futures.add(completionService.submit(requests.get(submitted++)));
+                }
+                final Future<Runnable> future = completionService.take();
+                completed++;
+                try {
+                    pendingUpdates.add(future.get());
+                    scheduleFlush();
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(SessionUpdaterTask.class.getName()).log(Level.SEVERE, ex.getMessage(), ex);
+                }
+                updateProgress(completed, requests.size());
+            }
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
         return null;
     }
+
+    /**
+     * Schedules pending updates to be applied on the JavaFX application thread, unless a batch is already scheduled.
+     */
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    /**
+     * Applies all pending updates; called on the JavaFX application thread.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        for (Runnable update = pendingUpdates.poll(); update != null; update = pendingUpdates.poll()) {
+            update.run();
+        }
+    }
 }
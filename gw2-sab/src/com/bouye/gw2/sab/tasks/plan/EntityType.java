@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.tasks.plan;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A kind of entity that can be loaded in bulk from its ids, such as items or skins.
+ * <br>Within a plan, an id of a given entity type is requested at most once, whatever the number of nodes that need it.
+ * @param <K> The type of the ids.
+ * @param <V> The type of the entities.
+ * @author Fabrice Bouyé
+ */
+public final class EntityType<K, V> {
+
+    private final String name;
+    /**
+     * Loads entities from their ids.
+     */
+    private final Function<Collection<K>, List<V>> loader;
+    /**
+     * Gets the id of an entity.
+     */
+    private final Function<V, K> idExtractor;
+
+    /**
+     * Creates a new instance.
+     * @param name The name of this entity type, used in logs.
+     * @param loader Loads entities from their ids; unknown ids are simply missing from the result.
+     * @param idExtractor Gets the id of an entity.
+     */
+    private EntityType(final String name, final Function<Collection<K>, List<V>> loader, final Function<V, K> idExtractor) {
+        this.name = name;
+        this.loader = loader;
+        this.idExtractor = idExtractor;
+    }
+
+    /**
+     * Creates a new entity type.
+     * @param <K> The type of the ids.
+     * @param <V> The type of the entities.
+     * @param name The name of this entity type, used in logs.
+     * @param loader Loads entities from their ids; unknown ids are simply missing from the result.
+     * @param idExtractor Gets the id of an entity.
+     * @return An {@code EntityType<K, V>} instance, never {@code null}.
+     * @throws NullPointerException If {@code name}, {@code loader} or {@code idExtractor} is {@code null}.
+     */
+    public static <K, V> EntityType<K, V> of(final String name, final Function<Collection<K>, List<V>> loader, final Function<V, K> idExtractor) throws NullPointerException {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(loader);
+        Objects.requireNonNull(idExtractor);
+        return new EntityType<>(name, loader, idExtractor);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    List<V> load(final Collection<K> ids) {
+        return loader.apply(ids);
+    }
+
+    K idOf(final V value) {
+        return idExtractor.apply(value);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
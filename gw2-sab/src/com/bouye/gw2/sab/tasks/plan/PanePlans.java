@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.tasks.plan;
+
+import api.web.gw2.mapping.v2.account.inventory.AccountInventory;
+import api.web.gw2.mapping.v2.characters.Character;
+import api.web.gw2.mapping.v2.characters.id.inventory.CharacterInventory;
+import api.web.gw2.mapping.v2.characters.id.inventory.CharacterInventoryBag;
+import api.web.gw2.mapping.v2.guild.id.treasury.GuildTreasury;
+import api.web.gw2.mapping.v2.guild.id.treasury.GuildTreasuryUpgrade;
+import api.web.gw2.mapping.v2.guild.upgrades.GuildUpgrade;
+import api.web.gw2.mapping.v2.items.Item;
+import api.web.gw2.mapping.v2.skins.Skin;
+import com.bouye.gw2.sab.query.EntityResolver;
+import com.bouye.gw2.sab.query.WebQuery;
+import com.bouye.gw2.sab.wrappers.CharacterBagWrapper;
+import com.bouye.gw2.sab.wrappers.CharacterInventoryWrapper;
+import com.bouye.gw2.sab.wrappers.SharedInventoryWrapper;
+import com.bouye.gw2.sab.wrappers.TreasuryWrapper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Query plans of the panes.
+ * <br>Each method adds its nodes to the given plan, so several of them can be combined and executed together, sharing the entities they have in common.
+ * @author Fabrice Bouyé
+ */
+public enum PanePlans {
+    /**
+     * The unique instance of this class.
+     */
+    INSTANCE;
+
+    /**
+     * Items, by id.
+     * <br>Items are shared with the rest of the application through {@link EntityResolver#ITEMS}.
+     */
+    public static final EntityType<Integer, Item> ITEMS = EntityType.of("items", ids -> resolve(EntityResolver.ITEMS, ids), Item::getId); // NOI18N.
+    /**
+     * Skins, by id.
+     * <br>Skins are shared with the rest of the application through {@link EntityResolver#SKINS}.
+     */
+    public static final EntityType<Integer, Skin> SKINS = EntityType.of("skins", ids -> resolve(EntityResolver.SKINS, ids), Skin::getId); // NOI18N.
+    /**
+     * Guild upgrades, by id.
+     */
+    public static final EntityType<Integer, GuildUpgrade> GUILD_UPGRADES = EntityType.of("guild/upgrades", ids -> WebQuery.INSTANCE.queryGuildUpgrades(toIntArray(ids)), GuildUpgrade::getId); // NOI18N.
+
+    /**
+     * Adds the treasury of a guild to a plan.
+     * <br>Items and upgrades are resolved in parallel once the treasury is known.
+     * @param plan The plan.
+     * @param appKey The application key.
+     * @param guildId The id of the guild.
+     * @return A {@code PlanNode<List<TreasuryWrapper>>} instance, never {@code null}.
+     * @throws NullPointerException If {@code plan} is {@code null}.
+     */
+    public PlanNode<List<TreasuryWrapper>> guildTreasury(final QueryPlan plan, final String appKey, final String guildId) throws NullPointerException {
+        Objects.requireNonNull(plan);
+        final PlanNode<List<GuildTreasury>> treasury = plan.fetch("guild/treasury", () -> WebQuery.INSTANCE.queryGuildTreasury(appKey, guildId)); // NOI18N.
+        final PlanNode<Set<Integer>> itemIds = plan.derive("treasury items", treasury, treasuries -> treasuries.stream() // NOI18N.
+                .map(GuildTreasury::getItemId)
+                .collect(Collectors.toSet()));
+        final PlanNode<Set<Integer>> upgradeIds = plan.derive("treasury upgrades", treasury, treasuries -> treasuries.stream() // NOI18N.
+                .flatMap(entry -> entry.getNeededBy().stream())
+                .map(GuildTreasuryUpgrade::getUpgradeId)
+                .collect(Collectors.toSet()));
+        final PlanNode<Map<Integer, Item>> items = plan.resolve(ITEMS, itemIds);
+        final PlanNode<Map<Integer, GuildUpgrade>> upgrades = plan.resolve(GUILD_UPGRADES, upgradeIds);
+        return plan.combine("treasury", treasury, items, upgrades, (treasuries, itemMap, upgradeMap) -> treasuries.stream() // NOI18N.
+                .map(entry -> {
+                    final Item item = itemMap.get(entry.getItemId());
+                    final GuildUpgrade[] neededBy = entry.getNeededBy()
+                            .stream()
+                            .map(treasuryUpgrade -> upgradeMap.get(treasuryUpgrade.getUpgradeId()))
+                            .toArray(GuildUpgrade[]::new);
+                    return new TreasuryWrapper(entry, item, neededBy);
+                })
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Adds the shared inventory of an account to a plan.
+     * @param plan The plan.
+     * @param appKey The application key.
+     * @return A {@code PlanNode<List<SharedInventoryWrapper>>} instance, never {@code null}.
+     * <br>Empty slots are {@code null} in the resulting list.
+     * @throws NullPointerException If {@code plan} is {@code null}.
+     */
+    public PlanNode<List<SharedInventoryWrapper>> sharedInventory(final QueryPlan plan, final String appKey) throws NullPointerException {
+        Objects.requireNonNull(plan);
+        final PlanNode<List<AccountInventory>> inventory = plan.fetch("account/inventory", () -> WebQuery.INSTANCE.queryAccountInventory(appKey)); // NOI18N.
+        final PlanNode<Set<Integer>> itemIds = plan.derive("shared inventory items", inventory, slots -> slots.stream() // NOI18N.
+                .filter(Objects::nonNull)
+                .map(AccountInventory::getId)
+                .collect(Collectors.toSet()));
+        final PlanNode<Map<Integer, Item>> items = plan.resolve(ITEMS, itemIds);
+        final PlanNode<Map<Integer, Skin>> skins = plan.resolve(SKINS, plan.derive("shared inventory skins", items, PanePlans::defaultSkinIds)); // NOI18N.
+        return plan.combine("shared inventory", inventory, items, skins, (slots, itemMap, skinMap) -> slots.stream() // NOI18N.
+                .map(slot -> {
+                    SharedInventoryWrapper wrapper = null;
+                    if (slot != null) {
+                        final Item item = itemMap.get(slot.getId());
+                        wrapper = new SharedInventoryWrapper(slot, item, defaultSkin(item, skinMap));
+                    }
+                    return wrapper;
+                })
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Adds the inventory of a character to a plan.
+     * <br>Bags are resolved along with their content.
+     * @param plan The plan.
+     * @param appKey The application key.
+     * @param characterName The name of the character.
+     * @return A {@code PlanNode<List<CharacterBagWrapper>>} instance, never {@code null}.
+     * <br>Empty bag slots are {@code null} in the resulting list.
+     * @throws NullPointerException If {@code plan} is {@code null}.
+     */
+    public PlanNode<List<CharacterBagWrapper>> characterInventory(final QueryPlan plan, final String appKey, final String characterName) throws NullPointerException {
+        Objects.requireNonNull(plan);
+        final PlanNode<List<CharacterInventoryBag>> bags = plan.fetch("characters", () -> WebQuery.INSTANCE.queryCharacter(appKey, characterName) // NOI18N.
+                .map(Character::getBags)
+                .orElse(Collections.emptyList()));
+        final PlanNode<Set<Integer>> itemIds = plan.derive("character inventory items", bags, bagList -> bagList.stream() // NOI18N.
+                .filter(Objects::nonNull)
+                .flatMap(bag -> {
+                    final Set<Integer> ids = bag.getInventory()
+                            .stream()
+                            .filter(Objects::nonNull)
+                            .map(CharacterInventory::getId)
+                            .collect(Collectors.toSet());
+                    ids.add(bag.getId());
+                    return ids.stream();
+                })
+                .collect(Collectors.toSet()));
+        final PlanNode<Map<Integer, Item>> items = plan.resolve(ITEMS, itemIds);
+        final PlanNode<Map<Integer, Skin>> skins = plan.resolve(SKINS, plan.derive("character inventory skins", items, PanePlans::defaultSkinIds)); // NOI18N.
+        return plan.combine("character inventory", bags, items, skins, (bagList, itemMap, skinMap) -> bagList.stream() // NOI18N.
+                .map(bag -> {
+                    CharacterBagWrapper wrapper = null;
+                    if (bag != null) {
+                        final CharacterInventoryWrapper[] content = bag.getInventory()
+                                .stream()
+                                .map(slot -> {
+                                    CharacterInventoryWrapper slotWrapper = null;
+                                    if (slot != null) {
+                                        final Item item = itemMap.get(slot.getId());
+                                        slotWrapper = new CharacterInventoryWrapper(slot, item, defaultSkin(item, skinMap));
+                                    }
+                                    return slotWrapper;
+                                })
+                                .toArray(CharacterInventoryWrapper[]::new);
+                        wrapper = new CharacterBagWrapper(bag, itemMap.get(bag.getId()), content);
+                    }
+                    return wrapper;
+                })
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Gets the ids of the default skins of items.
+     * @param items The items.
+     * @return A {@code Set<Integer>} instance, never {@code null}.
+     */
+    private static Set<Integer> defaultSkinIds(final Map<Integer, Item> items) {
+        return items.values()
+                .stream()
+                .map(Item::getDefaultSkin)
+                .filter(OptionalInt::isPresent)
+                .map(OptionalInt::getAsInt)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Gets the default skin of an item.
+     * @param item The item, may be {@code null}.
+     * @param skins The skins.
+     * @return A {@code Skin} instance, may be {@code null}.
+     */
+    private static Skin defaultSkin(final Item item, final Map<Integer, Skin> skins) {
+        return (item == null || !item.getDefaultSkin().isPresent()) ? null : skins.get(item.getDefaultSkin().getAsInt());
+    }
+
+    /**
+     * Resolves entities through a shared resolver and waits for them.
+     * @param <T> The type of the entities.
+     * @param resolver The resolver.
+     * @param ids The ids.
+     * @return A {@code List<T>} instance, never {@code null}.
+     */
+    private static <T> List<T> resolve(final EntityResolver<T> resolver, final Collection<Integer> ids) {
+        return new ArrayList<>(resolver.loadAll(toIntArray(ids)).join().values());
+    }
+
+    private static int[] toIntArray(final Collection<Integer> ids) {
+        return ids.stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.tasks.plan;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A step of a query plan.
+ * <br>A node only describes how its value is obtained from the values of the nodes it depends on; nothing is queried until the plan is executed.
+ * @param <T> The type of the value.
+ * @author Fabrice Bouyé
+ * @see QueryPlan
+ */
+public final class PlanNode<T> {
+
+    private final QueryPlan plan;
+    private final String name;
+    /**
+     * Starts the computation of the value, once per execution.
+     */
+    private final Function<QueryPlan.Execution, CompletableFuture<T>> starter;
+
+    /**
+     * Creates a new instance.
+     * @param plan The plan this node belongs to.
+     * @param name The name of this node, used in logs.
+     * @param starter Starts the computation of the value.
+     */
+    PlanNode(final QueryPlan plan, final String name, final Function<QueryPlan.Execution, CompletableFuture<T>> starter) {
+        this.plan = plan;
+        this.name = name;
+        this.starter = starter;
+    }
+
+    QueryPlan getPlan() {
+        return plan;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    CompletableFuture<T> start(final QueryPlan.Execution execution) {
+        return starter.apply(execution);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.tasks.plan;
+
+import com.bouye.gw2.sab.query.GW2APIClient;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Describes the data a pane needs as a graph of queries.
+ * <br>Panes declare what they fetch, how ids are derived from fetched values and how values are combined into wrappers; the plan then runs every query as soon as its inputs are available, so independent branches are queried in parallel.
+ * <br>Entities resolved through {@link #resolve(EntityType, PlanNode)} are shared by all branches of an execution: an id needed by several nodes is only requested once.
+ * <br>A plan can be executed several times; each execution queries everything again.
+ * @author Fabrice Bouyé
+ */
+public final class QueryPlan {
+
+    /**
+     * Creates a new instance.
+     */
+    private QueryPlan() {
+    }
+
+    /**
+     * Creates a new empty plan.
+     * @return A {@code QueryPlan} instance, never {@code null}.
+     */
+    public static QueryPlan create() {
+        return new QueryPlan();
+    }
+
+    /**
+     * Adds a query that does not depend on any other node.
+     * @param <T> The type of the value.
+     * @param name The name of the node, used in logs.
+     * @param query The query.
+     * @return A {@code PlanNode<T>} instance, never {@code null}.
+     * @throws NullPointerException If {@code name} or {@code query} is {@code null}.
+     */
+    public <T> PlanNode<T> fetch(final String name, final Supplier<T> query) throws NullPointerException {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(query);
+        return new PlanNode<>(this, name, execution -> CompletableFuture.supplyAsync(query, execution.executor));
+    }
+
+    /**
+     * Adds a node whose value is computed from the value of another node.
+     * <br>The mapper may itself run a query, in which case it is run as soon as the value of {@code source} is available.
+     * @param <T> The type of the source value.
+     * @param <R> The type of the value.
+     * @param name The name of the node, used in logs.
+     * @param source The source node.
+     * @param mapper The mapper.
+     * @return A {@code PlanNode<R>} instance, never {@code null}.
+     * @throws NullPointerException If {@code name}, {@code source} or {@code mapper} is {@code null}.
+     * @throws IllegalArgumentException If {@code source} belongs to another plan.
+     */
+    public <T, R> PlanNode<R> derive(final String name, final PlanNode<T> source, final Function<? super T, ? extends R> mapper) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(mapper);
+        checkOwner(source);
+        return new PlanNode<>(this, name, execution -> execution.futureOf(source).thenApplyAsync(mapper, execution.executor));
+    }
+
+    /**
+     * Adds a node whose value is computed from the values of two other nodes.
+     * @param <A> The type of the first value.
+     * @param <B> The type of the second value.
+     * @param <R> The type of the value.
+     * @param name The name of the node, used in logs.
+     * @param first The first node.
+     * @param second The second node.
+     * @param combiner The combiner.
+     * @return A {@code PlanNode<R>} instance, never {@code null}.
+     * @throws NullPointerException If {@code name}, {@code first}, {@code second} or {@code combiner} is {@code null}.
+     * @throws IllegalArgumentException If {@code first} or {@code second} belongs to another plan.
+     */
+    public <A, B, R> PlanNode<R> combine(final String name, final PlanNode<A> first, final PlanNode<B> second, final BiFunction<? super A, ? super B, ? extends R> combiner) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(combiner);
+        checkOwner(first);
+        checkOwner(second);
+        return new PlanNode<>(this, name, execution -> execution.futureOf(first).thenCombineAsync(execution.futureOf(second), combiner, execution.executor));
+    }
+
+    /**
+     * Adds a node whose value is computed from the values of three other nodes.
+     * @param <A> The type of the first value.
+     * @param <B> The type of the second value.
+     * @param <C> The type of the third value.
+     * @param <R> The type of the value.
+     * @param name The name of the node, used in logs.
+     * @param first The first node.
+     * @param second The second node.
+     * @param third The third node.
+     * @param combiner The combiner.
+     * @return A {@code PlanNode<R>} instance, never {@code null}.
+     * @throws NullPointerException If {@code name}, {@code first}, {@code second}, {@code third} or {@code combiner} is {@code null}.
+     * @throws IllegalArgumentException If {@code first}, {@code second} or {@code third} belongs to another plan.
+     */
+    public <A, B, C, R> PlanNode<R> combine(final String name, final PlanNode<A> first, final PlanNode<B> second, final PlanNode<C> third, final Combiner3<? super A, ? super B, ? super C, ? extends R> combiner) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(combiner);
+        checkOwner(first);
+        checkOwner(second);
+        checkOwner(third);
+        return new PlanNode<>(this, name, execution -> {
+            final CompletableFuture<A> firstFuture = execution.futureOf(first);
+            final CompletableFuture<B> secondFuture = execution.futureOf(second);
+            final CompletableFuture<C> thirdFuture = execution.futureOf(third);
+            return CompletableFuture.allOf(firstFuture, secondFuture, thirdFuture)
+                    .thenApplyAsync(ignored -> combiner.apply(firstFuture.join(), secondFuture.join(), thirdFuture.join()), execution.executor);
+        });
+    }
+
+    /**
+     * Adds a node that resolves entities from ids computed by another node.
+     * <br>Ids already requested by another node of the same execution are not requested again; only the new ones are loaded, in a single bulk query.
+     * <br>Entities that cannot be loaded are missing from the resulting map, the node itself does not fail.
+     * @param <K> The type of the ids.
+     * @param <V> The type of the entities.
+     * @param type The type of the entities.
+     * @param ids The node that computes the ids.
+     * @return A {@code PlanNode<Map<K, V>>} instance, never {@code null}.
+     * <br>The resulting map is not modifiable.
+     * @throws NullPointerException If {@code type} or {@code ids} is {@code null}.
+     * @throws IllegalArgumentException If {@code ids} belongs to another plan.
+     */
+    public <K, V> PlanNode<Map<K, V>> resolve(final EntityType<K, V> type, final PlanNode<? extends Collection<K>> ids) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(type);
+        checkOwner(ids);
+        final String name = String.format("%s(%s)", type.getName(), ids.getName()); // NOI18N.
+        return new PlanNode<>(this, name, execution -> execution.futureOf(ids).thenComposeAsync(keys -> execution.resolve(type, keys), execution.executor));
+    }
+
+    /**
+     * Executes this plan on the default query executor and waits for the value of a node.
+     * <br>Only the nodes this node depends on are queried.
+     * @param <T> The type of the value.
+     * @param node The node.
+     * @return The value.
+     * @throws NullPointerException If {@code node} is {@code null}.
+     * @throws IllegalArgumentException If {@code node} belongs to another plan.
+     * @throws CompletionException If a query of this plan failed.
+     */
+    public <T> T execute(final PlanNode<T> node) throws NullPointerException, IllegalArgumentException, CompletionException {
+        return executeAsync(node).join();
+    }
+
+    /**
+     * Executes this plan on the default query executor.
+     * @param <T> The type of the value.
+     * @param node The node whose value is requested.
+     * @return A {@code CompletableFuture<T>} instance, never {@code null}.
+     * @throws NullPointerException If {@code node} is {@code null}.
+     * @throws IllegalArgumentException If {@code node} belongs to another plan.
+     * @see GW2APIClient#getDefaultExecutor()
+     */
+    public <T> CompletableFuture<T> executeAsync(final PlanNode<T> node) throws NullPointerException, IllegalArgumentException {
+        return executeAsync(node, GW2APIClient.getDefaultExecutor());
+    }
+
+    /**
+     * Executes this plan.
+     * @param <T> The type of the value.
+     * @param node The node whose value is requested.
+     * @param executor The executor that runs the queries.
+     * @return A {@code CompletableFuture<T>} instance, never {@code null}.
+     * @throws NullPointerException If {@code node} or {@code executor} is {@code null}.
+     * @throws IllegalArgumentException If {@code node} belongs to another plan.
+     */
+    public <T> CompletableFuture<T> executeAsync(final PlanNode<T> node, final Executor executor) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(executor);
+        checkOwner(node);
+        return new Execution(executor).futureOf(node);
+    }
+
+    private void checkOwner(final PlanNode<?> node) throws NullPointerException, IllegalArgumentException {
+        Objects.requireNonNull(node);
+        if (node.getPlan() != this) {
+            throw new IllegalArgumentException(String.format("Node %s belongs to another plan.", node)); // NOI18N.
+        }
+    }
+
+    /**
+     * Combines three values.
+     * @param <A> The type of the first value.
+     * @param <B> The type of the second value.
+     * @param <C> The type of the third value.
+     * @param <R> The type of the result.
+     * @author Fabrice Bouyé
+     */
+    @FunctionalInterface
+    public interface Combiner3<A, B, C, R> {
+
+        R apply(A first, B second, C third);
+    }
+
+    /**
+     * State of a single execution of a plan.
+     * @author Fabrice Bouyé
+     */
+    static final class Execution {
+
+        private final Executor executor;
+        /**
+         * Future of each node started by this execution.
+         * <br>The graph is entirely started from the calling thread, so no synchronization is needed.
+         */
+        private final Map<PlanNode<?>, CompletableFuture<?>> nodes = new HashMap<>();
+        /**
+         * For each entity type, the future of every id requested so far.
+         */
+        private final Map<EntityType<?, ?>, Map<Object, CompletableFuture<?>>> entities = new ConcurrentHashMap<>();
+
+        /**
+         * Creates a new instance.
+         * @param executor The executor that runs the queries.
+         */
+        private Execution(final Executor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * Gets the future of a node, starting the node and its dependencies if needed.
+         * @param <T> The type of the value.
+         * @param node The node.
+         * @return A {@code CompletableFuture<T>} instance, never {@code null}.
+         */
+        @SuppressWarnings("unchecked")
+        <T> CompletableFuture<T> futureOf(final PlanNode<T> node) {
+            CompletableFuture<T> result = (CompletableFuture<T>) nodes.get(node);
+            if (result == null) {
+                result = node.start(this);
+                nodes.put(node, result);
+            }
+            return result;
+        }
+
+        /**
+         * Resolves entities, loading only the ids no other node of this execution has requested yet.
+         * @param <K> The type of the ids.
+         * @param <V> The type of the entities.
+         * @param type The type of the entities.
+         * @param keys The ids.
+         * @return A {@code CompletableFuture<Map<K, V>>} instance, never {@code null}.
+         */
+        @SuppressWarnings("unchecked")
+        private <K, V> CompletableFuture<Map<K, V>> resolve(final EntityType<K, V> type, final Collection<K> keys) {
+            final Map<Object, CompletableFuture<?>> requested = entities.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+            final Map<K, CompletableFuture<V>> wanted = new LinkedHashMap<>();
+            final Map<K, CompletableFuture<V>> toLoad = new LinkedHashMap<>();
+            keys.stream()
+                    .filter(key -> key != null && !wanted.containsKey(key))
+                    .forEach(key -> {
+                        final CompletableFuture<V> future = new CompletableFuture<>();
+                        final CompletableFuture<V> existing = (CompletableFuture<V>) requested.putIfAbsent(key, future);
+                        if (existing == null) {
+                            toLoad.put(key, future);
+                            wanted.put(key, future);
+                        } else {
+                            wanted.put(key, existing);
+                        }
+                    });
+            if (!toLoad.isEmpty()) {
+                CompletableFuture.runAsync(() -> load(type, toLoad), executor);
+            }
+            return CompletableFuture.allOf(wanted.values().toArray(new CompletableFuture[wanted.size()]))
+                    .thenApply(ignored -> {
+                        final Map<K, V> result = new HashMap<>();
+                        wanted.forEach((key, future) -> {
+                            final V value = future.join();
+                            if (value != null) {
+                                result.put(key, value);
+                            }
+                        });
+                        return Collections.unmodifiableMap(result);
+                    });
+        }
+
+        /**
+         * Loads entities in bulk and completes their futures.
+         * <br>Futures of entities that could not be loaded are completed with {@code null}.
+         * @param <K> The type of the ids.
+         * @param <V> The type of the entities.
+         * @param type The type of the entities.
+         * @param toLoad The future of each id to load.
+         */
+        private static <K, V> void load(final EntityType<K, V> type, final Map<K, CompletableFuture<V>> toLoad) {
+            try {
+                type.load(toLoad.keySet())
+                        .stream()
+                        .filter(Objects::nonNull)
+                        .forEach(value -> {
+                            final CompletableFuture<V> future = toLoad.get(type.idOf(value));
+                            if (future != null) {
+                                future.complete(value);
+                            }
+                        });
+            } catch (RuntimeException ex) {
+                Logger.getLogger(QueryPlan.class.getName()).log(Level.WARNING, ex.getMessage(), ex);
+            } finally {
+                toLoad.values().forEach(future -> future.complete(null));
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ package com.bouye.gw2.sab.tasks.wvw.matches;
 import com.bouye.gw2.sab.wrappers.MatchWrapper;
 import api.web.gw2.mapping.v2.worlds.World;
 import api.web.gw2.mapping.v2.wvw.matches.WvwMatchTeam;
+import com.bouye.gw2.sab.query.EntityResolver;
 import com.bouye.gw2.sab.query.WebQuery;
 import java.util.Arrays;
 import java.util.Collections;
@@ -17,7 +18,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javafx.concurrent.Task;
@@ -25,6 +25,7 @@ import api.web.gw2.mapping.v2.wvw.matches.WvwMatch;
 
 /**
  * This task queries the v2/wvw/matches and v2/worlds endpoints to resolve WvW matches.
+ * <br>To refresh matches periodically, use a {@link WvwMatchPoller} instead.
  * @author Fabrice Bouyé
  */
 public final class MatchSolverTask extends Task<List<MatchWrapper>> {
@@ -88,10 +89,8 @@ public final class MatchSolverTask extends Task<List<MatchWrapper>> {
         }
         final int[] allWorldIds = allWorldIdsStream.distinct()
                 .toArray();
-        // Get world names for each id.
-        final Map<Integer, World> worldIdsMap = WebQuery.INSTANCE.queryWorlds(allWorldIds)
-                .stream()
-                .collect(Collectors.toMap(world -> world.getId(), Function.identity()));
+        // Get world names for each id; worlds are only queried once per session.
+        final Map<Integer, World> worldIdsMap = EntityResolver.WORLDS.loadAll(allWorldIds).join();
         // Assemble results.
         final List<MatchWrapper> result = matches.stream()
                 .map(match -> {
@@ -110,7 +109,7 @@ public final class MatchSolverTask extends Task<List<MatchWrapper>> {
      * @param match The source match.
      * @return An {@code InStream}, never {@code null}.
      */
-    private IntStream worldIdsForMatch(final WvwMatch match) {
+    static IntStream worldIdsForMatch(final WvwMatch match) {
         final Map<WvwMatchTeam, Integer> worldIds = match.getWorlds();
         final Map<WvwMatchTeam, Set<Integer>> allWorldIds = match.getAllWorlds();
         final boolean pairedMatch = !allWorldIds.isEmpty();
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.tasks.wvw.matches;
+
+import api.web.gw2.mapping.v2.worlds.World;
+import api.web.gw2.mapping.v2.wvw.matches.WvwMatch;
+import api.web.gw2.mapping.v2.wvw.matches.WvwMatchMap;
+import com.bouye.gw2.sab.SABConstants;
+import com.bouye.gw2.sab.query.EntityResolver;
+import com.bouye.gw2.sab.query.WebQuery;
+import com.bouye.gw2.sab.wrappers.MatchWrapper;
+import com.bouye.gw2.sab.wrappers.MatchesWrapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javafx.concurrent.ScheduledService;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+/**
+ * Periodically polls WvW matches and reports only the matches that changed.
+ * <br>Scores are polled from the light {@code v2/wvw/matches/scores} endpoint at every period; full matches, with the objectives of each map, are only polled when the objectives period has elapsed.
+ * <br>Worlds are resolved once per session through {@link EntityResolver#WORLDS}.
+ * <br>The value of each run is the list of matches whose scores or objectives changed since the previous run, empty if nothing changed; {@link #getMatches()} gives the latest state of all matches.
+ * @author Fabrice Bouyé
+ */
+public final class WvwMatchPoller extends ScheduledService<List<MatchWrapper>> {
+
+    private final boolean queryWorldId;
+    /**
+     * The world id.
+     */
+    private final int worldId;
+    /**
+     * The match ids.
+     */
+    private final String[] matchIds;
+    /**
+     * Latest full match of each id.
+     */
+    private final Map<String, WvwMatch> matches = new ConcurrentHashMap<>();
+    /**
+     * Latest scores of each match, when more recent than its full match.
+     */
+    private final Map<String, WvwMatch> scores = new ConcurrentHashMap<>();
+    /**
+     * Worlds of each match.
+     */
+    private final Map<String, List<World>> matchWorlds = new ConcurrentHashMap<>();
+    /**
+     * Scores last reported for each match.
+     */
+    private final Map<String, List<Object>> scoreSignatures = new HashMap<>();
+    /**
+     * Objective owners last reported for each match.
+     */
+    private final Map<String, List<Object>> objectiveSignatures = new HashMap<>();
+    /**
+     * Time of the last poll of full matches, in ms.
+     */
+    private long lastFullPoll;
+
+    /**
+     * Create a new instance that will poll a single WvW match based on given world id.
+     * @param worldId The world id.
+     */
+    public WvwMatchPoller(final int worldId) {
+        queryWorldId = true;
+        this.worldId = worldId;
+        matchIds = new String[0];
+        init();
+    }
+
+    /**
+     * Create a new instance that will poll multiple WvW matches based on given match ids.
+     * @param matchIds The match ids; if none is provided, all matches are polled.
+     */
+    public WvwMatchPoller(final String... matchIds) {
+        queryWorldId = false;
+        worldId = -1;
+        this.matchIds = matchIds;
+        init();
+    }
+
+    private void init() {
+        setPeriod(Duration.millis(SABConstants.INSTANCE.getWvwScoresPeriod()));
+        setRestartOnFailure(true);
+    }
+
+    @Override
+    protected Task<List<MatchWrapper>> createTask() {
+        return new Task<List<MatchWrapper>>() {
+            @Override
+            protected List<MatchWrapper> call() throws Exception {
+                return poll();
+            }
+        };
+    }
+
+    /**
+     * Gets the latest state of all matches polled so far.
+     * @return A {@code MatchesWrapper} instance, never {@code null}.
+     */
+    public MatchesWrapper getMatches() {
+        final Map<Integer, World> worlds = new HashMap<>();
+        matchWorlds.values()
+                .stream()
+                .flatMap(List::stream)
+                .filter(Objects::nonNull)
+                .forEach(world -> worlds.put(world.getId(), world));
+        return new MatchesWrapper(new HashMap<>(matches), new HashMap<>(scores), worlds);
+    }
+
+    /**
+     * Polls the matches.
+     * <br>Runs are sequential, so state is only modified by one thread at a time.
+     * @return A non-modifiable {@code List<MatchWrapper>} instance, never {@code null}.
+     */
+    private List<MatchWrapper> poll() {
+        // Nothing to do.
+        if (queryWorldId && worldId == -1) {
+            return Collections.EMPTY_LIST;
+        }
+        final long now = System.currentTimeMillis();
+        final boolean fullPoll = matches.isEmpty() || (now - lastFullPoll >= SABConstants.INSTANCE.getWvwObjectivesPeriod());
+        final List<WvwMatch> polled = fullPoll ? queryMatches() : queryScores();
+        if (fullPoll && !polled.isEmpty()) {
+            lastFullPoll = now;
+            resolveWorlds(polled);
+        }
+        final List<MatchWrapper> result = new ArrayList<>();
+        for (final WvwMatch match : polled) {
+            final String id = match.getId();
+            // Matches that just started are picked up by the next full poll.
+            if (!fullPoll && !matches.containsKey(id)) {
+                continue;
+            }
+            final List<Object> scoresSignature = scoresSignature(match);
+            boolean changed = !scoresSignature.equals(scoreSignatures.put(id, scoresSignature));
+            if (fullPoll) {
+                final List<Object> objectivesSignature = objectivesSignature(match);
+                changed |= !objectivesSignature.equals(objectiveSignatures.put(id, objectivesSignature));
+                matches.put(id, match);
+                scores.remove(id);
+            } else {
+                scores.put(id, match);
+            }
+            if (changed) {
+                result.add(new MatchWrapper(matches.get(id), scores.get(id), matchWorlds.getOrDefault(id, Collections.EMPTY_LIST)));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Query full matches.
+     * @return A {@code List<WvwMatch>} instance, never {@code null}.
+     */
+    private List<WvwMatch> queryMatches() {
+        return queryWorldId ? WebQuery.INSTANCE.queryWvwMatch(worldId).map(Collections::singletonList).orElse(Collections.EMPTY_LIST) : WebQuery.INSTANCE.queryWvwMatches(matchIds);
+    }
+
+    /**
+     * Query scores of matches.
+     * @return A {@code List<WvwMatch>} instance, never {@code null}.
+     */
+    private List<WvwMatch> queryScores() {
+        return queryWorldId ? WebQuery.INSTANCE.queryWvwMatchScores(worldId).map(Collections::singletonList).orElse(Collections.EMPTY_LIST) : WebQuery.INSTANCE.queryWvwMatchScores(matchIds);
+    }
+
+    /**
+     * Resolves the worlds of matches; worlds already resolved are not queried again.
+     * @param polled The matches.
+     */
+    private void resolveWorlds(final List<WvwMatch> polled) {
+        final int[] allWorldIds = polled.stream()
+                .flatMapToInt(MatchSolverTask::worldIdsForMatch)
+                .distinct()
+                .toArray();
+        final Map<Integer, World> worlds = EntityResolver.WORLDS.loadAll(allWorldIds).join();
+        polled.forEach(match -> {
+            final List<World> worldList = MatchSolverTask.worldIdsForMatch(match)
+                    .mapToObj(worlds::get)
+                    .collect(Collectors.toList());
+            matchWorlds.put(match.getId(), Collections.unmodifiableList(worldList));
+        });
+    }
+
+    /**
+     * Gets the values that identify the scores of a match.
+     * <br>Full matches and scores give the same signature for the same scores.
+     * @param match The match.
+     * @return A {@code List<Object>} instance, never {@code null}.
+     */
+    private static List<Object> scoresSignature(final WvwMatch match) {
+        final List<Object> result = new ArrayList<>();
+        result.add(match.getScores());
+        match.getMaps()
+                .stream()
+                .map(WvwMatchMap::getScores)
+                .forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Gets the values that identify the owners of the objectives of a match.
+     * @param match The match.
+     * @return A {@code List<Object>} instance, never {@code null}.
+     */
+    private static List<Object> objectivesSignature(final WvwMatch match) {
+        return match.getMaps()
+                .stream()
+                .flatMap(map -> map.getObjectives().stream())
+                .map(objective -> objective.getOwner())
+                .collect(Collectors.toList());
+    }
+}
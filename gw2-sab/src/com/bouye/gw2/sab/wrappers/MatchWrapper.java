@@ -8,7 +8,10 @@
 package com.bouye.gw2.sab.wrappers;
 
 import api.web.gw2.mapping.v2.worlds.World;
+import api.web.gw2.mapping.v2.wvw.matches.WvwMatchMap;
+import api.web.gw2.mapping.v2.wvw.matches.WvwMatchTeam;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import api.web.gw2.mapping.v2.wvw.matches.WvwMatch;
 
@@ -19,12 +22,27 @@ import api.web.gw2.mapping.v2.wvw.matches.WvwMatch;
 public final class MatchWrapper {
 
     private final WvwMatch match;
+    /**
+     * Scores fetched after the match, may be {@code null}.
+     */
+    private final WvwMatch scores;
     private final List<World> worlds;
 
     public MatchWrapper(final WvwMatch match, final List<World> worlds) {
+        this(match, null, worlds);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param match The full match, with objectives.
+     * @param scores The scores of the match, fetched after the full match; may be {@code null}.
+     * @param worlds The worlds of the match.
+     */
+    public MatchWrapper(final WvwMatch match, final WvwMatch scores, final List<World> worlds) {
         Objects.requireNonNull(match);
         Objects.requireNonNull(worlds);
         this.match = match;
+        this.scores = scores;
         this.worlds = worlds;
     }
 
@@ -35,4 +53,26 @@ public final class MatchWrapper {
     public List<World> getWorlds() {
         return worlds;
     }
+
+    /**
+     * Gets the latest scores of the match.
+     * @return A {@code Map<WvwMatchTeam, Integer>} instance, never {@code null}.
+     */
+    public Map<WvwMatchTeam, Integer> getScores() {
+        return (scores == null) ? match.getScores() : scores.getScores();
+    }
+
+    /**
+     * Gets the latest scores of a map of the match.
+     * @param map The map, as found in the full match.
+     * @return A {@code Map<WvwMatchTeam, Integer>} instance, never {@code null}.
+     */
+    public Map<WvwMatchTeam, Integer> getScores(final WvwMatchMap map) {
+        return (scores == null) ? map.getScores() : scores.getMaps()
+                .stream()
+                .filter(scoresMap -> scoresMap.getType() == map.getType())
+                .findFirst()
+                .map(WvwMatchMap::getScores)
+                .orElse(map.getScores());
+    }
 }
@@ -8,8 +8,12 @@
 package com.bouye.gw2.sab.wrappers;
 
 import api.web.gw2.mapping.v2.worlds.World;
+import api.web.gw2.mapping.v2.wvw.matches.WvwMatchTeam;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import api.web.gw2.mapping.v2.wvw.matches.WvwMatch;
 
 /**
@@ -19,12 +23,28 @@ import api.web.gw2.mapping.v2.wvw.matches.WvwMatch;
 public final class MatchesWrapper {
 
     private final Map<String, WvwMatch> matches;
+    /**
+     * Scores fetched after the matches.
+     */
+    private final Map<String, WvwMatch> scores;
     private final Map<Integer, World> worlds;
 
     public MatchesWrapper(Map<String, WvwMatch> matches, Map<Integer, World> worlds) {
+        this(matches, Collections.EMPTY_MAP, worlds);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param matches The full matches, with objectives.
+     * @param scores The scores of the matches, fetched after the full matches.
+     * @param worlds The worlds of the matches.
+     */
+    public MatchesWrapper(Map<String, WvwMatch> matches, Map<String, WvwMatch> scores, Map<Integer, World> worlds) {
         Objects.requireNonNull(matches);
+        Objects.requireNonNull(scores);
         Objects.requireNonNull(worlds);
         this.matches = matches;
+        this.scores = scores;
         this.worlds = worlds;
     }
 
@@ -35,4 +55,27 @@ public final class MatchesWrapper {
     public Map<Integer, World> getWorlds() {
         return worlds;
     }
+
+    /**
+     * Gets the latest scores of a match.
+     * @param match The match.
+     * @return A {@code Map<WvwMatchTeam, Integer>} instance, never {@code null}.
+     */
+    public Map<WvwMatchTeam, Integer> getScores(final WvwMatch match) {
+        final WvwMatch matchScores = scores.get(match.getId());
+        return (matchScores == null) ? match.getScores() : matchScores.getScores();
+    }
+
+    /**
+     * Creates a copy of this wrapper that only contains some matches.
+     * @param predicate Selects the matches to keep.
+     * @return A {@code MatchesWrapper} instance, never {@code null}.
+     */
+    public MatchesWrapper filter(final Predicate<WvwMatch> predicate) {
+        final Map<String, WvwMatch> filtered = matches.values()
+                .stream()
+                .filter(predicate)
+                .collect(Collectors.toMap(WvwMatch::getId, match -> match));
+        return new MatchesWrapper(filtered, scores, worlds);
+    }
 }
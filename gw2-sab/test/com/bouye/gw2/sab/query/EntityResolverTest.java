@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the batching of the entity resolver.
+ * @author Fabrice Bouyé
+ */
+public class EntityResolverTest {
+
+    public EntityResolverTest() {
+    }
+
+    /**
+     * Creates a resolver whose entities are the string value of their id; ids &lt; 0 do not exist.
+     * @param batches Receives the ids of each batch.
+     * @param fail If {@code true}, the next batch fails.
+     * @return An {@code EntityResolver<String>} instance, never {@code null}.
+     */
+    private static EntityResolver<String> createResolver(final List<int[]> batches, final AtomicBoolean fail) {
+        return new EntityResolver<>("test", ids -> { // NOI18N.
+            batches.add(ids);
+            if (fail.getAndSet(false)) {
+                throw new IllegalStateException("test"); // NOI18N.
+            }
+            return IntStream.of(ids)
+                    .filter(id -> id >= 0)
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.toList());
+        }, Integer::parseInt);
+    }
+
+    @Test
+    public void testBatching() {
+        System.out.println("testBatching"); // NOI18N.
+        final List<int[]> batches = Collections.synchronizedList(new ArrayList<>());
+        final EntityResolver<String> resolver = createResolver(batches, new AtomicBoolean());
+        // Requests from several callers within the window end up in a single batch.
+        final CompletableFuture<String> first = resolver.load(1);
+        final CompletableFuture<Map<Integer, String>> second = resolver.loadAll(2, 1, 3, -1);
+        final CompletableFuture<String> third = resolver.load(3);
+        assertEquals("1", first.join()); // NOI18N.
+        assertEquals("3", third.join()); // NOI18N.
+        final Map<Integer, String> values = second.join();
+        assertEquals(3, values.size());
+        assertFalse(values.containsKey(-1));
+        assertEquals(1, batches.size());
+        assertArrayEquals(new int[]{-1, 1, 2, 3}, batches.get(0));
+        // Resolved entities, including missing ones, are never fetched again.
+        assertEquals("2", resolver.loadAll(2, -1).join().get(2)); // NOI18N.
+        assertEquals("2", resolver.getIfPresent(2).get()); // NOI18N.
+        assertEquals(1, resolver.getBatchCount());
+        assertEquals(8, resolver.getRequestCount());
+        assertEquals(4, resolver.getHitCount());
+    }
+
+    @Test
+    public void testFailure() {
+        System.out.println("testFailure"); // NOI18N.
+        final List<int[]> batches = Collections.synchronizedList(new ArrayList<>());
+        final EntityResolver<String> resolver = createResolver(batches, new AtomicBoolean(true));
+        try {
+            resolver.load(1).join();
+            fail();
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertFalse(resolver.getIfPresent(1).isPresent());
+        // Failed ids are forgotten so they are requested again.
+        assertEquals("1", resolver.load(1).join()); // NOI18N.
+        assertEquals(2, batches.size());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import api.web.gw2.mapping.v2.tokeninfo.TokenInfoPermission;
+import java.util.Collections;
+import java.util.EnumSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the permission matrix.
+ * @author Fabrice Bouyé
+ */
+public class PermissionMatrixTest {
+
+    public PermissionMatrixTest() {
+    }
+
+    @Test
+    public void testUnknown() {
+        System.out.println("testUnknown"); // NOI18N.
+        final PermissionMatrix matrix = PermissionMatrix.of(null, null);
+        assertFalse(matrix.isPermissionsKnown());
+        for (final AuthenticatedEndPoint endPoint : AuthenticatedEndPoint.values()) {
+            assertTrue(matrix.check(endPoint, "guild").isGranted()); // NOI18N.
+        }
+    }
+
+    @Test
+    public void testPermissions() {
+        System.out.println("testPermissions"); // NOI18N.
+        final PermissionMatrix matrix = PermissionMatrix.of(EnumSet.of(TokenInfoPermission.ACCOUNT, TokenInfoPermission.WALLET), null);
+        assertTrue(matrix.check(AuthenticatedEndPoint.ACCOUNT_WALLET).isGranted());
+        final QueryPermit permit = matrix.check(AuthenticatedEndPoint.ACCOUNT_INVENTORY);
+        assertFalse(permit.isGranted());
+        assertFalse(permit.isGuildLeaderRequired());
+        assertEquals(EnumSet.of(TokenInfoPermission.INVENTORIES), permit.getMissingPermissions());
+        assertEquals(EnumSet.of(TokenInfoPermission.CHARACTERS, TokenInfoPermission.BUILDS), matrix.check(AuthenticatedEndPoint.CHARACTER_EQUIPMENT).getMissingPermissions());
+    }
+
+    @Test
+    public void testGuildLeader() {
+        System.out.println("testGuildLeader"); // NOI18N.
+        final PermissionMatrix unknownLeader = PermissionMatrix.of(EnumSet.of(TokenInfoPermission.ACCOUNT, TokenInfoPermission.GUILDS), null);
+        assertTrue(unknownLeader.check(AuthenticatedEndPoint.GUILD_TREASURY, "guild1").isGranted()); // NOI18N.
+        final PermissionMatrix matrix = unknownLeader.withGuildLeader(Collections.singleton("guild1")); // NOI18N.
+        assertTrue(matrix.check(AuthenticatedEndPoint.GUILD_TREASURY, "guild1").isGranted()); // NOI18N.
+        final QueryPermit permit = matrix.check(AuthenticatedEndPoint.GUILD_TREASURY, "guild2"); // NOI18N.
+        assertFalse(permit.isGranted());
+        assertTrue(permit.isGuildLeaderRequired());
+        assertTrue(permit.getMissingPermissions().isEmpty());
+        // Without the guilds permission, leadership is irrelevant.
+        assertEquals(EnumSet.of(TokenInfoPermission.GUILDS), matrix.withPermissions(EnumSet.of(TokenInfoPermission.ACCOUNT)).check(AuthenticatedEndPoint.GUILD_LOG, "guild1").getMissingPermissions()); // NOI18N.
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the pooled transport against a local stand-in server.
+ * @author Fabrice Bouyé
+ */
+public class PooledHttpTransportTest {
+
+    private static final String JSON = "[1,2,3]"; // NOI18N.
+
+    private HttpServer server;
+    private final Set<InetSocketAddress> clientAddresses = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    public PooledHttpTransportTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v2/test", exchange -> { // NOI18N.
+            clientAddresses.add(exchange.getRemoteAddress());
+            requestCount.incrementAndGet();
+            final int active = activeRequests.incrementAndGet();
+            maxActiveRequests.accumulateAndGet(active, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            final byte[] body = JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json"); // NOI18N.
+            activeRequests.decrementAndGet();
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.createContext("/v2/compressed", exchange -> { // NOI18N.
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (final OutputStream output = new GZIPOutputStream(buffer)) {
+                output.write(largeJSON().getBytes(StandardCharsets.UTF_8));
+            }
+            final byte[] body = buffer.toByteArray();
+            exchange.getResponseHeaders().add("Content-Type", "application/json"); // NOI18N.
+            final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding"); // NOI18N.
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) { // NOI18N.
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip"); // NOI18N.
+                exchange.sendResponseHeaders(200, body.length);
+                try (final OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            } else {
+                final byte[] plainBody = largeJSON().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, plainBody.length);
+                try (final OutputStream output = exchange.getResponseBody()) {
+                    output.write(plainBody);
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private URL testURL() throws IOException {
+        return new URL(String.format("http://%s:%d/v2/test", server.getAddress().getHostString(), server.getAddress().getPort())); // NOI18N.
+    }
+
+    private static String largeJSON() {
+        final StringBuilder result = new StringBuilder("["); // NOI18N.
+        for (int index = 0; index < 1000; index++) {
+            result.append((index == 0) ? "" : ",") // NOI18N.
+                    .append(String.format("{\"id\":%d,\"name\":\"Item %d\"}", index, index)); // NOI18N.
+        }
+        return result.append("]").toString(); // NOI18N.
+    }
+
+    private static String readBody(final GW2APIResponse response) throws IOException {
+        try (final InputStream input = response.toURL().openStream();
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            final byte[] buffer = new byte[256];
+            for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testConnectionReuse() throws IOException {
+        System.out.println("testConnectionReuse"); // NOI18N.
+        final PooledHttpTransport transport = new PooledHttpTransport();
+        final int queries = 10;
+        for (int index = 0; index < queries; index++) {
+            try (final GW2APIResponse response = transport.get(testURL(), Collections.EMPTY_MAP)) {
+                assertEquals(200, response.getStatusCode());
+                assertEquals("application/json", response.getHeader("content-type")); // NOI18N.
+                assertEquals(JSON, readBody(response));
+            }
+        }
+        assertEquals(queries, requestCount.get());
+        // All sequential queries went through the same socket.
+        assertEquals(1, clientAddresses.size());
+    }
+
+    @Test
+    public void testConnectionReuseWithUnreadBody() throws IOException {
+        System.out.println("testConnectionReuseWithUnreadBody"); // NOI18N.
+        final PooledHttpTransport transport = new PooledHttpTransport();
+        final int queries = 5;
+        for (int index = 0; index < queries; index++) {
+            // Closing the response drains the body.
+            transport.get(testURL(), Collections.EMPTY_MAP).close();
+        }
+        assertEquals(queries, requestCount.get());
+        assertEquals(1, clientAddresses.size());
+    }
+
+    @Test
+    public void testMaxConnectionsPerHost() throws Exception {
+        System.out.println("testMaxConnectionsPerHost"); // NOI18N.
+        final int maxConnectionsPerHost = 2;
+        final PooledHttpTransport transport = new PooledHttpTransport(PooledHttpTransport.DEFAULT_POOL_SIZE, maxConnectionsPerHost, PooledHttpTransport.DEFAULT_TIMEOUT);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int index = 0; index < 16; index++) {
+                futures.add(executor.submit(() -> {
+                    try (final GW2APIResponse response = transport.get(testURL(), Collections.EMPTY_MAP)) {
+                        return readBody(response);
+                    }
+                }));
+            }
+            for (final Future<String> future : futures) {
+                assertEquals(JSON, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(16, requestCount.get());
+        assertTrue(maxActiveRequests.get() <= maxConnectionsPerHost);
+        assertTrue(clientAddresses.size() <= maxConnectionsPerHost);
+    }
+
+    @Test
+    public void testCompressedResponse() throws IOException {
+        System.out.println("testCompressedResponse"); // NOI18N.
+        final PooledHttpTransport transport = new PooledHttpTransport();
+        final URL url = new URL(String.format("http://%s:%d/v2/compressed", server.getAddress().getHostString(), server.getAddress().getPort())); // NOI18N.
+        final String expected = largeJSON();
+        try (final GW2APIResponse response = transport.get(url, Collections.EMPTY_MAP)) {
+            // The body is inflated transparently.
+            assertNull(response.getHeader("Content-Encoding")); // NOI18N.
+            assertEquals(expected, readBody(response));
+        }
+        final long compressedBytes = transport.getBytesReceived();
+        assertTrue(compressedBytes < expected.length());
+        try (final GW2APIResponse response = transport.get(url, Collections.singletonMap("Accept-Encoding", "identity"))) { // NOI18N.
+            assertEquals(expected, readBody(response));
+        }
+        assertEquals(expected.length(), transport.getBytesReceived() - compressedBytes);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the query cache.
+ * @author Fabrice Bouyé
+ */
+public class QueryCacheTest {
+
+    public QueryCacheTest() {
+    }
+
+    @Test
+    public void testGet() {
+        System.out.println("testGet"); // NOI18N.
+        final String url = "https://api.guildwars2.com/v2/test/get?id=1"; // NOI18N.
+        final AtomicInteger decodes = new AtomicInteger();
+        final String value1 = QueryCache.INSTANCE.get(url, "[1]", json -> json + decodes.incrementAndGet()); // NOI18N.
+        assertEquals("[1]1", value1); // NOI18N.
+        assertSame(value1, QueryCache.INSTANCE.get(url, "[1]", json -> json + decodes.incrementAndGet())); // NOI18N.
+        assertEquals("[2]2", QueryCache.INSTANCE.get(url, "[2]", json -> json + decodes.incrementAndGet())); // NOI18N.
+        assertEquals(2, decodes.get());
+        // Failures are not kept.
+        assertNull(QueryCache.INSTANCE.get(url, "[3]", json -> { // NOI18N.
+            throw new IllegalStateException();
+        }));
+        assertEquals("[3]3", QueryCache.INSTANCE.get(url, "[3]", json -> json + decodes.incrementAndGet())); // NOI18N.
+    }
+
+    @Test(timeout = 5000)
+    public void testNullResult() {
+        System.out.println("testNullResult"); // NOI18N.
+        final String url = "https://api.guildwars2.com/v2/test/null?id=1"; // NOI18N.
+        final AtomicInteger decodes = new AtomicInteger();
+        // Null results are not kept either, the same content is produced again.
+        assertNull(QueryCache.INSTANCE.get(url, 1L, () -> {
+            decodes.incrementAndGet();
+            return null;
+        }));
+        assertNull(QueryCache.INSTANCE.get(url, 1L, () -> {
+            decodes.incrementAndGet();
+            return null;
+        }));
+        assertEquals("value3", QueryCache.INSTANCE.get(url, 1L, () -> "value" + decodes.incrementAndGet())); // NOI18N.
+        assertEquals("value3", QueryCache.INSTANCE.get(url, 1L, () -> "value" + decodes.incrementAndGet())); // NOI18N.
+        assertEquals(3, decodes.get());
+    }
+
+    @Test(timeout = 5000)
+    public void testProducerError() throws InterruptedException {
+        System.out.println("testProducerError"); // NOI18N.
+        final String url = "https://api.guildwars2.com/v2/test/error?id=1"; // NOI18N.
+        try {
+            QueryCache.INSTANCE.get(url, 1L, () -> {
+                throw new OutOfMemoryError();
+            });
+            fail();
+        } catch (OutOfMemoryError ex) {
+            // Expected.
+        }
+        // The entry of the failed producer is not left pending.
+        assertEquals("value", QueryCache.INSTANCE.get(url, 1L, () -> "value")); // NOI18N.
+    }
+
+    @Test
+    public void testPolicies() {
+        System.out.println("testPolicies"); // NOI18N.
+        assertTrue(QueryCache.INSTANCE.getPolicy("https://api.guildwars2.com/v2/wvw/matches/scores?ids=1-1").isCached()); // NOI18N.
+        assertTrue(QueryCache.INSTANCE.getPolicy("https://api.guildwars2.com/v2/items/12345?lang=en").isBuildBound()); // NOI18N.
+        assertEquals(ExpiryPolicy.SESSION, QueryCache.INSTANCE.getPolicy("https://api.guildwars2.com/v2/account?access_token=key")); // NOI18N.
+        assertEquals(ExpiryPolicy.NONE, QueryCache.INSTANCE.getPolicy("https://api.guildwars2.com/v2/account/bank?access_token=key")); // NOI18N.
+        assertFalse(ExpiryPolicy.BUILD.isExpired(0, 1, Long.MAX_VALUE, 1));
+        assertTrue(ExpiryPolicy.BUILD.isExpired(0, 1, 0, 2));
+        assertFalse(ExpiryPolicy.BUILD.isExpired(0, -1, 0, 2));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        System.out.println("testExpiry"); // NOI18N.
+        QueryCache.INSTANCE.setPolicy("test/ttl", ExpiryPolicy.ttl(50)); // NOI18N.
+        final String url = "https://api.guildwars2.com/v2/test/ttl#object"; // NOI18N.
+        final List<QueryCache.EvictionCause> causes = new ArrayList<>();
+        final QueryCache.EvictionListener listener = (key, value, cause) -> {
+            if (url.equals(key)) {
+                causes.add(cause);
+            }
+        };
+        QueryCache.INSTANCE.addEvictionListener(listener);
+        try {
+            final long expiries = QueryCache.INSTANCE.getExpiryCount();
+            assertFalse(QueryCache.INSTANCE.getIfFresh(url).isPresent());
+            QueryCache.INSTANCE.update(url, 1L, "value"); // NOI18N.
+            final long hits = QueryCache.INSTANCE.getHitCount();
+            assertEquals(Optional.of("value"), QueryCache.INSTANCE.getIfFresh(url)); // NOI18N.
+            assertEquals(hits + 1, QueryCache.INSTANCE.getHitCount());
+            Thread.sleep(100);
+            assertFalse(QueryCache.INSTANCE.getIfFresh(url).isPresent());
+            assertEquals(expiries + 1, QueryCache.INSTANCE.getExpiryCount());
+            QueryCache.INSTANCE.update(url, 1L, "value"); // NOI18N.
+            QueryCache.INSTANCE.invalidate("test"); // NOI18N.
+            assertFalse(QueryCache.INSTANCE.getIfFresh(url).isPresent());
+            assertEquals(2, causes.size());
+            assertEquals(QueryCache.EvictionCause.EXPIRED, causes.get(0));
+            assertEquals(QueryCache.EvictionCause.INVALIDATED, causes.get(1));
+        } finally {
+            QueryCache.INSTANCE.removeEvictionListener(listener);
+        }
+    }
+
+    @Test
+    public void testUpdate() {
+        System.out.println("testUpdate"); // NOI18N.
+        final String url = "https://api.guildwars2.com/v2/test/update#object"; // NOI18N.
+        final List<Object> changes = new ArrayList<>();
+        final QueryCache.ChangeListener listener = (key, oldValue, newValue) -> {
+            if (url.equals(key)) {
+                changes.add(newValue);
+            }
+        };
+        QueryCache.INSTANCE.addChangeListener(listener);
+        try {
+            final String value1 = new String("value"); // NOI18N.
+            assertSame(value1, QueryCache.INSTANCE.update(url, ContentHash.of("[1]"), value1)); // NOI18N.
+            // Same content: the cached instance is kept.
+            final long unchanged = QueryCache.INSTANCE.getUnchangedCount();
+            assertSame(value1, QueryCache.INSTANCE.update(url, ContentHash.of("[1]"), new String("value"))); // NOI18N.
+            assertSame(value1, QueryCache.INSTANCE.unchanged(url, new String("value"))); // NOI18N.
+            assertEquals(unchanged + 2, QueryCache.INSTANCE.getUnchangedCount());
+            assertTrue(changes.isEmpty());
+            // New content.
+            final String value2 = new String("value"); // NOI18N.
+            assertSame(value2, QueryCache.INSTANCE.update(url, ContentHash.of("[2]"), value2)); // NOI18N.
+            assertEquals(1, changes.size());
+            assertSame(value2, changes.get(0));
+            assertNotEquals(ContentHash.of("[1]"), ContentHash.of("[2]")); // NOI18N.
+        } finally {
+            QueryCache.INSTANCE.removeChangeListener(listener);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016-2017 Fabrice Bouyé
+ * All rights reserved.
+ *
+ * This software may be modified and distributed under the terms
+ * of the BSD license.  See the LICENSE file for details.
+ */
+package com.bouye.gw2.sab.query;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the instrumentation of the query executor.
+ * @author Fabrice Bouyé
+ */
+public class QueryExecutorTest {
+
+    public QueryExecutorTest() {
+    }
+
+    @Test
+    public void testDeterministicExecutor() {
+        System.out.println("testDeterministicExecutor"); // NOI18N.
+        // Runs tasks on the calling thread.
+        final QueryExecutor executor = QueryExecutor.wrap(Runnable::run);
+        final StringBuilder trace = new StringBuilder();
+        executor.execute(() -> trace.append('a'));
+        executor.execute(() -> trace.append('b'));
+        try {
+            executor.execute(() -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException ex) {
+            // Expected.
+        }
+        assertEquals("ab", trace.toString()); // NOI18N.
+        assertEquals(2, executor.getCompletedCount());
+        assertEquals(1, executor.getFailedCount());
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(0, executor.getQueuedCount());
+    }
+
+    @Test
+    public void testBoundedPool() throws InterruptedException {
+        System.out.println("testBoundedPool"); // NOI18N.
+        final QueryExecutor executor = QueryExecutor.newBoundedPool(2);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        for (int index = 0; index < 5; index++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getActiveCount());
+        assertEquals(3, executor.getQueuedCount());
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // Counters are updated right after the task returns.
+        while (executor.getCompletedCount() < 5) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(0, executor.getQueuedCount());
+    }
+}